@@ -14,7 +14,6 @@ import android.widget.TextView;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.ChecksumException;
-import com.google.zxing.EncodeHintType;
 import com.google.zxing.FormatException;
 import com.google.zxing.MultiFormatReader;
 import com.google.zxing.MultiFormatWriter;
@@ -27,11 +26,9 @@ import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.HybridBinarizer;
 import com.google.zxing.qrcode.QRCodeReader;
-import com.google.zxing.qrcode.QRCodeWriter;
-import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
-
-import java.util.HashMap;
-import java.util.Map;
+import com.wedo.utils.graphic.ImageUtil;
+import com.wedo.utils.graphic.PixelBuffer;
+import com.wedo.utils.graphic.QRCodeRenderer;
 
 /**
  * 二维码相关工具类
@@ -68,35 +65,10 @@ public final class QRCodeUtil {
      * @return 二维码图片
      */
     public static Bitmap createQRCode(String content, int width, int height, int border) {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        // 配置参数
-        Map hints = new HashMap<>();
-        hints.put(EncodeHintType.CHARACTER_SET, "utf-8");
-        // 容错级别
-        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
-        // 设置空白边距的宽度，default is 4
-        hints.put(EncodeHintType.MARGIN, border);
-        try {
-            // 图像数据转换，使用了矩阵转换
-            BitMatrix encode = qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, width, height, hints);
-            int[] pixels = new int[width * height];
-            // 下面这里按照二维码的算法，逐个生成二维码的图片，
-            // 两个 for 循环是图片横列扫描的结果
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    if (encode.get(j, i)) {
-                        pixels[i * width + j] = Color.BLACK;
-                    } else {
-                        pixels[i * width + j] = Color.WHITE;
-                    }
-                }
-            }
-            // 生成二维码图片的格式，使用 ARGB_8888
-            return Bitmap.createBitmap(pixels, 0, width, width, height, Bitmap.Config.ARGB_8888);
-        } catch (WriterException e) {
-            e.printStackTrace();
-        }
-        return null;
+        PixelBuffer pixels = QRCodeRenderer.encode(content, width, height, border);
+        if (pixels == null) return null;
+        // 生成二维码图片的格式，使用 ARGB_8888
+        return ImageUtil.toBitmap(pixels, Bitmap.Config.ARGB_8888);
     }
 
     /**
@@ -357,19 +329,8 @@ public final class QRCodeUtil {
         } catch (WriterException e) {
             e.printStackTrace();
         }
-        int width = result.getWidth();
-        int height = result.getHeight();
-        int[] pixels = new int[width * height];
-        // 默认情况下，所有的都是 0 或黑色
-        for (int y = 0; y < height; y++) {
-            int offset = y * width;
-            for (int x = 0; x < width; x++) {
-                pixels[offset + x] = result.get(x, y) ? Color.BLACK : Color.WHITE;
-            }
-        }
-        Bitmap bitmap = Bitmap.createBitmap(width, height,
+        Bitmap bitmap = ImageUtil.toBitmap(QRCodeRenderer.render(result, Color.BLACK, Color.WHITE),
                 Bitmap.Config.ARGB_8888);
-        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
         return bitmap;
     }
 
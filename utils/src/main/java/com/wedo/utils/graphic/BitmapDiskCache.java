@@ -0,0 +1,312 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+
+import com.wedo.utils.encrypt.Md5Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * 原始像素的磁盘缓存
+ * <p>
+ * 与 {@link com.wedo.utils.io.FileUtil#put(String, Bitmap)} 先压缩为 JPEG 再解码不同，这里直接保存图片内存中的像素
+ * （ARGB_8888 或 RGB_565）和一个 20 字节的文件头（标识、宽、高、格式、alpha 标志），无损且不经过任何编解码；
+ * 读写都通过内存映射（FileChannel.map）完成，读取时映射的数据直接交给 Bitmap.copyPixelsFromBuffer。
+ * 文件总大小不超过预算，超出时删除最久未使用的文件（使用顺序按文件修改时间持久化，重启后仍有效）。
+ * 注：每个像素占 2 或 4 字节，适合缓存少量频繁使用的图片（如首屏、头像）
+ */
+public final class BitmapDiskCache {
+    /**
+     * 像素格式：与 Bitmap.Config.ARGB_8888 的内存布局相同
+     */
+    public static final int FORMAT_ARGB_8888 = 1;
+    /**
+     * 像素格式：与 Bitmap.Config.RGB_565 的内存布局相同
+     */
+    public static final int FORMAT_RGB_565 = 2;
+
+    static final int HEADER_SIZE = 20;
+    private static final int MAGIC = 0x52505832; // "RPX2"
+    /* 文件头中的标志：图片有 alpha（Bitmap#hasAlpha） */
+    private static final int FLAG_HAS_ALPHA = 1;
+    private static final String SUFFIX = ".raw";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private long maxSize;
+    private long size;
+    /* 文件名 -> 文件大小，按使用顺序排列 */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 读取到的原始像素
+     */
+    public static final class RawPixels {
+        public final int width;
+        public final int height;
+        public final int format;
+        /**
+         * 保存时图片的 {@link Bitmap#hasAlpha()}
+         */
+        public final boolean hasAlpha;
+        /**
+         * 只读的像素数据（内存映射），position 为 0，limit 为像素数据长度
+         */
+        public final ByteBuffer pixels;
+
+        RawPixels(int width, int height, int format, boolean hasAlpha, ByteBuffer pixels) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.hasAlpha = hasAlpha;
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * @param directory 缓存目录，不存在时自动创建
+     * @param maxBytes  文件总大小预算（字节）
+     */
+    public BitmapDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxSize = maxBytes;
+        directory.mkdirs();
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                entries.put(name, file.length());
+                size += file.length();
+            } else if (name.endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            }
+        }
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 保存图片的像素
+     *
+     * @param key    缓存 key
+     * @param bitmap 图片，格式为 ARGB_8888 或 RGB_565
+     * @return 是否保存成功
+     */
+    public boolean put(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null || bitmap.isRecycled()) return false;
+        int format = getFormat(bitmap.getConfig());
+        if (format == 0) return false;
+        return write(key, bitmap.getWidth(), bitmap.getHeight(), format, bitmap.hasAlpha(), bitmap, null);
+    }
+
+    /**
+     * 保存原始像素（ARGB_8888 记为有 alpha，RGB_565 记为没有）
+     *
+     * @param key    缓存 key
+     * @param width  宽
+     * @param height 高
+     * @param format 像素格式：{@link #FORMAT_ARGB_8888} 或 {@link #FORMAT_RGB_565}
+     * @param pixels 像素数据（从 position 到 limit），长度必须为 width * height * 每像素字节数
+     * @return 是否保存成功
+     */
+    public boolean put(String key, int width, int height, int format, ByteBuffer pixels) {
+        if (key == null || pixels.remaining() != getByteCount(width, height, format)) return false;
+        return write(key, width, height, format, format == FORMAT_ARGB_8888, null, pixels);
+    }
+
+    /**
+     * 读取图片，优先复用 {@link BitmapPool} 中的图片
+     *
+     * @param key 缓存 key
+     * @return 图片，没有缓存或读取失败时返回 null
+     */
+    public Bitmap get(String key) {
+        RawPixels raw = getPixels(key);
+        if (raw == null) return null;
+        Bitmap.Config config = raw.format == FORMAT_RGB_565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        Bitmap bitmap = BitmapPool.getInstance().getDirty(raw.width, raw.height, config);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(raw.width, raw.height, config);
+        }
+        bitmap.copyPixelsFromBuffer(raw.pixels);
+        // 复用的图片带有之前的标志，按保存时的图片恢复
+        bitmap.setHasAlpha(raw.hasAlpha);
+        return bitmap;
+    }
+
+    /**
+     * 读取原始像素
+     *
+     * @param key 缓存 key
+     * @return 原始像素，没有缓存或文件已损坏时返回 null
+     */
+    public synchronized RawPixels getPixels(String key) {
+        if (key == null) return null;
+        String name = getFileName(key);
+        if (entries.get(name) == null) return null;
+        File file = new File(directory, name);
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("truncated file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int width = buffer.getInt(4);
+            int height = buffer.getInt(8);
+            int format = buffer.getInt(12);
+            int flags = buffer.getInt(16);
+            if (buffer.getInt(0) != MAGIC || length != HEADER_SIZE + getByteCount(width, height, format)) {
+                throw new IOException("corrupted file: " + file);
+            }
+            buffer.position(HEADER_SIZE);
+            file.setLastModified(System.currentTimeMillis());
+            return new RawPixels(width, height, format, (flags & FLAG_HAS_ALPHA) != 0, buffer.slice());
+        } catch (IOException e) {
+            e.printStackTrace();
+            remove(key);
+            return null;
+        } finally {
+            close(raf);
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        return key != null && entries.containsKey(getFileName(key));
+    }
+
+    public synchronized void remove(String key) {
+        String name = getFileName(key);
+        Long length = entries.remove(name);
+        if (length != null) {
+            size -= length;
+        }
+        new File(directory, name).delete();
+    }
+
+    /**
+     * 删除所有缓存文件
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized void setMaxSize(long maxBytes) {
+        maxSize = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 当前缓存文件的总大小（字节）
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * 像素数据长度
+     *
+     * @return 长度，格式不支持时返回 -1
+     */
+    public static long getByteCount(int width, int height, int format) {
+        if (width <= 0 || height <= 0) return -1;
+        if (format == FORMAT_ARGB_8888) return 4L * width * height;
+        if (format == FORMAT_RGB_565) return 2L * width * height;
+        return -1;
+    }
+
+    private static int getFormat(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) return FORMAT_ARGB_8888;
+        if (config == Bitmap.Config.RGB_565) return FORMAT_RGB_565;
+        return 0;
+    }
+
+    /**
+     * 先写入临时文件，完成后再重命名，避免读到写了一半的文件
+     */
+    private synchronized boolean write(String key, int width, int height, int format, boolean hasAlpha,
+                                       Bitmap bitmap, ByteBuffer pixels) {
+        long length = HEADER_SIZE + getByteCount(width, height, format);
+        if (length > maxSize) return false;
+        String name = getFileName(key);
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        RandomAccessFile raf = null;
+        boolean success = false;
+        try {
+            raf = new RandomAccessFile(temp, "rw");
+            raf.setLength(length);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(MAGIC).putInt(width).putInt(height).putInt(format).putInt(hasAlpha ? FLAG_HAS_ALPHA : 0);
+            if (bitmap != null) {
+                bitmap.copyPixelsToBuffer(buffer);
+            } else {
+                buffer.put(pixels.duplicate());
+            }
+            success = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            close(raf);
+        }
+        if (!success) {
+            temp.delete();
+            return false;
+        }
+        remove(key);
+        if (!temp.renameTo(new File(directory, name))) {
+            temp.delete();
+            return false;
+        }
+        entries.put(name, length);
+        size += length;
+        trimToSize(maxSize);
+        return true;
+    }
+
+    private void trimToSize(long targetSize) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+
+    private static String getFileName(String key) {
+        return Md5Util.encrypt(key) + SUFFIX;
+    }
+
+    private static void close(RandomAccessFile raf) {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.wedo.utils.graphic;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import java.io.File;
+
+
+/**
+ * 解码结果的内存缓存
+ * <p>
+ * key 由文件路径、修改时间、文件大小、请求的宽高和图片格式组成（见 {@link #getKey}），文件被修改后自动失效；
+ * 放入时按 {@link ImageUtil#getBitmapSize} 计算内存占用，总量不超过预算，超出时淘汰最久未使用的图片；
+ * {@link #getSavedSize()} 统计强引用层中低位深图片（如 RGB_565）与 ARGB_8888 相比节省的内存。
+ * 开启软引用层时，被淘汰的图片转入 SoftReference，内存充足时仍可命中，由 GC 决定何时回收；已被 recycle 的图片在 get 时移除。
+ * 注：缓存中的图片会返回给多个调用方，应放入不可修改的图片（见 {@link ImageUtil#getCachedBitmap}），
+ * 取出后请勿 recycle 或放回 {@link BitmapPool}
+ */
+public final class BitmapMemoryCache {
+    private final TieredLruCache<Bitmap> cache;
+
+    public static BitmapMemoryCache getInstance() {
+        return BitmapMemoryCacheHolder.INSTANCE;
+    }
+
+    private static class BitmapMemoryCacheHolder {
+        private static final BitmapMemoryCache INSTANCE =
+                new BitmapMemoryCache(Runtime.getRuntime().maxMemory() / 8, true);
+    }
+
+    /**
+     * @param maxBytes 强引用层的内存预算（字节）
+     * @param softTier 是否把淘汰的图片转入软引用层
+     */
+    public BitmapMemoryCache(long maxBytes, boolean softTier) {
+        cache = new TieredLruCache<Bitmap>(maxBytes, softTier) {
+            @Override
+            long sizeOf(Bitmap value) {
+                return ImageUtil.getBitmapSize(value);
+            }
+
+            @Override
+            long savedBytesOf(Bitmap value) {
+                return BitmapPool.getSavedBytes(value);
+            }
+
+            @Override
+            boolean isValid(Bitmap value) {
+                return !value.isRecycled();
+            }
+        };
+    }
+
+    /**
+     * 生成缓存 key
+     *
+     * @param filePath  文件路径
+     * @param reqWidth  请求的最大宽度，不限制时为 0
+     * @param reqHeight 请求的最大高度，不限制时为 0
+     * @param config    图片格式
+     * @return key，文件不存在时返回 null
+     */
+    public static String getKey(String filePath, int reqWidth, int reqHeight, Bitmap.Config config) {
+        if (filePath == null) return null;
+        File file = new File(filePath);
+        long modified = file.lastModified();
+        if (modified == 0) return null;
+        return filePath + '#' + modified + '#' + file.length() + '#' + reqWidth + 'x' + reqHeight + '#' + config;
+    }
+
+    /**
+     * @param key 缓存 key，为 null 时返回 null
+     * @return 缓存的图片，没有时返回 null
+     */
+    public synchronized Bitmap get(String key) {
+        return cache.get(key);
+    }
+
+    /**
+     * @param key    缓存 key，为 null 时不缓存
+     * @param bitmap 图片
+     */
+    public synchronized void put(String key, Bitmap bitmap) {
+        cache.put(key, bitmap);
+    }
+
+    public synchronized void remove(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * 根据内存紧张程度释放缓存，在 {@link ComponentCallbacks2#onTrimMemory} 中调用
+     *
+     * @param level onTrimMemory 的 level
+     */
+    public synchronized void trimMemory(int level) {
+        cache.trimToSize(getTrimTarget(level, cache.getMaxSize()));
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            cache.clearSoft();
+        }
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 修改内存预算
+     *
+     * @param maxBytes 强引用层的内存预算（字节）
+     */
+    public synchronized void setMaxSize(long maxBytes) {
+        cache.setMaxSize(maxBytes);
+    }
+
+    public synchronized long getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    public synchronized long getSize() {
+        return cache.getSize();
+    }
+
+    /**
+     * 强引用层中的图片与同尺寸 ARGB_8888 图片相比节省的内存（字节）
+     */
+    public synchronized long getSavedSize() {
+        return cache.getSavedSize();
+    }
+
+    public synchronized int getHitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * 在软引用层命中的次数（不计入 {@link #getHitCount()}）
+     */
+    public synchronized int getSoftHitCount() {
+        return cache.getSoftHitCount();
+    }
+
+    public synchronized int getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public synchronized int getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /**
+     * 内存紧张程度对应的强引用层目标大小
+     */
+    static long getTrimTarget(int level, long maxSize) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            return 0;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return maxSize / 2;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return maxSize / 4;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return maxSize / 2;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return maxSize * 3 / 4;
+        }
+        return maxSize;
+    }
+}
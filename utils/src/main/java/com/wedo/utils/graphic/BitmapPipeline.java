@@ -0,0 +1,270 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.IntRange;
+
+
+/**
+ * 图片操作流水线
+ * <p>
+ * 依次调用 {@link ImageUtil#clip}、{@link ImageUtil#rotate}、{@link ImageUtil#scale}、{@link ImageUtil#toGray}、
+ * {@link ImageUtil#toRoundCorner} 等方法时，每一步都会生成一张完整的中间图片。这里只记录操作：
+ * 几何变换合并为一个 {@link Matrix}，颜色变换合并为一个 {@link ColorMatrix}，裁剪和遮罩合并为一个 {@link Path}，
+ * {@link #build()} 时只创建一张目标图片，用一次绘制完成全部操作。
+ * 每一步的坐标系与依次调用 ImageUtil 对应方法时相同（上一步结果的左上角为原点）；
+ * 例外是 {@link #round}：它裁剪居中的正方形，而 {@link ImageUtil#toRound} 保持宽高、把整张图片压入圆形。
+ * 注：遮罩（{@link #round}、{@link #roundCorner}）必须在所有几何变换之后
+ * <pre>
+ * Bitmap avatar = BitmapPipeline.from(src)
+ *         .rotate(ImageUtil.getRotateDegree(path))
+ *         .clip(x, y, size, size)
+ *         .resize(200, 200)
+ *         .gray()
+ *         .roundCorner(16, 0, 0)
+ *         .build();
+ * </pre>
+ */
+public final class BitmapPipeline {
+    private final Bitmap src;
+    /* 源图坐标 -> 当前坐标的矩阵和当前图片的宽高 */
+    private final PipelineGeometry geometry;
+    /* 当前坐标系中有内容的区域（经过裁剪和遮罩） */
+    private final Path content = new Path();
+    private ColorMatrix colorMatrix;
+    private Bitmap.Config config;
+    private RectF border;
+    private float borderRadius;
+    private int borderSize;
+    private int borderColor;
+
+    private BitmapPipeline(Bitmap src) {
+        this.src = src;
+        this.geometry = new PipelineGeometry(src.getWidth(), src.getHeight());
+        this.config = src.getConfig() != null ? src.getConfig() : Bitmap.Config.ARGB_8888;
+        content.addRect(0, 0, src.getWidth(), src.getHeight(), Path.Direction.CW);
+    }
+
+    /**
+     * @param src 源图片
+     * @return 流水线，src 为 null 时返回 null
+     */
+    public static BitmapPipeline from(Bitmap src) {
+        return src == null ? null : new BitmapPipeline(src);
+    }
+
+    /**
+     * 裁剪
+     *
+     * @param x      开始坐标 x
+     * @param y      开始坐标 y
+     * @param width  裁剪宽度
+     * @param height 裁剪高度
+     */
+    public BitmapPipeline clip(int x, int y, int width, int height) {
+        float[] step = geometry.clip(x, y, width, height);
+        Path rect = new Path();
+        rect.addRect(x, y, x + width, y + height, Path.Direction.CW);
+        content.op(rect, Path.Op.INTERSECT);
+        content.transform(toMatrix(step));
+        return this;
+    }
+
+    /**
+     * 旋转，结果为旋转后的外接矩形
+     *
+     * @param degrees 旋转角度
+     */
+    public BitmapPipeline rotate(float degrees) {
+        return transform(PipelineGeometry.rotate(degrees));
+    }
+
+    /**
+     * 缩放
+     *
+     * @param scaleWidth  缩放宽度倍数
+     * @param scaleHeight 缩放高度倍数
+     */
+    public BitmapPipeline scale(float scaleWidth, float scaleHeight) {
+        return transform(PipelineGeometry.scale(scaleWidth, scaleHeight));
+    }
+
+    /**
+     * 缩放到指定宽高
+     *
+     * @param width  缩放后的宽
+     * @param height 缩放后的高
+     */
+    public BitmapPipeline resize(int width, int height) {
+        return scale((float) width / geometry.getRawWidth(), (float) height / geometry.getRawHeight());
+    }
+
+    /**
+     * 倾斜
+     *
+     * @param kx 倾斜因子 x
+     * @param ky 倾斜因子 y
+     */
+    public BitmapPipeline skew(float kx, float ky) {
+        return transform(PipelineGeometry.skew(kx, ky));
+    }
+
+    /**
+     * 任意几何变换，结果为变换后的外接矩形（与 Bitmap.createBitmap(src, 0, 0, w, h, m, true) 相同）
+     *
+     * @param m 变换矩阵
+     */
+    public BitmapPipeline transform(Matrix m) {
+        float[] values = new float[9];
+        m.getValues(values);
+        return transform(values);
+    }
+
+    private BitmapPipeline transform(float[] values) {
+        content.transform(toMatrix(geometry.transform(values)));
+        return this;
+    }
+
+    /**
+     * 去色（与 {@link PixelFilters#toGray} 的权重相同）
+     */
+    public BitmapPipeline gray() {
+        float r = 55 / 256f;
+        float g = 183 / 256f;
+        float b = 18 / 256f;
+        return colorMatrix(new ColorMatrix(new float[]{
+                r, g, b, 0, 0,
+                r, g, b, 0, 0,
+                r, g, b, 0, 0,
+                0, 0, 0, 1, 0,
+        }));
+    }
+
+    /**
+     * 调整饱和度
+     *
+     * @param saturation 饱和度，0 为灰度，1 为不变
+     */
+    public BitmapPipeline saturation(float saturation) {
+        ColorMatrix cm = new ColorMatrix();
+        cm.setSaturation(saturation);
+        return colorMatrix(cm);
+    }
+
+    /**
+     * 颜色变换，与之前的颜色变换合并
+     *
+     * @param cm 颜色矩阵
+     */
+    public BitmapPipeline colorMatrix(ColorMatrix cm) {
+        if (colorMatrix == null) {
+            colorMatrix = new ColorMatrix(cm);
+        } else {
+            colorMatrix.postConcat(cm);
+        }
+        return this;
+    }
+
+    /**
+     * 圆形遮罩：裁剪为居中的正方形，只保留其内切圆
+     * <p>
+     * 与 {@link ImageUtil#toRound} 不同：结果为正方形，图片不变形，正方形以外的部分被裁掉
+     *
+     * @param borderSize  边框尺寸
+     * @param borderColor 边框颜色
+     */
+    public BitmapPipeline round(@IntRange(from = 0) int borderSize, @ColorInt int borderColor) {
+        int[] square = geometry.getCenteredSquare();
+        clip(square[0], square[1], square[2], square[2]);
+        return roundCorner(square[2] / 2f, borderSize, borderColor);
+    }
+
+    /**
+     * 圆角遮罩
+     *
+     * @param radius      圆角半径
+     * @param borderSize  边框尺寸
+     * @param borderColor 边框颜色
+     */
+    public BitmapPipeline roundCorner(float radius, @IntRange(from = 0) int borderSize, @ColorInt int borderColor) {
+        RectF rect = new RectF(0, 0, geometry.getRawWidth(), geometry.getRawHeight());
+        float halfBorderSize = borderSize / 2f;
+        rect.inset(halfBorderSize, halfBorderSize);
+        Path mask = new Path();
+        mask.addRoundRect(rect, radius, radius, Path.Direction.CW);
+        content.op(mask, Path.Op.INTERSECT);
+        geometry.mask();
+        if (borderSize > 0) {
+            this.border = rect;
+            this.borderRadius = radius;
+            this.borderSize = borderSize;
+            this.borderColor = borderColor;
+        }
+        return this;
+    }
+
+    /**
+     * 目标图片格式，默认与源图片相同
+     */
+    public BitmapPipeline config(Bitmap.Config config) {
+        this.config = config;
+        return this;
+    }
+
+    /**
+     * 目标宽度
+     */
+    public int getWidth() {
+        return geometry.getWidth();
+    }
+
+    /**
+     * 目标高度
+     */
+    public int getHeight() {
+        return geometry.getHeight();
+    }
+
+    /**
+     * 执行所有操作
+     *
+     * @return 新的图片（源图片不变）
+     */
+    public Bitmap build() {
+        Bitmap ret = BitmapPool.getInstance().get(getWidth(), getHeight(), config);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        BitmapShader shader = new BitmapShader(src, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(toMatrix(geometry.getValues()));
+        paint.setShader(shader);
+        if (colorMatrix != null) {
+            paint.setColorFilter(new ColorMatrixColorFilter(colorMatrix));
+        }
+        Canvas canvas = new Canvas(ret);
+        canvas.drawPath(content, paint);
+        if (border != null) {
+            paint.setShader(null);
+            paint.setColorFilter(null);
+            paint.setColor(borderColor);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(borderSize);
+            canvas.drawRoundRect(border, borderRadius, borderRadius, paint);
+        }
+        return ret;
+    }
+
+    private static Matrix toMatrix(float[] values) {
+        Matrix m = new Matrix();
+        m.setValues(values);
+        return m;
+    }
+}
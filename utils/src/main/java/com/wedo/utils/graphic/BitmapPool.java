@@ -0,0 +1,333 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+
+/**
+ * 可复用的 Bitmap 池
+ * <p>
+ * 按图片格式与内存大小分组，总内存不超过预算，超出时淘汰（recycle）最早放回的图片。
+ * 解码时通过 {@link BitmapFactory.Options#inBitmap} 复用池中内存不小于目标大小的图片（SDK >= 19 的规则），
+ * 不再为每次解码分配新的内存；不再使用的图片通过 {@link #put} 放回池中。
+ * 可通过命中、未命中、淘汰次数评估预算是否合适，{@link #getSavedSize()} 统计池中低位深图片（如 RGB_565）节省的内存
+ */
+public final class BitmapPool {
+    /**
+     * 复用的图片内存最多是所需内存的几倍，避免小图长期占用大块内存
+     */
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    /* 分组 key 中内存大小所占的位数 */
+    private static final int SIZE_BITS = 40;
+
+    private final GroupedLruPool<Bitmap> pool;
+    /* 池中图片与 ARGB_8888 相比节省的内存 */
+    private long savedSize;
+
+    public static BitmapPool getInstance() {
+        return BitmapPoolHolder.INSTANCE;
+    }
+
+    private static class BitmapPoolHolder {
+        private static final BitmapPool INSTANCE = new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
+    }
+
+    /**
+     * @param maxBytes 内存预算（字节）
+     */
+    public BitmapPool(long maxBytes) {
+        pool = new GroupedLruPool<Bitmap>(maxBytes) {
+            @Override
+            void onEvicted(Bitmap value) {
+                savedSize -= getSavedBytes(value);
+                value.recycle();
+            }
+        };
+    }
+
+    /**
+     * 放回不再使用的图片，之后调用方不能再使用它
+     * <p>
+     * 不可修改、已回收、格式不支持或超出预算的图片会被直接回收
+     *
+     * @param bitmap 图片
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        int bpp = getBytesPerPixel(bitmap.getConfig());
+        if (!bitmap.isMutable() || bpp == 0) {
+            bitmap.recycle();
+            return;
+        }
+        // 先计入，放入时可能立即淘汰其他图片
+        long saved = getSavedBytes(bitmap);
+        savedSize += saved;
+        if (!pool.put(getKey(bitmap.getConfig(), bitmap.getAllocationByteCount()), bitmap,
+                bitmap.getAllocationByteCount())) {
+            savedSize -= saved;
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * 获取指定尺寸、格式的透明图片，优先复用池中的图片
+     *
+     * @param width  宽
+     * @param height 高
+     * @param config 格式
+     * @return 可修改的图片
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = getDirty(width, height, config);
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * 从池中取出指定尺寸、格式的图片，内容未清空
+     * <p>
+     * 与 Bitmap.createBitmap 一样标记为有 alpha（预乘），已知内容不透明时由调用方清除
+     *
+     * @param width  宽
+     * @param height 高
+     * @param config 格式
+     * @return 可修改的图片，池中没有合适的图片时返回 null
+     */
+    public synchronized Bitmap getDirty(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = obtain(width, height, config);
+        if (bitmap != null) {
+            bitmap.reconfigure(width, height, config);
+            // 放入池中的可能是不透明的图片（JPEG 解码结果等），reconfigure 会保留它的标记
+            bitmap.setHasAlpha(true);
+            bitmap.setPremultiplied(true);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 解码文件，复用池中的图片
+     *
+     * @param filePath   文件路径
+     * @param sampleSize 采样大小
+     * @return 图片，解码失败时返回 null
+     */
+    public Bitmap decodeFile(String filePath, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        ImageUtil.decodeBounds(filePath, options);
+        options.inSampleSize = sampleSize;
+        return decodeFile(filePath, options);
+    }
+
+    /**
+     * 解码文件，复用池中的图片
+     *
+     * @param filePath 文件路径
+     * @param options  已解码过边界（outWidth、outHeight）并设置好 inSampleSize 的选项
+     * @return 图片，解码失败时返回 null
+     */
+    public Bitmap decodeFile(String filePath, BitmapFactory.Options options) {
+        if (prepareOptions(options)) {
+            // BitmapFactory.decodeFile 吞掉 inBitmap 不兼容的异常并返回 null，这里直接解码文件流
+            Bitmap bitmap = null;
+            try {
+                bitmap = decodeStream(filePath, options);
+            } catch (IllegalArgumentException ignored) {
+            }
+            if (bitmap != null) return bitmap;
+            releaseInBitmap(options);
+        }
+        return decodeStream(filePath, options);
+    }
+
+    /**
+     * 解码字节数组，复用池中的图片
+     *
+     * @param data       图片数据
+     * @param sampleSize 采样大小
+     * @return 图片，解码失败时返回 null
+     */
+    public Bitmap decodeByteArray(byte[] data, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        options.inSampleSize = sampleSize;
+        options.inJustDecodeBounds = false;
+        return decodeByteArray(data, options);
+    }
+
+    /**
+     * 解码字节数组，复用池中的图片
+     *
+     * @param data    图片数据
+     * @param options 已解码过边界（outWidth、outHeight）并设置好 inSampleSize 的选项
+     * @return 图片，解码失败时返回 null
+     */
+    public Bitmap decodeByteArray(byte[] data, BitmapFactory.Options options) {
+        if (prepareOptions(options)) {
+            Bitmap bitmap = null;
+            try {
+                bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            } catch (IllegalArgumentException ignored) {
+            }
+            if (bitmap != null) return bitmap;
+            releaseInBitmap(options);
+        }
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    /**
+     * 根据解码选项中的边界和采样大小，从池中取出足够大的图片设置为 inBitmap
+     *
+     * @param options 已解码过边界的选项
+     * @return 是否设置了 inBitmap
+     */
+    public boolean prepareOptions(BitmapFactory.Options options) {
+        options.inMutable = true;
+        if (options.outWidth <= 0 || options.outHeight <= 0) return false;
+        int sampleSize = Math.max(1, options.inSampleSize);
+        // 不同解码器对采样后尺寸的取整方式不同，按向上取整估算，保证内存足够
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+        Bitmap.Config config = options.inPreferredConfig == null ? Bitmap.Config.ARGB_8888 : options.inPreferredConfig;
+        Bitmap bitmap;
+        synchronized (this) {
+            bitmap = obtain(width, height, config);
+        }
+        options.inBitmap = bitmap;
+        return bitmap != null;
+    }
+
+    /**
+     * 回收所有图片
+     */
+    public synchronized void clear() {
+        pool.trimToSize(0);
+    }
+
+    /**
+     * 淘汰图片直到总内存不超过 maxBytes（如 onTrimMemory 时）
+     */
+    public synchronized void trimToSize(long maxBytes) {
+        pool.trimToSize(maxBytes);
+    }
+
+    public synchronized void setMaxSize(long maxBytes) {
+        pool.setMaxSize(maxBytes);
+    }
+
+    public synchronized long getMaxSize() {
+        return pool.getMaxSize();
+    }
+
+    /**
+     * 当前池中图片占用的内存（字节）
+     */
+    public synchronized long getSize() {
+        return pool.getSize();
+    }
+
+    /**
+     * 池中图片与同尺寸 ARGB_8888 图片相比节省的内存（字节）
+     */
+    public synchronized long getSavedSize() {
+        return savedSize;
+    }
+
+    public synchronized int getHitCount() {
+        return pool.getHitCount();
+    }
+
+    public synchronized int getMissCount() {
+        return pool.getMissCount();
+    }
+
+    public synchronized int getEvictionCount() {
+        return pool.getEvictionCount();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BitmapPool[size=" + pool.getSize() + "/" + pool.getMaxSize() + ", count=" + pool.getCount()
+                + ", hits=" + pool.getHitCount() + ", misses=" + pool.getMissCount()
+                + ", puts=" + pool.getPutCount() + ", evictions=" + pool.getEvictionCount()
+                + ", saved=" + savedSize + "]";
+    }
+
+    private Bitmap obtain(int width, int height, Bitmap.Config config) {
+        int bpp = getBytesPerPixel(config);
+        if (bpp == 0) return null;
+        long bytes = (long) width * height * bpp;
+        Bitmap bitmap = pool.get(getKey(config, bytes), getKey(config, bytes * MAX_SIZE_MULTIPLE));
+        if (bitmap != null) {
+            savedSize -= getSavedBytes(bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 解码文件流，inBitmap 不兼容时抛出 IllegalArgumentException
+     */
+    private static Bitmap decodeStream(String filePath, BitmapFactory.Options options) {
+        if (filePath == null) return null;
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(filePath);
+            return BitmapFactory.decodeStream(fis, null, options);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (fis != null) {
+                try {
+                    fis.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 复用 inBitmap 解码失败时（不兼容或文件无法解码），把它放回池中并清除
+     */
+    private void releaseInBitmap(BitmapFactory.Options options) {
+        Bitmap bitmap = options.inBitmap;
+        options.inBitmap = null;
+        put(bitmap);
+    }
+
+    /**
+     * 分组 key：高位为格式，低 {@link #SIZE_BITS} 位为内存大小
+     */
+    static long getKey(Bitmap.Config config, long bytes) {
+        return ((long) config.ordinal() << SIZE_BITS) | Math.min(bytes, (1L << SIZE_BITS) - 1);
+    }
+
+    /**
+     * 图片与同尺寸 ARGB_8888 图片相比节省的内存（字节），按分配的内存计算
+     */
+    static long getSavedBytes(Bitmap bitmap) {
+        int bpp = getBytesPerPixel(bitmap.getConfig());
+        return bpp == 0 ? 0 : (long) ImageUtil.getBitmapSize(bitmap) * (4 - bpp) / bpp;
+    }
+
+    /**
+     * 每个像素的字节数，不支持复用的格式返回 0
+     */
+    @SuppressWarnings("deprecation")
+    static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) return 4;
+        if (config == Bitmap.Config.RGB_565) return 2;
+        if (config == Bitmap.Config.ARGB_4444) return 2;
+        if (config == Bitmap.Config.ALPHA_8) return 1;
+        return 0;
+    }
+}
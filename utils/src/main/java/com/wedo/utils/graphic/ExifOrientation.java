@@ -0,0 +1,223 @@
+package com.wedo.utils.graphic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+
+/**
+ * 轻量的 EXIF 方向读取
+ * <p>
+ * 只解析 JPEG 的 APP1（Exif）段和 TIFF IFD0 中的方向标签（0x0112），找到后立即停止，
+ * 其他段直接跳过不读取，通常只需读取文件开头的几百字节；不依赖 Android，可在普通 JVM 上使用。
+ * 支持 JPEG 和 TIFF 文件，其他格式返回 {@link #ORIENTATION_UNDEFINED}。
+ * 读取缓冲区在多次读取间复用，批量读取时请复用同一个实例。
+ * 注：实例不是线程安全的
+ */
+public final class ExifOrientation {
+    /**
+     * 方向值，与 ExifInterface.ORIENTATION_* 相同
+     */
+    public static final int ORIENTATION_UNDEFINED = 0;
+    public static final int ORIENTATION_NORMAL = 1;
+    public static final int ORIENTATION_FLIP_HORIZONTAL = 2;
+    public static final int ORIENTATION_ROTATE_180 = 3;
+    public static final int ORIENTATION_FLIP_VERTICAL = 4;
+    public static final int ORIENTATION_TRANSPOSE = 5;
+    public static final int ORIENTATION_ROTATE_90 = 6;
+    public static final int ORIENTATION_TRANSVERSE = 7;
+    public static final int ORIENTATION_ROTATE_270 = 8;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private final HeaderReader reader = new HeaderReader();
+
+    /**
+     * 读取文件的方向
+     *
+     * @param file 文件
+     * @return 方向，读取失败时返回 {@link #ORIENTATION_UNDEFINED}
+     */
+    public int read(File file) {
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            return read(fis.getChannel());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ORIENTATION_UNDEFINED;
+        } finally {
+            if (fis != null) {
+                try {
+                    fis.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 从输入流的当前位置读取方向，读取后流的位置不确定
+     *
+     * @param in 输入流（不会被关闭）
+     * @return 方向
+     */
+    public int read(InputStream in) throws IOException {
+        reader.open(in);
+        try {
+            return parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 从文件开头读取方向，不改变 channel 的位置
+     *
+     * @param channel 文件通道（不会被关闭）
+     * @return 方向
+     */
+    public int read(FileChannel channel) throws IOException {
+        reader.open(channel);
+        try {
+            return parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 批量读取，复用同一个缓冲区
+     *
+     * @param files 文件列表
+     * @return 各文件的方向，读取失败的为 {@link #ORIENTATION_UNDEFINED}
+     */
+    public int[] read(List<File> files) {
+        int[] orientations = new int[files.size()];
+        for (int i = 0; i < orientations.length; i++) {
+            orientations[i] = read(files.get(i));
+        }
+        return orientations;
+    }
+
+    /**
+     * 方向对应的顺时针旋转角度（与 ExifInterface.getRotationDegrees 相同）
+     *
+     * @param orientation 方向
+     * @return 0、90、180 或 270
+     */
+    public static int getDegrees(int orientation) {
+        switch (orientation) {
+            case ORIENTATION_ROTATE_90:
+            case ORIENTATION_TRANSVERSE:
+                return 90;
+            case ORIENTATION_ROTATE_180:
+            case ORIENTATION_FLIP_VERTICAL:
+                return 180;
+            case ORIENTATION_ROTATE_270:
+            case ORIENTATION_TRANSPOSE:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 方向是否包含翻转
+     */
+    public static boolean isFlipped(int orientation) {
+        return orientation == ORIENTATION_FLIP_HORIZONTAL || orientation == ORIENTATION_FLIP_VERTICAL
+                || orientation == ORIENTATION_TRANSPOSE || orientation == ORIENTATION_TRANSVERSE;
+    }
+
+    private static int parse(HeaderReader r) throws IOException {
+        if (!r.ensure(0, 4)) return ORIENTATION_UNDEFINED;
+        if (r.u8(0) == 0xff && r.u8(1) == 0xd8) {
+            return parseJpeg(r);
+        }
+        if (isTiffHeader(r, 0)) {
+            return parseTiff(r, 0);
+        }
+        return ORIENTATION_UNDEFINED;
+    }
+
+    private static int parseJpeg(HeaderReader r) throws IOException {
+        long pos = 2;
+        while (r.ensure(pos, 4)) {
+            if (r.u8(pos) != 0xff) return ORIENTATION_UNDEFINED;
+            int marker = r.u8(pos + 1);
+            if (marker == 0xff) {
+                // 填充字节
+                pos++;
+                continue;
+            }
+            if (marker == 0xd8 || marker == 0x01 || (marker >= 0xd0 && marker <= 0xd7)) {
+                // 没有长度的标记
+                pos += 2;
+                continue;
+            }
+            // 图像数据开始（SOS）或结束（EOI），方向信息只会出现在之前
+            if (marker == 0xda || marker == 0xd9) return ORIENTATION_UNDEFINED;
+            r.setLittleEndian(false);
+            int segmentLength = r.u16(pos + 2);
+            if (segmentLength < 2) return ORIENTATION_UNDEFINED;
+            if (marker == 0xe1 && isExifSegment(r, pos, segmentLength)) {
+                // 同一文件中可能有多个 APP1 段（如 XMP），Exif 段中没有方向时不再继续查找
+                return parseTiff(r, pos + 10);
+            }
+            pos += 2 + segmentLength;
+        }
+        return ORIENTATION_UNDEFINED;
+    }
+
+    /**
+     * pos 处的 APP1 段是否为 Exif 段（TIFF 数据从 pos + 10 开始）
+     */
+    static boolean isExifSegment(HeaderReader r, long pos, int segmentLength) throws IOException {
+        return segmentLength >= 16 && r.ensure(pos + 4, 6) && r.matches(pos + 4, "Exif")
+                && r.u8(pos + 8) == 0 && r.u8(pos + 9) == 0;
+    }
+
+    private static boolean isTiffHeader(HeaderReader r, long tiff) throws IOException {
+        if (!r.ensure(tiff, 8)) return false;
+        if (r.matches(tiff, "II")) {
+            r.setLittleEndian(true);
+        } else if (r.matches(tiff, "MM")) {
+            r.setLittleEndian(false);
+        } else {
+            return false;
+        }
+        return r.u16(tiff + 2) == 42;
+    }
+
+    /**
+     * 读取 TIFF 数据 IFD0 中的方向
+     *
+     * @param r    读取器
+     * @param tiff TIFF 数据在文件中的位置
+     * @return 方向
+     */
+    static int parseTiff(HeaderReader r, long tiff) throws IOException {
+        if (!isTiffHeader(r, tiff)) return ORIENTATION_UNDEFINED;
+        long ifd = tiff + r.u32(tiff + 4);
+        if (!r.ensure(ifd, 2)) return ORIENTATION_UNDEFINED;
+        int count = r.u16(ifd);
+        for (int i = 0; i < count; i++) {
+            long entry = ifd + 2 + 12L * i;
+            if (!r.ensure(entry, 12)) break;
+            int tag = r.u16(entry);
+            if (tag == TAG_ORIENTATION) {
+                int orientation = r.u16(entry + 8);
+                return orientation >= ORIENTATION_NORMAL && orientation <= ORIENTATION_ROTATE_270
+                        ? orientation : ORIENTATION_UNDEFINED;
+            }
+            // IFD 中的标签按升序排列
+            if (tag > TAG_ORIENTATION) break;
+        }
+        return ORIENTATION_UNDEFINED;
+    }
+}
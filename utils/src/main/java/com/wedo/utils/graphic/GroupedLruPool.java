@@ -0,0 +1,171 @@
+package com.wedo.utils.graphic;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * 按 long 型 key 分组、总大小受限的 LRU 对象池
+ * <p>
+ * 同一 key 下可以有多个对象；取出时在 [minKey, maxKey] 范围内找最小的 key，并取该组中最近放入的对象；
+ * 超出容量时淘汰所有组中最早放入的对象。
+ * 注：非线程安全，由调用方同步
+ */
+class GroupedLruPool<V> {
+    private final TreeMap<Long, ArrayDeque<Node<V>>> groups = new TreeMap<>();
+    /* 所有对象按放入顺序组成的双向链表，head 最早 */
+    private Node<V> head;
+    private Node<V> tail;
+
+    private long maxSize;
+    private long size;
+    private int count;
+
+    private int hitCount;
+    private int missCount;
+    private int putCount;
+    private int evictionCount;
+
+    GroupedLruPool(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 取出 key 在 [minKey, maxKey] 范围内的对象
+     *
+     * @return 对象，没有时返回 null
+     */
+    V get(long minKey, long maxKey) {
+        Map.Entry<Long, ArrayDeque<Node<V>>> entry = groups.ceilingEntry(minKey);
+        if (entry == null || entry.getKey() > maxKey) {
+            missCount++;
+            return null;
+        }
+        ArrayDeque<Node<V>> group = entry.getValue();
+        Node<V> node = group.pollLast();
+        if (group.isEmpty()) {
+            groups.remove(entry.getKey());
+        }
+        unlink(node);
+        size -= node.size;
+        count--;
+        hitCount++;
+        return node.value;
+    }
+
+    /**
+     * 放入对象，超出容量时淘汰最早放入的对象
+     *
+     * @return 是否放入；对象本身超过容量时不放入
+     */
+    boolean put(long key, V value, long valueSize) {
+        if (valueSize > maxSize) return false;
+        Node<V> node = new Node<>(key, value, valueSize);
+        ArrayDeque<Node<V>> group = groups.get(key);
+        if (group == null) {
+            group = new ArrayDeque<>();
+            groups.put(key, group);
+        }
+        group.addLast(node);
+        node.prev = tail;
+        if (tail != null) {
+            tail.next = node;
+        } else {
+            head = node;
+        }
+        tail = node;
+        size += valueSize;
+        count++;
+        putCount++;
+        trimToSize(maxSize);
+        return true;
+    }
+
+    /**
+     * 淘汰最早放入的对象，直到总大小不超过 targetSize
+     */
+    void trimToSize(long targetSize) {
+        while (size > targetSize && head != null) {
+            Node<V> node = head;
+            ArrayDeque<Node<V>> group = groups.get(node.key);
+            // 同一组内也按放入顺序排列，最早放入的对象一定在组的头部
+            group.pollFirst();
+            if (group.isEmpty()) {
+                groups.remove(node.key);
+            }
+            unlink(node);
+            size -= node.size;
+            count--;
+            evictionCount++;
+            onEvicted(node.value);
+        }
+    }
+
+    /**
+     * 对象被淘汰（或清空）时回调
+     */
+    void onEvicted(V value) {
+    }
+
+    void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getHitCount() {
+        return hitCount;
+    }
+
+    int getMissCount() {
+        return missCount;
+    }
+
+    int getPutCount() {
+        return putCount;
+    }
+
+    int getEvictionCount() {
+        return evictionCount;
+    }
+
+    private void unlink(Node<V> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        node.prev = node.next = null;
+    }
+
+    private static final class Node<V> {
+        final long key;
+        final V value;
+        final long size;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(long key, V value, long size) {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
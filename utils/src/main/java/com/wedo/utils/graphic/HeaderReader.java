@@ -0,0 +1,165 @@
+package com.wedo.utils.graphic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * 文件头的按需读取
+ * <p>
+ * 以文件中的绝对位置访问数据，只把需要的部分读入缓冲区，向后跳过的数据直接丢弃（FileChannel 按位置读取，不读中间的数据），
+ * 不能回退到缓冲区之前的位置。缓冲区从 4KB 开始按需增长，在多次读取间复用。
+ * 注：实例不是线程安全的
+ */
+final class HeaderReader {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    /* 一个 JPEG 段最长 65535 字节 */
+    private static final int MAX_BUFFER_SIZE = 65536 + 16;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer bufferView = ByteBuffer.wrap(buffer);
+    /* buffer[0] 在文件中的位置，以及 buffer 中有效数据的长度 */
+    private long base;
+    private int length;
+    private boolean littleEndian;
+
+    private InputStream in;
+    private FileChannel channel;
+    private long channelPosition;
+
+    /**
+     * 从输入流的当前位置开始读取
+     */
+    void open(InputStream in) {
+        reset();
+        this.in = in;
+    }
+
+    /**
+     * 从文件开头开始读取，不改变 channel 的位置
+     */
+    void open(FileChannel channel) {
+        reset();
+        this.channel = channel;
+    }
+
+    /**
+     * 释放对输入流或文件通道的引用（不会关闭它们）
+     */
+    void close() {
+        in = null;
+        channel = null;
+    }
+
+    void setLittleEndian(boolean littleEndian) {
+        this.littleEndian = littleEndian;
+    }
+
+    /**
+     * 保证文件中 [pos, pos + count) 的数据在缓冲区中
+     *
+     * @return 数据是否足够（已到文件末尾、位置已被丢弃或超过缓冲区上限时返回 false）
+     */
+    boolean ensure(long pos, int count) throws IOException {
+        if (pos < base) return false;
+        if (pos + count <= base + length) return true;
+        if (pos + count > base + buffer.length) {
+            long end = base + length;
+            if (pos >= end) {
+                // 所需数据不在缓冲区中，跳过中间的数据
+                if (!skip(pos - end)) return false;
+                base = pos;
+                length = 0;
+            } else {
+                int keep = (int) (end - pos);
+                System.arraycopy(buffer, (int) (pos - base), buffer, 0, keep);
+                base = pos;
+                length = keep;
+            }
+            if (count > buffer.length) {
+                if (count > MAX_BUFFER_SIZE) return false;
+                byte[] bigger = new byte[Math.min(MAX_BUFFER_SIZE, Math.max(count, buffer.length * 2))];
+                System.arraycopy(buffer, 0, bigger, 0, length);
+                buffer = bigger;
+                bufferView = ByteBuffer.wrap(buffer);
+            }
+        }
+        int need = (int) (pos + count - base);
+        while (length < need) {
+            int n = fill(length, buffer.length - length);
+            if (n < 0) return false;
+            length += n;
+        }
+        return true;
+    }
+
+    int u8(long pos) {
+        return buffer[(int) (pos - base)] & 0xff;
+    }
+
+    int u16(long pos) {
+        int b0 = u8(pos);
+        int b1 = u8(pos + 1);
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    int u24(long pos) {
+        int b0 = u8(pos);
+        int b2 = u8(pos + 2);
+        return littleEndian ? (b2 << 16) | (u8(pos + 1) << 8) | b0 : (b0 << 16) | (u8(pos + 1) << 8) | b2;
+    }
+
+    long u32(long pos) {
+        long hi = u16(littleEndian ? pos + 2 : pos);
+        long lo = u16(littleEndian ? pos : pos + 2);
+        return (hi << 16) | lo;
+    }
+
+    /**
+     * pos 处的数据是否与 ASCII 字符串相同（调用前需保证数据在缓冲区中）
+     */
+    boolean matches(long pos, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (u8(pos + i) != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void reset() {
+        base = 0;
+        length = 0;
+        littleEndian = false;
+        channelPosition = 0;
+    }
+
+    private int fill(int offset, int count) throws IOException {
+        if (in != null) {
+            return in.read(buffer, offset, count);
+        }
+        bufferView.limit(offset + count).position(offset);
+        int n = channel.read(bufferView, channelPosition);
+        if (n > 0) {
+            channelPosition += n;
+        }
+        return n;
+    }
+
+    private boolean skip(long count) throws IOException {
+        if (in == null) {
+            channelPosition += count;
+            return channelPosition < channel.size();
+        }
+        while (count > 0) {
+            long n = in.skip(count);
+            if (n <= 0) {
+                // skip 不保证前进，读一个字节判断是否已到末尾
+                if (in.read() < 0) return false;
+                n = 1;
+            }
+            count -= n;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,327 @@
+package com.wedo.utils.graphic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * 只读取文件头的图片信息探测
+ * <p>
+ * 识别 JPEG、PNG、WebP、GIF、BMP，从文件头中读取宽高和 EXIF 方向（JPEG、WebP），不经过平台解码器，
+ * 通常只读取文件开头几百字节（JPEG 跳过的段不读取），不依赖 Android，可在普通 JVM 上使用。
+ * 宽高与 BitmapFactory 以 inJustDecodeBounds 解码得到的 outWidth、outHeight 相同（未按方向旋转）。
+ * 注：实例复用读取缓冲区，不是线程安全的
+ */
+public final class ImageProbe {
+    public static final int FORMAT_JPEG = 1;
+    public static final int FORMAT_PNG = 2;
+    public static final int FORMAT_WEBP = 3;
+    public static final int FORMAT_GIF = 4;
+    public static final int FORMAT_BMP = 5;
+
+    /**
+     * 目录扫描时每个分段至少处理的文件数
+     */
+    private static final int MIN_FILES_PER_BAND = 16;
+
+    private final HeaderReader reader = new HeaderReader();
+
+    /**
+     * 图片信息
+     */
+    public static final class Info {
+        /**
+         * 文件，从输入流探测时为 null
+         */
+        public final File file;
+        public final int format;
+        public final int width;
+        public final int height;
+        /**
+         * EXIF 方向，见 {@link ExifOrientation}
+         */
+        public final int orientation;
+
+        Info(File file, int format, int width, int height, int orientation) {
+            this.file = file;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+        }
+
+        /**
+         * 按方向旋转后的宽
+         */
+        public int getDisplayWidth() {
+            return ExifOrientation.getDegrees(orientation) % 180 == 0 ? width : height;
+        }
+
+        /**
+         * 按方向旋转后的高
+         */
+        public int getDisplayHeight() {
+            return ExifOrientation.getDegrees(orientation) % 180 == 0 ? height : width;
+        }
+
+        @Override
+        public String toString() {
+            return "Info[" + file + ", format=" + format + ", " + width + "x" + height
+                    + ", orientation=" + orientation + "]";
+        }
+    }
+
+    /**
+     * 探测文件
+     *
+     * @param file 文件
+     * @return 图片信息，不是支持的图片格式或读取失败时返回 null
+     */
+    public Info probe(File file) {
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            reader.open(fis.getChannel());
+            return parse(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            reader.close();
+            if (fis != null) {
+                try {
+                    fis.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 从输入流的当前位置探测，探测后流的位置不确定
+     *
+     * @param in 输入流（不会被关闭）
+     * @return 图片信息，不是支持的图片格式时返回 null
+     */
+    public Info probe(InputStream in) throws IOException {
+        reader.open(in);
+        try {
+            return parse(null);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 从文件开头探测，不改变 channel 的位置
+     *
+     * @param channel 文件通道（不会被关闭）
+     * @return 图片信息，不是支持的图片格式时返回 null
+     */
+    public Info probe(FileChannel channel) throws IOException {
+        reader.open(channel);
+        try {
+            return parse(null);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 并行扫描目录，在 {@link ParallelBands#getDefaultExecutor()} 上执行
+     *
+     * @param directory 目录
+     * @param recursive 是否包含子目录
+     * @return 目录中所有图片的信息
+     */
+    public static List<Info> scan(File directory, boolean recursive) {
+        return scan(directory, recursive, ParallelBands.getDefaultExecutor());
+    }
+
+    /**
+     * 并行扫描目录，文件列表按分段分发，每个分段使用自己的 ImageProbe
+     *
+     * @param directory 目录
+     * @param recursive 是否包含子目录
+     * @param executor  线程池，为 null 时在当前线程中执行
+     * @return 目录中所有图片的信息，顺序与文件列表相同
+     */
+    public static List<Info> scan(File directory, boolean recursive, Executor executor) {
+        final List<File> files = new ArrayList<>();
+        listFiles(directory, recursive, files);
+        final Info[] infos = new Info[files.size()];
+        ParallelBands.run(executor, infos.length, MIN_FILES_PER_BAND, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                ImageProbe probe = new ImageProbe();
+                for (int i = start; i < end; i++) {
+                    infos[i] = probe.probe(files.get(i));
+                }
+            }
+        });
+        List<Info> result = new ArrayList<>(infos.length);
+        for (Info info : infos) {
+            if (info != null) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    private static void listFiles(File directory, boolean recursive, List<File> out) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (recursive) {
+                    listFiles(file, true, out);
+                }
+            } else {
+                out.add(file);
+            }
+        }
+    }
+
+    private Info parse(File file) throws IOException {
+        HeaderReader r = reader;
+        if (!r.ensure(0, 12)) {
+            // 最短的 GIF、BMP 文件头也超过 12 字节
+            return null;
+        }
+        if (r.u8(0) == 0xff && r.u8(1) == 0xd8) {
+            return parseJpeg(file);
+        }
+        if (r.u8(0) == 0x89 && r.matches(1, "PNG\r\n\u001a\n")) {
+            // IHDR 必须是第一个块
+            if (!r.ensure(12, 12) || !r.matches(12, "IHDR")) return null;
+            r.setLittleEndian(false);
+            return create(file, FORMAT_PNG, r.u32(16), r.u32(20), ExifOrientation.ORIENTATION_UNDEFINED);
+        }
+        if (r.matches(0, "RIFF") && r.matches(8, "WEBP")) {
+            return parseWebp(file);
+        }
+        if (r.matches(0, "GIF87a") || r.matches(0, "GIF89a")) {
+            r.setLittleEndian(true);
+            return create(file, FORMAT_GIF, r.u16(6), r.u16(8), ExifOrientation.ORIENTATION_UNDEFINED);
+        }
+        if (r.matches(0, "BM")) {
+            if (!r.ensure(14, 12)) return null;
+            r.setLittleEndian(true);
+            long headerSize = r.u32(14);
+            if (headerSize == 12) {
+                // OS/2 BITMAPCOREHEADER
+                return create(file, FORMAT_BMP, r.u16(18), r.u16(20), ExifOrientation.ORIENTATION_UNDEFINED);
+            }
+            // 高度为负数表示自上而下存储
+            int height = (int) r.u32(22);
+            return create(file, FORMAT_BMP, (int) r.u32(18), Math.abs(height), ExifOrientation.ORIENTATION_UNDEFINED);
+        }
+        return null;
+    }
+
+    private Info parseJpeg(File file) throws IOException {
+        HeaderReader r = reader;
+        int orientation = ExifOrientation.ORIENTATION_UNDEFINED;
+        long pos = 2;
+        while (r.ensure(pos, 4)) {
+            if (r.u8(pos) != 0xff) return null;
+            int marker = r.u8(pos + 1);
+            if (marker == 0xff) {
+                pos++;
+                continue;
+            }
+            if (marker == 0xd8 || marker == 0x01 || (marker >= 0xd0 && marker <= 0xd7)) {
+                pos += 2;
+                continue;
+            }
+            if (marker == 0xda || marker == 0xd9) return null;
+            r.setLittleEndian(false);
+            int segmentLength = r.u16(pos + 2);
+            if (segmentLength < 2) return null;
+            if (isStartOfFrame(marker)) {
+                if (!r.ensure(pos + 5, 4)) return null;
+                r.setLittleEndian(false);
+                return create(file, FORMAT_JPEG, r.u16(pos + 7), r.u16(pos + 5), orientation);
+            }
+            if (marker == 0xe1 && orientation == ExifOrientation.ORIENTATION_UNDEFINED
+                    && ExifOrientation.isExifSegment(r, pos, segmentLength)) {
+                orientation = ExifOrientation.parseTiff(r, pos + 10);
+            }
+            pos += 2 + segmentLength;
+        }
+        return null;
+    }
+
+    /**
+     * SOF0-SOF15，不包括 DHT（C4）、JPG（C8）和 DAC（CC）
+     */
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc;
+    }
+
+    private Info parseWebp(File file) throws IOException {
+        HeaderReader r = reader;
+        if (!r.ensure(12, 8)) return null;
+        r.setLittleEndian(true);
+        if (r.matches(12, "VP8 ")) {
+            // 有损：帧头 3 字节，起始码 9d 01 2a，之后为 14 位的宽高
+            if (!r.ensure(20, 10) || r.u8(23) != 0x9d || r.u8(24) != 0x01 || r.u8(25) != 0x2a) return null;
+            return create(file, FORMAT_WEBP, r.u16(26) & 0x3fff, r.u16(28) & 0x3fff,
+                    ExifOrientation.ORIENTATION_UNDEFINED);
+        }
+        if (r.matches(12, "VP8L")) {
+            // 无损：签名 0x2f，之后 14 位宽 - 1、14 位高 - 1
+            if (!r.ensure(20, 5) || r.u8(20) != 0x2f) return null;
+            long bits = r.u32(21);
+            return create(file, FORMAT_WEBP, (int) (bits & 0x3fff) + 1, (int) ((bits >> 14) & 0x3fff) + 1,
+                    ExifOrientation.ORIENTATION_UNDEFINED);
+        }
+        if (r.matches(12, "VP8X")) {
+            // 扩展格式：标志 1 字节、保留 3 字节，之后 24 位画布宽 - 1、24 位画布高 - 1
+            if (!r.ensure(20, 10)) return null;
+            int flags = r.u8(20);
+            int width = r.u24(24) + 1;
+            int height = r.u24(27) + 1;
+            int orientation = ExifOrientation.ORIENTATION_UNDEFINED;
+            if ((flags & 0x08) != 0) {
+                orientation = findWebpExif(r);
+            }
+            return create(file, FORMAT_WEBP, width, height, orientation);
+        }
+        return null;
+    }
+
+    /**
+     * 在 RIFF 块中查找 EXIF 块并读取方向
+     */
+    private static int findWebpExif(HeaderReader r) throws IOException {
+        long pos = 12;
+        while (r.ensure(pos, 8)) {
+            r.setLittleEndian(true);
+            long size = r.u32(pos + 4);
+            if (r.matches(pos, "EXIF")) {
+                long data = pos + 8;
+                // 部分编码器在 TIFF 数据前加了 Exif\0\0
+                if (r.ensure(data, 6) && r.matches(data, "Exif")) {
+                    data += 6;
+                }
+                return ExifOrientation.parseTiff(r, data);
+            }
+            // 块按偶数字节对齐
+            pos += 8 + size + (size & 1);
+        }
+        return ExifOrientation.ORIENTATION_UNDEFINED;
+    }
+
+    private static Info create(File file, int format, long width, long height, int orientation) {
+        if (width <= 0 || height <= 0 || width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) return null;
+        return new Info(file, format, (int) width, (int) height, orientation);
+    }
+}
@@ -7,8 +7,6 @@ import android.graphics.BitmapFactory;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.PixelFormat;
@@ -17,7 +15,6 @@ import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.media.ExifInterface;
 import android.os.Build;
 import android.view.View;
 
@@ -29,14 +26,19 @@ import androidx.annotation.RequiresApi;
 import androidx.core.content.ContextCompat;
 
 import com.wedo.utils.SUtils;
+import com.wedo.utils.graphic.blur.BlurAlgorithm;
+import com.wedo.utils.graphic.blur.BlurContext;
+import com.wedo.utils.graphic.blur.BlurEngine;
+import com.wedo.utils.graphic.blur.BoxBlur;
 import com.wedo.utils.graphic.blur.FastBlur;
 import com.wedo.utils.graphic.blur.RSBlur;
+import com.wedo.utils.graphic.blur.ScaledBlur;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 
 
 /**
@@ -44,6 +46,18 @@ import java.io.InputStream;
  */
 public final class ImageUtil {
     private static final String TAG = ImageUtil.class.getSimpleName();
+    /**
+     * RGB_565 转换时每个行段的像素数
+     */
+    private static final int RGB_565_BAND_PIXELS = 64 * 1024;
+    /**
+     * {@link #resample} 按面积平均缩放（见 {@link PixelScaler#scaleArea}）
+     */
+    static final int FILTER_AREA = -1;
+    /**
+     * 直角旋转时每次读取的源像素数
+     */
+    private static final int ROTATE_BAND_PIXELS = 1024 * 1024;
 
     private ImageUtil() {
         throw new UnsupportedOperationException("cannot be instantiated");
@@ -211,7 +225,7 @@ public final class ImageUtil {
      * @return bitmap
      */
     public static Bitmap getBitmap(File file) {
-        return file == null ? null : BitmapFactory.decodeFile(file.getAbsolutePath());
+        return file == null ? null : getBitmap(file.getAbsolutePath());
     }
 
     /**
@@ -223,13 +237,7 @@ public final class ImageUtil {
      * @return bitmap
      */
     public static Bitmap getBitmap(File file, int maxWidth, int maxHeight) {
-        if (file == null) return null;
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
-        options.inSampleSize = calculateInSampleSize(options, maxWidth, maxHeight);
-        options.inJustDecodeBounds = false;
-        return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        return file == null ? null : getBitmap(file.getAbsolutePath(), maxWidth, maxHeight);
     }
 
     /**
@@ -238,25 +246,102 @@ public final class ImageUtil {
      * @param filePath  文件路径
      * @param maxWidth  最大宽度
      * @param maxHeight 最大高度
-     * @return bitmap
+     * @return bitmap，归调用方所有（可修改），不再使用时可放回 {@link BitmapPool}
+     * @see #getCachedBitmap(String, int, int, boolean)
      */
     public static Bitmap getBitmap(@Nullable String filePath, int maxWidth, int maxHeight) {
         BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        BitmapFactory.decodeFile(filePath, options);
+        decodeBounds(filePath, options);
         options.inSampleSize = calculateInSampleSize(options, maxWidth, maxHeight);
-        options.inJustDecodeBounds = false;
-        return BitmapFactory.decodeFile(filePath, options);
+        return BitmapPool.getInstance().decodeFile(filePath, options);
     }
 
     /**
      * 获取 bitmap
      *
      * @param filePath 文件路径
-     * @return bitmap
+     * @return bitmap，归调用方所有（可修改），不再使用时可放回 {@link BitmapPool}
+     * @see #getCachedBitmap(String, int, int, boolean)
      */
     public static Bitmap getBitmap(@Nullable String filePath) {
-        return BitmapFactory.decodeFile(filePath);
+        return BitmapPool.getInstance().decodeFile(filePath, 1);
+    }
+
+    /**
+     * 获取 bitmap，不透明的图片转为 RGB_565（有序抖动），内存减半
+     *
+     * @param filePath     文件路径
+     * @param maxWidth     最大宽度
+     * @param maxHeight    最大高度
+     * @param preferRgb565 是否在图片不透明时转为 RGB_565，为 false 时与 {@link #getBitmap(String, int, int)} 相同
+     * @return bitmap，有透明像素时仍为 ARGB_8888；归调用方所有（可修改），不再使用时可放回 {@link BitmapPool}
+     * @see #getCachedBitmap(String, int, int, boolean)
+     */
+    public static Bitmap getBitmap(@Nullable String filePath, int maxWidth, int maxHeight, boolean preferRgb565) {
+        Bitmap decoded = getBitmap(filePath, maxWidth, maxHeight);
+        if (!preferRgb565) return decoded;
+        // 解码器直接输出 RGB_565 时不抖动，先解码为 ARGB_8888 再转换
+        Bitmap bitmap = toRgb565(decoded, Rgb565Dither.DITHER_ORDERED);
+        if (bitmap != decoded) {
+            BitmapPool.getInstance().put(decoded);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 通过 {@link BitmapMemoryCache} 获取 bitmap，同一文件、同样的请求只解码一次
+     * <p>
+     * 返回的图片由缓存和所有调用方共享，是不可修改的：请勿 recycle 或放回 {@link BitmapPool}，
+     * 需要修改时先 copy
+     *
+     * @param filePath     文件路径
+     * @param maxWidth     最大宽度，不限制时为 0
+     * @param maxHeight    最大高度，不限制时为 0
+     * @param preferRgb565 是否在图片不透明时转为 RGB_565（有序抖动）
+     * @return 共享的不可修改的 bitmap，解码失败时返回 null
+     */
+    public static Bitmap getCachedBitmap(@Nullable String filePath, int maxWidth, int maxHeight,
+                                         boolean preferRgb565) {
+        String key = BitmapMemoryCache.getKey(filePath, maxWidth, maxHeight,
+                preferRgb565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888);
+        Bitmap bitmap = BitmapMemoryCache.getInstance().get(key);
+        if (bitmap != null) return bitmap;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        decodeBounds(filePath, options);
+        options.inSampleSize = maxWidth > 0 && maxHeight > 0 ? calculateInSampleSize(options, maxWidth, maxHeight) : 1;
+        if (preferRgb565) {
+            Bitmap decoded = BitmapPool.getInstance().decodeFile(filePath, options);
+            Bitmap converted = toRgb565(decoded, Rgb565Dither.DITHER_ORDERED);
+            bitmap = converted == null ? null : converted.copy(converted.getConfig(), false);
+            if (converted != decoded) {
+                BitmapPool.getInstance().put(converted);
+            }
+            BitmapPool.getInstance().put(decoded);
+        } else {
+            // 不经过 BitmapPool，解码结果不可修改
+            bitmap = BitmapFactory.decodeFile(filePath, options);
+        }
+        BitmapMemoryCache.getInstance().put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * 读取图片宽高到 options.outWidth、outHeight：优先用 {@link ImageProbe} 只读取文件头，
+     * 不支持的格式再通过 BitmapFactory 以 inJustDecodeBounds 解码
+     *
+     * @param filePath 文件路径
+     * @param options  解码选项，返回时 inJustDecodeBounds 为 false
+     */
+    static void decodeBounds(String filePath, BitmapFactory.Options options) {
+        ImageProbe.Info info = filePath == null ? null : new ImageProbe().probe(new File(filePath));
+        if (info != null) {
+            options.outWidth = info.width;
+            options.outHeight = info.height;
+        } else {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(filePath, options);
+        }
+        options.inJustDecodeBounds = false;
     }
 
     /**
@@ -280,8 +365,10 @@ public final class ImageUtil {
     private static int calculateInSampleSize(final BitmapFactory.Options options,
                                              final int maxWidth,
                                              final int maxHeight) {
-        int height = options.outHeight;
-        int width = options.outWidth;
+        return calculateInSampleSize(options.outWidth, options.outHeight, maxWidth, maxHeight);
+    }
+
+    private static int calculateInSampleSize(int width, int height, final int maxWidth, final int maxHeight) {
         int inSampleSize = 1;
         while ((width >>= 1) >= maxWidth && (height >>= 1) >= maxHeight) {
             inSampleSize <<= 1;
@@ -308,6 +395,109 @@ public final class ImageUtil {
         }
     }
 
+    /**
+     * bitmap 转 PixelBuffer（复制像素）
+     *
+     * @param src 源图片
+     * @return 紧凑存放的像素缓冲区
+     */
+    public static PixelBuffer toPixelBuffer(Bitmap src) {
+        if (src == null) return null;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        PixelBuffer buffer = new PixelBuffer(w, h);
+        src.getPixels(buffer.getPixels(), 0, w, 0, 0, w, h);
+        return buffer;
+    }
+
+    /**
+     * PixelBuffer 转 bitmap（复制像素）
+     *
+     * @param buffer 像素缓冲区
+     * @param config 图片格式
+     * @return 可修改的图片
+     */
+    public static Bitmap toBitmap(PixelBuffer buffer, Bitmap.Config config) {
+        if (buffer == null) return null;
+        Bitmap bitmap = Bitmap.createBitmap(buffer.getWidth(), buffer.getHeight(), config);
+        setPixels(bitmap, buffer);
+        return bitmap;
+    }
+
+    /**
+     * 把 PixelBuffer 的像素写入 bitmap 的左上角
+     *
+     * @param dst    目标图片，必须是可修改的，且不小于 buffer
+     * @param buffer 像素缓冲区
+     */
+    public static void setPixels(Bitmap dst, PixelBuffer buffer) {
+        dst.setPixels(buffer.getPixels(), buffer.getOffset(), buffer.getStride(),
+                0, 0, buffer.getWidth(), buffer.getHeight());
+    }
+
+    /**
+     * 能否通过 getPixels 读取像素、用同样的格式创建图片（即 {@link BitmapPool} 支持的格式；HARDWARE 等格式不能）
+     */
+    static boolean hasReadablePixels(Bitmap src) {
+        return BitmapPool.getBytesPerPixel(src.getConfig()) != 0;
+    }
+
+    /**
+     * 图片是否不透明（没有 alpha 通道，或所有像素的 alpha 都为 255）
+     *
+     * @param src 源图片
+     * @return 是否不透明；有 alpha 标志但不能读取像素（如 HARDWARE）时返回 false
+     */
+    public static boolean isOpaque(Bitmap src) {
+        if (src == null) return false;
+        if (!src.hasAlpha() || src.getConfig() == Bitmap.Config.RGB_565) return true;
+        if (src.getConfig() == Bitmap.Config.ALPHA_8 || !hasReadablePixels(src)) return false;
+        // hasAlpha 只是标志（如 PNG 解码结果），逐段检查像素，遇到透明像素立即返回
+        int w = src.getWidth();
+        int h = src.getHeight();
+        int rows = Math.max(1, Math.min(h, RGB_565_BAND_PIXELS / Math.max(1, w)));
+        PixelBuffer band = new PixelBuffer(w, rows);
+        for (int y = 0; y < h; y += rows) {
+            PixelBuffer part = band.region(0, 0, w, Math.min(rows, h - y));
+            src.getPixels(part.getPixels(), part.getOffset(), part.getStride(), 0, y, w, part.getHeight());
+            if (!Rgb565Dither.isOpaque(part)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 不透明的图片转为 RGB_565，内存减半
+     * <p>
+     * 按行段读取、抖动、写入（复用 {@link BitmapPool} 中的 RGB_565 图片），不复制整张图片的像素。
+     * 节省的内存可通过 {@link BitmapMemoryCache#getSavedSize()}、{@link BitmapPool#getSavedSize()} 查看
+     *
+     * @param src    源图片
+     * @param dither 抖动方式，见 {@link Rgb565Dither}
+     * @return RGB_565 图片；src 已是 RGB_565、有透明像素或不能读取像素（如 HARDWARE）时返回 src 本身
+     */
+    public static Bitmap toRgb565(Bitmap src, int dither) {
+        if (src == null || src.getConfig() == Bitmap.Config.RGB_565 || !hasReadablePixels(src) || !isOpaque(src)) {
+            return src;
+        }
+        int w = src.getWidth();
+        int h = src.getHeight();
+        Bitmap ret = BitmapPool.getInstance().getDirty(w, h, Bitmap.Config.RGB_565);
+        if (ret == null) {
+            ret = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
+        }
+        Rgb565Dither ditherer = new Rgb565Dither(w, dither);
+        int rows = Math.max(1, Math.min(h, RGB_565_BAND_PIXELS / Math.max(1, w)));
+        PixelBuffer band = new PixelBuffer(w, rows);
+        for (int y = 0; y < h; y += rows) {
+            PixelBuffer part = band.region(0, 0, w, Math.min(rows, h - y));
+            src.getPixels(part.getPixels(), part.getOffset(), part.getStride(), 0, y, w, part.getHeight());
+            // 抖动后的颜色写入 RGB_565 时平台截断低位，结果精确
+            ditherer.process(part);
+            ret.setPixels(part.getPixels(), part.getOffset(), part.getStride(), 0, y, w, part.getHeight());
+        }
+        return ret;
+    }
+
     /***********************************************************************************************
      ****  图片操作
      **********************************************************************************************/
@@ -362,11 +552,12 @@ public final class ImageUtil {
      * @param degrees 旋转角度
      * @param px      旋转点横坐标
      * @param py      旋转点纵坐标
-     * @return 旋转后的图片
+     * @return 旋转后的图片；角度为 90 的整数倍时结果与旋转点无关，见 {@link #transform(Bitmap, int)}
      */
     public static Bitmap rotate(Bitmap src, int degrees, float px, float py) {
         if (src == null) return null;
         if (degrees == 0) return src;
+        if (degrees % 90 == 0) return transform(src, PixelRotator.getOrientation(degrees));
         Matrix matrix = new Matrix();
         matrix.setRotate(degrees, px, py);
         Bitmap ret = Bitmap.createBitmap(src, 0, 0, src.getWidth(), src.getHeight(), matrix, true);
@@ -374,34 +565,66 @@ public final class ImageUtil {
     }
 
     /**
-     * 获取图片旋转角度
+     * 直角旋转或翻转图片（不经过 Matrix，不插值，像素精确）
+     * <p>
+     * 按行段读取源图，用 {@link PixelRotator} 分块变换后写入目标图（复用 {@link BitmapPool}），
+     * 不复制整张图片的像素；源图超过 1024 x 1024 时在 {@link ParallelBands#getDefaultExecutor()} 上并行。
+     * 不能读取像素的格式（如 HARDWARE）仍通过 Matrix 变换（不插值）
+     *
+     * @param src         源图片
+     * @param orientation EXIF 方向，如 {@link ExifOrientation#ORIENTATION_ROTATE_90}
+     * @return 变换后的图片，格式与源图相同；不需要变换时返回 src 本身
+     */
+    public static Bitmap transform(Bitmap src, int orientation) {
+        if (src == null) return null;
+        if (orientation < ExifOrientation.ORIENTATION_FLIP_HORIZONTAL
+                || orientation > ExifOrientation.ORIENTATION_ROTATE_270) return src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        if (!hasReadablePixels(src)) {
+            // 先水平翻转再顺时针旋转，与 EXIF 方向的定义一致
+            Matrix matrix = new Matrix();
+            if (ExifOrientation.isFlipped(orientation)) {
+                matrix.postScale(-1, 1);
+            }
+            matrix.postRotate(ExifOrientation.getDegrees(orientation));
+            return Bitmap.createBitmap(src, 0, 0, w, h, matrix, false);
+        }
+        boolean swap = PixelRotator.swapsAxes(orientation);
+        boolean reverse = PixelRotator.reversesRows(orientation);
+        Bitmap.Config config = src.getConfig();
+        Bitmap ret = BitmapPool.getInstance().getDirty(swap ? h : w, swap ? w : h, config);
+        if (ret == null) {
+            ret = Bitmap.createBitmap(swap ? h : w, swap ? w : h, config);
+        }
+        ret.setHasAlpha(src.hasAlpha());
+        Executor executor = (long) w * h > 1024 * 1024 ? ParallelBands.getDefaultExecutor() : null;
+        int rows = Math.max(1, Math.min(h, ROTATE_BAND_PIXELS / Math.max(1, w)));
+        PixelBuffer band = new PixelBuffer(w, rows);
+        PixelBuffer rotated = swap ? new PixelBuffer(rows, w) : new PixelBuffer(w, rows);
+        for (int y = 0; y < h; y += rows) {
+            int n = Math.min(rows, h - y);
+            PixelBuffer part = band.region(0, 0, w, n);
+            src.getPixels(part.getPixels(), part.getOffset(), part.getStride(), 0, y, w, n);
+            PixelBuffer out = swap ? rotated.region(0, 0, n, w) : rotated.region(0, 0, w, n);
+            PixelRotator.transform(part, out, orientation, executor);
+            // 源图的一个行段对应目标图的一个行段（宽高互换时为列段）
+            int target = reverse ? h - y - n : y;
+            ret.setPixels(out.getPixels(), out.getOffset(), out.getStride(),
+                    swap ? target : 0, swap ? 0 : target, out.getWidth(), out.getHeight());
+        }
+        return ret;
+    }
+
+    /**
+     * 获取图片旋转角度（只读取文件开头的 EXIF 方向，见 {@link ExifOrientation}）
      *
      * @param filePath 文件路径
      * @return 旋转角度
      */
     public static int getRotateDegree(@Nullable String filePath) {
-        int degree = 0;
-        try {
-            ExifInterface exifInterface = new ExifInterface(filePath);
-            int orientation = exifInterface.getAttributeInt(
-                    ExifInterface.TAG_ORIENTATION,
-                    ExifInterface.ORIENTATION_NORMAL);
-            switch (orientation) {
-                default:
-                case ExifInterface.ORIENTATION_ROTATE_90:
-                    degree = 90;
-                    break;
-                case ExifInterface.ORIENTATION_ROTATE_180:
-                    degree = 180;
-                    break;
-                case ExifInterface.ORIENTATION_ROTATE_270:
-                    degree = 270;
-                    break;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return degree;
+        if (filePath == null) return 0;
+        return ExifOrientation.getDegrees(new ExifOrientation().read(new File(filePath)));
     }
 
     /**
@@ -432,6 +655,103 @@ public final class ImageUtil {
         return Bitmap.createScaledBitmap(src, dstw, dsth, true);
     }
 
+    /**
+     * 按面积平均缩放图片（纯像素运算，不经过编解码，缩小时质量优于 {@link #scale(Bitmap, int, int)}）
+     * <p>
+     * 有 alpha 通道时按预乘 alpha 计算，透明区域的边缘没有暗边；结果保持源图的格式（RGB_565 重新抖动量化）和密度；
+     * 源图超过 1024 x 1024 时在 {@link ParallelBands#getDefaultExecutor()} 上并行；
+     * ARGB_8888、RGB_565 以外的格式（如 ALPHA_8、HARDWARE）使用 {@link Bitmap#createScaledBitmap}
+     *
+     * @param src  源图片
+     * @param dstw 缩放后的宽
+     * @param dsth 缩放后的高
+     * @return 被缩放后的图片
+     */
+    public static Bitmap scaleArea(Bitmap src, int dstw, int dsth) {
+        if (src == null) return null;
+        boolean parallel = (long) src.getWidth() * src.getHeight() > 1024 * 1024;
+        return resample(src, dstw, dsth, FILTER_AREA, parallel ? ParallelBands.getDefaultExecutor() : null);
+    }
+
+    /**
+     * 能否按像素重采样：与 createScaledBitmap 一样保持源图格式，只支持 ARGB_8888 和 RGB_565
+     */
+    private static boolean canResample(Bitmap src) {
+        return src.getConfig() == Bitmap.Config.ARGB_8888 || src.getConfig() == Bitmap.Config.RGB_565;
+    }
+
+    /**
+     * 缩放结果转为与源图格式、alpha 标志、密度相同的图片
+     */
+    private static Bitmap toScaledBitmap(PixelBuffer out, Bitmap src) {
+        Bitmap.Config config = src.getConfig();
+        if (config == Bitmap.Config.RGB_565) {
+            // 平均后的颜色重新抖动量化，避免直接截断产生色带
+            Rgb565Dither.dither(out, Rgb565Dither.DITHER_ORDERED);
+        }
+        Bitmap ret = BitmapPool.getInstance().getDirty(out.getWidth(), out.getHeight(), config);
+        if (ret == null) {
+            ret = Bitmap.createBitmap(out.getWidth(), out.getHeight(), config);
+        }
+        setPixels(ret, out);
+        ret.setHasAlpha(src.hasAlpha());
+        ret.setDensity(src.getDensity());
+        return ret;
+    }
+
+    /**
+     * 按指定滤波器重采样缩放图片（纯像素运算，可分离滤波，缩小时滤波器随缩小倍数展宽，没有锯齿）
+     * <p>
+     * 有 alpha 通道时按预乘 alpha 计算，透明区域的边缘没有暗边；结果保持源图的格式（RGB_565 重新抖动量化）和密度；
+     * 源图或目标图超过 1024 x 1024 时在 {@link ParallelBands#getDefaultExecutor()} 上并行；
+     * ARGB_8888、RGB_565 以外的格式（如 ALPHA_8、HARDWARE）使用 {@link Bitmap#createScaledBitmap}（双线性）
+     *
+     * @param src    源图片
+     * @param dstw   缩放后的宽
+     * @param dsth   缩放后的高
+     * @param filter 滤波器，见 {@link PixelResampler#FILTER_BILINEAR}、{@link PixelResampler#FILTER_BICUBIC}、
+     *               {@link PixelResampler#FILTER_LANCZOS}
+     * @return 被缩放后的图片
+     */
+    public static Bitmap scale(Bitmap src, int dstw, int dsth, int filter) {
+        if (src == null) return null;
+        if (filter < PixelResampler.FILTER_BILINEAR || filter > PixelResampler.FILTER_LANCZOS) {
+            throw new IllegalArgumentException("unknown filter: " + filter);
+        }
+        boolean parallel = Math.max((long) src.getWidth() * src.getHeight(), (long) dstw * dsth) > 1024 * 1024;
+        return resample(src, dstw, dsth, filter, parallel ? ParallelBands.getDefaultExecutor() : null);
+    }
+
+    /**
+     * 按预乘 alpha 缩放（scaleArea、scale、缩略图共用），结果保持源图的格式、alpha 标志和密度
+     *
+     * @param src      源图片
+     * @param dstw     缩放后的宽
+     * @param dsth     缩放后的高
+     * @param filter   {@link #FILTER_AREA} 或 PixelResampler 的滤波器
+     * @param executor 并行的线程池，为 null 时在当前线程中处理
+     * @return 被缩放后的图片（可修改，优先复用 {@link BitmapPool} 中的图片）
+     */
+    static Bitmap resample(Bitmap src, int dstw, int dsth, int filter, Executor executor) {
+        if (!canResample(src)) return Bitmap.createScaledBitmap(src, dstw, dsth, true);
+        PixelBuffer in = toPixelBuffer(src);
+        PixelBuffer out = new PixelBuffer(dstw, dsth);
+        boolean alpha = src.hasAlpha();
+        if (alpha) {
+            PixelFilters.premultiply(in);
+        }
+        if (filter == FILTER_AREA) {
+            PixelScaler.scaleArea(in, out, executor);
+        } else {
+            PixelResampler.scale(in, out, filter, executor);
+        }
+        if (alpha) {
+            // 双三次和 Lanczos 的过冲可能使颜色大于 alpha，还原时截断到 255
+            PixelFilters.unpremultiply(out);
+        }
+        return toScaledBitmap(out, src);
+    }
+
     /**
      * 获取图片的缩放比例，保证原图宽高比不变（缩放后的图片宽高完全处于指定的宽高矩阵内，即图片的最长边可显示出来）
      *
@@ -478,18 +798,14 @@ public final class ImageUtil {
      */
     public static Bitmap toGray(Bitmap src) {
         if (src == null) return null;
-        int width, height;
-        height = src.getHeight();
-        width = src.getWidth();
-        Bitmap bmpGrayscale = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
-        Canvas c = new Canvas(bmpGrayscale);
-        Paint paint = new Paint();
-        ColorMatrix cm = new ColorMatrix();
-        cm.setSaturation(0);
-        ColorMatrixColorFilter f = new ColorMatrixColorFilter(cm);
-        paint.setColorFilter(f);
-        c.drawBitmap(src, 0, 0, paint);
-        return bmpGrayscale;
+        PixelBuffer buffer = toPixelBuffer(src);
+        PixelFilters.toGray(buffer, buffer);
+        // 不透明时使用 RGB_565 节省内存，有序抖动避免灰阶出现色带；有透明像素时保留 alpha
+        if (!Rgb565Dither.isOpaque(buffer)) {
+            return toBitmap(buffer, Bitmap.Config.ARGB_8888);
+        }
+        Rgb565Dither.dither(buffer, Rgb565Dither.DITHER_ORDERED);
+        return toBitmap(buffer, Bitmap.Config.RGB_565);
     }
 
     /**
@@ -593,6 +909,7 @@ public final class ImageUtil {
      * @param x        起始坐标 x
      * @param y        起始坐标 y
      * @return 带有文字水印的图片
+     * @see WatermarkTemplate 同一水印批量添加到多张图片
      */
     public static Bitmap addTextWatermark(Bitmap src, String content, float textSize, @ColorInt int color,
                                           float x, float y) {
@@ -617,6 +934,7 @@ public final class ImageUtil {
      * @param y         起始坐标 y
      * @param alpha     透明度
      * @return 带有图片水印的图片
+     * @see WatermarkTemplate 同一水印批量添加到多张图片
      */
     public static Bitmap addImageWatermark(Bitmap src, Bitmap watermark,
                                            int x, int y, int alpha) {
@@ -643,6 +961,92 @@ public final class ImageUtil {
         return FastBlur.blur(src, radius, false);
     }
 
+    /**
+     * 高斯模糊
+     *
+     * @param src      源图片
+     * @param radius   模糊程度
+     * @param parallel 是否多线程并行模糊（结果与串行一致，适合大图）
+     * @return 模糊后的图片
+     */
+    public static Bitmap stackBlurByFast(Bitmap src, int radius, boolean parallel) {
+        if (src == null) return null;
+        return FastBlur.blur(src, radius, false, parallel ? ParallelBands.getDefaultExecutor() : null);
+    }
+
+    /**
+     * 高斯模糊
+     *
+     * @param src                源图片
+     * @param radius             模糊程度
+     * @param parallel           是否多线程并行模糊
+     * @param premultipliedAlpha 是否按预乘 alpha 模糊（半透明图片使用，避免透明区域边缘出现暗边）
+     * @return 模糊后的图片
+     */
+    public static Bitmap stackBlurByFast(Bitmap src, int radius, boolean parallel, boolean premultipliedAlpha) {
+        if (src == null) return null;
+        return FastBlur.blur(src, radius, false, new BlurContext(),
+                parallel ? ParallelBands.getDefaultExecutor() : null, premultipliedAlpha);
+    }
+
+    /**
+     * 高斯模糊（快速模式：根据模糊程度自动缩小图片后模糊，再放大回原尺寸）
+     *
+     * @param src         源图片
+     * @param radius      模糊程度
+     * @param errorBudget 允许的误差（与原尺寸模糊结果相比每个颜色通道的平均误差，0-255），
+     *                    默认可用 {@link ScaledBlur#DEFAULT_ERROR_BUDGET}，小于等于 0 时等同于原尺寸模糊
+     * @return 模糊后的图片
+     */
+    public static Bitmap stackBlurByFast(Bitmap src, int radius, float errorBudget) {
+        if (src == null) return null;
+        return ScaledBlur.blur(src, radius, false, errorBudget);
+    }
+
+    /**
+     * 模糊图片，根据半径和图片大小自动选择后端（见 {@link BlurEngine}）
+     * <p>
+     * 使用进程内共享的 BlurEngine，RenderScript 资源与缓冲区在多次调用间复用
+     *
+     * @param src    源图片
+     * @param radius 模糊半径
+     * @return 模糊后的图片
+     */
+    public static Bitmap blur(Bitmap src, int radius) {
+        if (src == null) return null;
+        Bitmap bitmap = src.copy(src.getConfig(), true);
+        BlurEngineHolder.INSTANCE.blur(bitmap, radius);
+        return bitmap;
+    }
+
+    private static class BlurEngineHolder {
+        private static final BlurEngine INSTANCE = new BlurEngine(SUtils.getApp(), ParallelBands.getDefaultExecutor());
+    }
+
+    /**
+     * 高斯模糊
+     *
+     * @param src       源图片
+     * @param radius    模糊程度
+     * @param algorithm 模糊算法
+     * @return 模糊后的图片
+     */
+    public static Bitmap blur(Bitmap src, int radius, BlurAlgorithm algorithm) {
+        if (src == null) return null;
+        switch (algorithm) {
+            case BOX:
+                return BoxBlur.blur(src, radius, false);
+            case RENDER_SCRIPT:
+                if (radius <= 25) {
+                    return RSBlur.blur(SUtils.getApp(), src.copy(src.getConfig(), true), radius);
+                }
+                return BoxBlur.blur(src, radius, false);
+            case STACK:
+            default:
+                return FastBlur.blur(src, radius, false);
+        }
+    }
+
     /**
      * 高斯模糊
      *
@@ -661,7 +1065,7 @@ public final class ImageUtil {
      **********************************************************************************************/
 
     /**
-     * 按缩放压缩
+     * 按缩放压缩（双三次重采样，大比例缩小时没有 Matrix 缩放的锯齿，保持源图的格式和密度）
      *
      * @param src       源图片
      * @param newWidth  压缩后的宽度
@@ -669,11 +1073,11 @@ public final class ImageUtil {
      * @return 缩放压缩后的图片
      */
     public static Bitmap compressByScale(Bitmap src, int newWidth, int newHeight) {
-        return scale(src, newWidth, newHeight);
+        return scale(src, newWidth, newHeight, PixelResampler.FILTER_BICUBIC);
     }
 
     /**
-     * 按缩放压缩
+     * 按缩放压缩（双三次重采样）
      *
      * @param src         源图片
      * @param scaleWidth  缩放宽度倍数
@@ -681,7 +1085,9 @@ public final class ImageUtil {
      * @return 缩放压缩后的图片
      */
     public static Bitmap compressByScale(Bitmap src, float scaleWidth, float scaleHeight) {
-        return scale(src, scaleWidth, scaleHeight);
+        if (src == null) return null;
+        return scale(src, Math.max(1, Math.round(src.getWidth() * scaleWidth)),
+                Math.max(1, Math.round(src.getHeight() * scaleHeight)), PixelResampler.FILTER_BICUBIC);
     }
 
     /**
@@ -710,49 +1116,26 @@ public final class ImageUtil {
      * @return 被压缩后的图片
      */
     public static Bitmap compressByQuality(Bitmap src, Bitmap.CompressFormat format, long maxByteSize) {
-        if (src == null) return null;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        src.compress(format, 100, baos);
-        byte[] bytes;
-        if (baos.size() <= maxByteSize) {
-            // 最好质量的不大于最大字节，则返回最佳质量
-            bytes = baos.toByteArray();
-        } else {
-            baos.reset();
-            src.compress(format, 0, baos);
-            if (baos.size() >= maxByteSize) {
-                // 最差质量不小于最大字节，则返回最差质量
-                bytes = baos.toByteArray();
-            } else {
-                // 二分法寻找最佳质量
-                int st = 0;
-                int end = 100;
-                int mid = 0;
-                while (st < end) {
-                    mid = (st + end) / 2;
-                    baos.reset();
-                    src.compress(format, mid, baos);
-                    int len = baos.size();
-                    if (len == maxByteSize) {
-                        break;
-                    } else if (len > maxByteSize) {
-                        end = mid - 1;
-                    } else {
-                        st = mid + 1;
-                    }
-                }
-                if (end == mid - 1) {
-                    baos.reset();
-                    src.compress(format, st, baos);
-                }
-                bytes = baos.toByteArray();
-            }
-        }
+        byte[] bytes = compressToBytes(src, format, maxByteSize);
+        if (bytes == null) return null;
         return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
     }
 
     /**
-     * 按采样大小压缩
+     * 按目标大小编码，直接返回编码结果，预测质量后通常只需编码 2-3 次（见 {@link QualityEncoder}）
+     *
+     * @param src         源图片
+     * @param format      图片的类型： JPEG、PNG、WEBP
+     * @param maxByteSize 允许的最大字节数
+     * @return 编码结果；最低质量仍超过 maxByteSize 时返回最低质量的结果
+     */
+    public static byte[] compressToBytes(Bitmap src, Bitmap.CompressFormat format, long maxByteSize) {
+        if (src == null) return null;
+        return QualityEncoder.getInstance().encode(src, format, maxByteSize);
+    }
+
+    /**
+     * 按采样大小压缩（面积平均，见 {@link #scaleArea(Bitmap, int, int)}，保持源图的格式和密度）
      *
      * @param src        源图片
      * @param sampleSize 采样率大小
@@ -760,12 +1143,9 @@ public final class ImageUtil {
      */
     public static Bitmap compressBySampleSize(Bitmap src, int sampleSize) {
         if (src == null) return null;
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inSampleSize = sampleSize;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        src.compress(Bitmap.CompressFormat.JPEG, 100, baos);
-        byte[] bytes = baos.toByteArray();
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        int factor = Math.max(1, sampleSize);
+        return scaleArea(src, PixelScaler.getBoxSize(src.getWidth(), factor),
+                PixelScaler.getBoxSize(src.getHeight(), factor));
     }
 
     /**
@@ -778,14 +1158,6 @@ public final class ImageUtil {
      */
     public static Bitmap compressBySampleSize(Bitmap src, int maxWidth, int maxHeight) {
         if (src == null) return null;
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        src.compress(Bitmap.CompressFormat.JPEG, 100, baos);
-        byte[] bytes = baos.toByteArray();
-        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
-        options.inSampleSize = calculateInSampleSize(options, maxWidth, maxHeight);
-        options.inJustDecodeBounds = false;
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        return compressBySampleSize(src, calculateInSampleSize(src.getWidth(), src.getHeight(), maxWidth, maxHeight));
     }
 }
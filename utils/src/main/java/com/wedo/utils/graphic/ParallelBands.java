@@ -0,0 +1,139 @@
+package com.wedo.utils.graphic;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * 像素运算的分段并行工具类
+ * <p>
+ * 将 [0, length) 区间按行（或列）切分为若干连续分段，分发到线程池中执行，
+ * 调用线程自己负责第一个分段，并等待所有分段完成后返回。
+ * 注：不要在传入的线程池自身的线程中调用，否则可能因线程池饱和而死锁
+ */
+public final class ParallelBands {
+
+    private ParallelBands() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 分段任务
+     */
+    public interface BandTask {
+        /**
+         * 处理 [start, end) 区间
+         *
+         * @param start 起始位置（包含）
+         * @param end   结束位置（不包含）
+         */
+        void run(int start, int end);
+    }
+
+    /**
+     * 获取默认的线程池（线程数等于 CPU 核数，守护线程）
+     *
+     * @return 线程池
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    private static class DefaultExecutorHolder {
+        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "graphic-band-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * 计算分段数
+     *
+     * @param executor    线程池，其最大线程数大于 CPU 核数时以线程数为准
+     * @param length      区间长度
+     * @param minBandSize 每个分段的最小长度
+     * @return 分段数
+     */
+    public static int getBandCount(Executor executor, int length, int minBandSize) {
+        if (executor == null) return 1;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if (executor instanceof ThreadPoolExecutor) {
+            parallelism = Math.max(parallelism, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        }
+        int bands = Math.min(parallelism, length / Math.max(1, minBandSize));
+        return Math.max(1, bands);
+    }
+
+    /**
+     * 分段执行任务
+     *
+     * @param executor    线程池，为 null 时在当前线程中串行执行
+     * @param length      区间长度
+     * @param minBandSize 每个分段的最小长度
+     * @param task        分段任务
+     */
+    public static void run(Executor executor, int length, int minBandSize, final BandTask task) {
+        int bands = getBandCount(executor, length, minBandSize);
+        if (bands <= 1) {
+            task.run(0, length);
+            return;
+        }
+        final CountDownLatch latch = new CountDownLatch(bands - 1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        for (int i = 1; i < bands; i++) {
+            final int start = (int) ((long) length * i / bands);
+            final int end = (int) ((long) length * (i + 1) / bands);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run(start, end);
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        try {
+            task.run(0, length / bands);
+        } catch (Throwable t) {
+            error.compareAndSet(null, t);
+        }
+        // 其他分段仍在写共享数组，必须等待其全部结束后才能返回
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Throwable t = error.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+}
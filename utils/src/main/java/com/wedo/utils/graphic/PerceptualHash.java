@@ -0,0 +1,186 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * 感知哈希（64 位），用于查找重新编码、缩放或轻微修改过的相似图片
+ * <p>
+ * dHash：面积平均缩小到 9x8 的亮度图，比较每行相邻像素，速度最快；
+ * pHash：面积平均缩小到 32x32 的亮度图，取 DCT 的 8x8 低频系数（跳过第 0 行和第 0 列）与中位数比较，
+ * 对亮度、对比度变化和压缩失真更稳定。
+ * 两个哈希的汉明距离（{@link #distance(long, long)}）越小越相似，通常不超过 10 可视为重复图片。
+ * 从文件计算时先按采样大小解码出不小于 {@link #DECODE_SIZE} 的小图（复用 {@link BitmapPool}），不读取全分辨率像素。
+ * 注：按文件中存储的像素计算，不考虑 EXIF 方向
+ */
+public final class PerceptualHash {
+    /**
+     * 从文件计算时解码的最小边长
+     */
+    public static final int DECODE_SIZE = 64;
+
+    private static final int DHASH_WIDTH = 9;
+    private static final int DHASH_HEIGHT = 8;
+    private static final int PHASH_SIZE = 32;
+    private static final int PHASH_FREQUENCIES = 8;
+
+    /**
+     * 亮度权重，与 {@link PixelFilters#toGray(PixelBuffer, PixelBuffer)} 相同
+     */
+    private static final int GRAY_R = 55;
+    private static final int GRAY_G = 183;
+    private static final int GRAY_B = 18;
+
+    /**
+     * DCT 基函数：COS[u][x] = cos((2x + 1) * u * PI / 64)，u 为 0-8
+     */
+    private static final double[][] COS = new double[PHASH_FREQUENCIES + 1][PHASH_SIZE];
+
+    static {
+        for (int u = 0; u <= PHASH_FREQUENCIES; u++) {
+            for (int x = 0; x < PHASH_SIZE; x++) {
+                COS[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * PHASH_SIZE));
+            }
+        }
+    }
+
+    private PerceptualHash() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 两个哈希的汉明距离
+     *
+     * @return 0-64
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    /**
+     * 计算 dHash
+     *
+     * @param src 源像素
+     * @return 哈希，第 y * 8 + x 位表示第 y 行第 x 个像素比右侧像素亮
+     */
+    public static long dHash(PixelBuffer src) {
+        int[] gray = toGray(src, DHASH_WIDTH, DHASH_HEIGHT);
+        long hash = 0;
+        for (int y = 0; y < DHASH_HEIGHT; y++) {
+            for (int x = 0; x < DHASH_WIDTH - 1; x++) {
+                int i = y * DHASH_WIDTH + x;
+                if (gray[i] > gray[i + 1]) {
+                    hash |= 1L << (y * (DHASH_WIDTH - 1) + x);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 计算 pHash
+     *
+     * @param src 源像素
+     * @return 哈希，第 v * 8 + u 位表示 DCT 系数 (u + 1, v + 1) 大于 64 个系数的中位数
+     */
+    public static long pHash(PixelBuffer src) {
+        int[] gray = toGray(src, PHASH_SIZE, PHASH_SIZE);
+        // 先对列做一维 DCT，只保留需要的频率，再对行做一维 DCT
+        double[] columns = new double[PHASH_FREQUENCIES * PHASH_SIZE];
+        for (int v = 0; v < PHASH_FREQUENCIES; v++) {
+            double[] cos = COS[v + 1];
+            for (int x = 0; x < PHASH_SIZE; x++) {
+                double sum = 0;
+                for (int y = 0; y < PHASH_SIZE; y++) {
+                    sum += gray[y * PHASH_SIZE + x] * cos[y];
+                }
+                columns[v * PHASH_SIZE + x] = sum;
+            }
+        }
+        double[] coefficients = new double[PHASH_FREQUENCIES * PHASH_FREQUENCIES];
+        for (int v = 0; v < PHASH_FREQUENCIES; v++) {
+            for (int u = 0; u < PHASH_FREQUENCIES; u++) {
+                double[] cos = COS[u + 1];
+                double sum = 0;
+                for (int x = 0; x < PHASH_SIZE; x++) {
+                    sum += columns[v * PHASH_SIZE + x] * cos[x];
+                }
+                coefficients[v * PHASH_FREQUENCIES + u] = sum;
+            }
+        }
+        double[] sorted = coefficients.clone();
+        Arrays.sort(sorted);
+        double median = (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 计算图片文件的 dHash
+     *
+     * @param filePath 文件路径
+     * @return 哈希
+     * @throws IOException 无法解码时抛出
+     */
+    public static long dHash(String filePath) throws IOException {
+        return dHash(decodeSmall(filePath));
+    }
+
+    /**
+     * 计算图片文件的 pHash
+     *
+     * @param filePath 文件路径
+     * @return 哈希
+     * @throws IOException 无法解码时抛出
+     */
+    public static long pHash(String filePath) throws IOException {
+        return pHash(decodeSmall(filePath));
+    }
+
+    /**
+     * 按采样大小解码出边长不小于 {@link #DECODE_SIZE}（原图更小时为原图）的小图
+     */
+    private static PixelBuffer decodeSmall(String filePath) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        ImageUtil.decodeBounds(filePath, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("unsupported image: " + filePath);
+        }
+        options.inSampleSize = TiledBitmapLoader.getSampleSize(options.outWidth, options.outHeight,
+                DECODE_SIZE, DECODE_SIZE);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap = BitmapPool.getInstance().decodeFile(filePath, options);
+        if (bitmap == null) {
+            throw new IOException("failed to decode " + filePath);
+        }
+        try {
+            return ImageUtil.toPixelBuffer(bitmap);
+        } finally {
+            BitmapPool.getInstance().put(bitmap);
+        }
+    }
+
+    /**
+     * 面积平均缩放到 width x height 后的亮度
+     */
+    private static int[] toGray(PixelBuffer src, int width, int height) {
+        PixelBuffer small = new PixelBuffer(width, height);
+        PixelScaler.scaleArea(src, small, null);
+        int[] pixels = small.getPixels();
+        int[] gray = new int[width * height];
+        for (int i = 0; i < gray.length; i++) {
+            int p = pixels[i];
+            gray[i] = ((p >> 16) & 0xff) * GRAY_R + ((p >> 8) & 0xff) * GRAY_G + (p & 0xff) * GRAY_B;
+        }
+        return gray;
+    }
+}
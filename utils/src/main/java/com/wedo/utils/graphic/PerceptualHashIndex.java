@@ -0,0 +1,318 @@
+package com.wedo.utils.graphic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * 64 位感知哈希的索引，按汉明距离查询相似图片（多索引哈希）
+ * <p>
+ * 哈希按 16 位分成 4 段，每段建一张倒排表。距离不超过 r 的两个哈希至少有一段的距离不超过 r / 4，
+ * 因此查询时只需在每张表中查找与对应段距离不超过 r / 4 的桶（r 不超过 15 时每张表最多 697 个桶），
+ * 再逐个验证候选；r 更大时直接线性扫描。
+ * 每张图片占用 8 字节哈希和 4 x 4 字节倒排表，另有 4 x 64K 个桶的偏移表（1MB）；持久化时只保存哈希。
+ * 新添加的哈希先线性扫描，积累到已索引数量的 1/8 后重建倒排表（计数排序，O(n)）。
+ * 图片 id 为添加顺序，从 0 开始。
+ * 注：实例不是线程安全的
+ */
+public final class PerceptualHashIndex {
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int BUCKETS = 1 << CHUNK_BITS;
+    /**
+     * 每段查找的最大距离，更大的查询距离使用线性扫描
+     */
+    private static final int MAX_CHUNK_RADIUS = 3;
+    /**
+     * 未索引的哈希少于该数量时不重建
+     */
+    private static final int MIN_REBUILD_PENDING = 1024;
+
+    /**
+     * NEIGHBORS[s]：所有 1 的个数不超过 s 的 16 位掩码，按 1 的个数排序
+     */
+    private static final int[][] NEIGHBORS = new int[MAX_CHUNK_RADIUS + 1][];
+
+    static {
+        for (int s = 0; s <= MAX_CHUNK_RADIUS; s++) {
+            int count = 0;
+            int[] masks = new int[BUCKETS];
+            for (int bits = 0; bits <= s; bits++) {
+                for (int mask = 0; mask < BUCKETS; mask++) {
+                    if (Integer.bitCount(mask) == bits) {
+                        masks[count++] = mask;
+                    }
+                }
+            }
+            NEIGHBORS[s] = Arrays.copyOf(masks, count);
+        }
+    }
+
+    private long[] hashes;
+    private int size;
+    /* 倒排表：第 t 段值为 b 的 id 为 entries[t][offsets[t][b] .. offsets[t][b + 1]) */
+    private final int[][] offsets = new int[CHUNKS][];
+    private final int[][] entries = new int[CHUNKS][];
+    /* 已建入倒排表的哈希数量 */
+    private int indexed;
+    /* 查询时标记已验证的 id，避免同一 id 在多张表中重复验证 */
+    private int[] marks;
+    private int mark;
+
+    public PerceptualHashIndex() {
+        this(16);
+    }
+
+    /**
+     * @param capacity 预计的图片数量
+     */
+    public PerceptualHashIndex(int capacity) {
+        hashes = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * 添加哈希
+     *
+     * @param hash 哈希
+     * @return id
+     */
+    public int add(long hash) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        hashes[size] = hash;
+        return size++;
+    }
+
+    /**
+     * 批量添加哈希，添加后立即重建倒排表
+     *
+     * @param hashes 哈希
+     * @return 第一个哈希的 id
+     */
+    public int addAll(long[] hashes) {
+        int first = size;
+        if (size + hashes.length > this.hashes.length) {
+            this.hashes = Arrays.copyOf(this.hashes, Math.max(size + hashes.length, size * 2));
+        }
+        System.arraycopy(hashes, 0, this.hashes, size, hashes.length);
+        size += hashes.length;
+        rebuild();
+        return first;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getHash(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("id: " + id + ", size: " + size);
+        }
+        return hashes[id];
+    }
+
+    /**
+     * 查询与 hash 的汉明距离不超过 maxDistance 的图片
+     *
+     * @param hash        哈希
+     * @param maxDistance 最大汉明距离
+     * @return id，按距离从小到大排列，距离相同时按 id 排列
+     */
+    public int[] query(long hash, int maxDistance) {
+        if (maxDistance < 0) return new int[0];
+        long[] found = new long[16];
+        int count = 0;
+        int chunkRadius = maxDistance / CHUNKS;
+        int scanFrom = 0;
+        if (chunkRadius <= MAX_CHUNK_RADIUS) {
+            prepareIndex();
+            nextMark();
+            int[] neighbors = NEIGHBORS[chunkRadius];
+            for (int t = 0; t < CHUNKS; t++) {
+                int key = (int) (hash >>> (t * CHUNK_BITS)) & (BUCKETS - 1);
+                int[] offset = offsets[t];
+                int[] entry = entries[t];
+                for (int mask : neighbors) {
+                    int bucket = key ^ mask;
+                    for (int j = offset[bucket], end = offset[bucket + 1]; j < end; j++) {
+                        int id = entry[j];
+                        if (marks[id] == mark) continue;
+                        marks[id] = mark;
+                        int distance = Long.bitCount(hashes[id] ^ hash);
+                        if (distance <= maxDistance) {
+                            if (count == found.length) {
+                                found = Arrays.copyOf(found, count * 2);
+                            }
+                            found[count++] = ((long) distance << 32) | id;
+                        }
+                    }
+                }
+            }
+            scanFrom = indexed;
+        }
+        // 线性扫描未索引的哈希（距离过大时扫描全部）
+        for (int id = scanFrom; id < size; id++) {
+            int distance = Long.bitCount(hashes[id] ^ hash);
+            if (distance <= maxDistance) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = ((long) distance << 32) | id;
+            }
+        }
+        Arrays.sort(found, 0, count);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) found[i];
+        }
+        return ids;
+    }
+
+    /**
+     * 查询最相似的图片
+     *
+     * @param hash        哈希
+     * @param maxDistance 最大汉明距离
+     * @return id，没有距离不超过 maxDistance 的图片时返回 -1
+     */
+    public int findNearest(long hash, int maxDistance) {
+        int[] ids = query(hash, maxDistance);
+        return ids.length == 0 ? -1 : ids[0];
+    }
+
+    /**
+     * 按相似关系分组（距离不超过 maxDistance 的两张图片属于同一组，关系可传递）
+     *
+     * @param maxDistance 最大汉明距离
+     * @return 包含两张及以上图片的组，组内 id 从小到大排列，各组按第一个 id 排列
+     */
+    public List<int[]> findGroups(int maxDistance) {
+        int[] parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        for (int id = 0; id < size; id++) {
+            for (int other : query(hashes[id], maxDistance)) {
+                int a = find(parent, id);
+                int b = find(parent, other);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+        int[] groupSizes = new int[size];
+        for (int id = 0; id < size; id++) {
+            groupSizes[find(parent, id)]++;
+        }
+        // 根节点是组内最小的 id，按 id 顺序遍历时先遇到根节点
+        Map<Integer, int[]> groups = new LinkedHashMap<>();
+        int[] filled = new int[size];
+        for (int id = 0; id < size; id++) {
+            int root = find(parent, id);
+            if (groupSizes[root] < 2) continue;
+            int[] group = groups.get(root);
+            if (group == null) {
+                group = new int[groupSizes[root]];
+                groups.put(root, group);
+            }
+            group[filled[root]++] = id;
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * 保存哈希（不保存倒排表）
+     *
+     * @param out 输出流（不会被关闭）
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            data.writeLong(hashes[i]);
+        }
+        data.flush();
+    }
+
+    /**
+     * 读取 {@link #writeTo(OutputStream)} 保存的索引
+     *
+     * @param in 输入流（不会被关闭）
+     * @return 索引
+     */
+    public static PerceptualHashIndex readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int size = data.readInt();
+        if (size < 0) {
+            throw new IOException("invalid size: " + size);
+        }
+        long[] hashes = new long[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = data.readLong();
+        }
+        PerceptualHashIndex index = new PerceptualHashIndex(size);
+        index.addAll(hashes);
+        return index;
+    }
+
+    private static int find(int[] parent, int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void nextMark() {
+        if (++mark == 0) {
+            // 溢出时清空标记
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+    }
+
+    /**
+     * 未索引的哈希过多时重建倒排表
+     */
+    private void prepareIndex() {
+        int pending = size - indexed;
+        if (offsets[0] == null || pending >= Math.max(MIN_REBUILD_PENDING, indexed / 8)) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        for (int t = 0; t < CHUNKS; t++) {
+            int shift = t * CHUNK_BITS;
+            int[] offset = offsets[t] != null ? offsets[t] : new int[BUCKETS + 1];
+            Arrays.fill(offset, 0);
+            for (int id = 0; id < size; id++) {
+                offset[((int) (hashes[id] >>> shift) & (BUCKETS - 1)) + 1]++;
+            }
+            for (int b = 0; b < BUCKETS; b++) {
+                offset[b + 1] += offset[b];
+            }
+            int[] entry = entries[t] != null && entries[t].length >= size ? entries[t] : new int[hashes.length];
+            int[] next = Arrays.copyOf(offset, BUCKETS);
+            for (int id = 0; id < size; id++) {
+                entry[next[(int) (hashes[id] >>> shift) & (BUCKETS - 1)]++] = id;
+            }
+            offsets[t] = offset;
+            entries[t] = entry;
+        }
+        if (marks == null || marks.length < size) {
+            marks = new int[hashes.length];
+            mark = 0;
+        }
+        indexed = size;
+    }
+}
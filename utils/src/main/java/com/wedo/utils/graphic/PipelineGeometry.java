@@ -0,0 +1,200 @@
+package com.wedo.utils.graphic;
+
+
+/**
+ * {@link BitmapPipeline} 的几何记录（与平台无关）
+ * <p>
+ * 保存源图坐标到当前坐标的 3x3 矩阵和当前图片的宽高。矩阵按 android.graphics.Matrix#getValues 的顺序存放
+ * （scaleX, skewX, transX, skewY, scaleY, transY, persp0, persp1, persp2），
+ * 每一步的结果与依次调用 ImageUtil 对应方法（Bitmap.createBitmap）时相同：变换后取外接矩形，宽高四舍五入。
+ * 注：实例不是线程安全的
+ */
+final class PipelineGeometry {
+    /**
+     * 与 Skia 相同，sin、cos 的绝对值不超过该值时取 0，90 度的整数倍旋转结果精确
+     */
+    private static final double NEARLY_ZERO = 1.0 / 4096;
+
+    private final float[] values = identity();
+    private int width;
+    private int height;
+    private boolean masked;
+
+    PipelineGeometry(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * 当前宽度（未限制最小值，可能为 0）
+     */
+    int getRawWidth() {
+        return width;
+    }
+
+    int getRawHeight() {
+        return height;
+    }
+
+    /**
+     * 目标宽度，至少为 1
+     */
+    int getWidth() {
+        return Math.max(1, width);
+    }
+
+    int getHeight() {
+        return Math.max(1, height);
+    }
+
+    boolean isMasked() {
+        return masked;
+    }
+
+    /**
+     * 标记已添加遮罩，之后不能再做几何变换
+     */
+    void mask() {
+        masked = true;
+    }
+
+    /**
+     * 源图坐标到当前坐标的矩阵
+     */
+    float[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * 裁剪：当前坐标平移 (-x, -y)，宽高为裁剪的宽高
+     *
+     * @return 本步的矩阵（当前坐标系中已有的路径需要同样变换）
+     */
+    float[] clip(int x, int y, int width, int height) {
+        checkNotMasked();
+        float[] step = identity();
+        step[2] = -x;
+        step[5] = -y;
+        concat(step);
+        this.width = width;
+        this.height = height;
+        return step;
+    }
+
+    /**
+     * 几何变换，结果为变换后的外接矩形（与 Bitmap.createBitmap(src, 0, 0, w, h, m, true) 相同）
+     *
+     * @param m 变换矩阵
+     * @return 本步的矩阵（含平移到外接矩形左上角）
+     */
+    float[] transform(float[] m) {
+        checkNotMasked();
+        float left = Float.POSITIVE_INFINITY;
+        float top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float bottom = Float.NEGATIVE_INFINITY;
+        float[] corners = {0, 0, width, 0, 0, height, width, height};
+        for (int i = 0; i < corners.length; i += 2) {
+            float[] p = map(m, corners[i], corners[i + 1]);
+            left = Math.min(left, p[0]);
+            top = Math.min(top, p[1]);
+            right = Math.max(right, p[0]);
+            bottom = Math.max(bottom, p[1]);
+        }
+        float[] translate = identity();
+        translate[2] = -left;
+        translate[5] = -top;
+        float[] step = multiply(translate, m);
+        concat(step);
+        width = Math.round(right - left);
+        height = Math.round(bottom - top);
+        return step;
+    }
+
+    /**
+     * 圆形遮罩前的裁剪区域：居中的正方形
+     *
+     * @return {x, y, size}
+     */
+    int[] getCenteredSquare() {
+        int size = Math.min(width, height);
+        return new int[]{(width - size) / 2, (height - size) / 2, size};
+    }
+
+    /**
+     * 把源图坐标 (x, y) 映射到当前坐标
+     */
+    float[] mapPoint(float x, float y) {
+        return map(values, x, y);
+    }
+
+    /**
+     * 绕原点顺时针旋转的矩阵
+     */
+    static float[] rotate(float degrees) {
+        double radians = Math.toRadians(degrees);
+        float sin = snap(Math.sin(radians));
+        float cos = snap(Math.cos(radians));
+        float[] m = identity();
+        m[0] = cos;
+        m[1] = -sin;
+        m[3] = sin;
+        m[4] = cos;
+        return m;
+    }
+
+    static float[] scale(float sx, float sy) {
+        float[] m = identity();
+        m[0] = sx;
+        m[4] = sy;
+        return m;
+    }
+
+    static float[] skew(float kx, float ky) {
+        float[] m = identity();
+        m[1] = kx;
+        m[3] = ky;
+        return m;
+    }
+
+    private void checkNotMasked() {
+        if (masked) {
+            throw new IllegalStateException("geometric operations must come before masks");
+        }
+    }
+
+    /**
+     * values = step * values
+     */
+    private void concat(float[] step) {
+        float[] result = multiply(step, values);
+        System.arraycopy(result, 0, values, 0, values.length);
+    }
+
+    private static float snap(double value) {
+        return Math.abs(value) <= NEARLY_ZERO ? 0 : (float) value;
+    }
+
+    private static float[] identity() {
+        return new float[]{1, 0, 0, 0, 1, 0, 0, 0, 1};
+    }
+
+    private static float[] multiply(float[] a, float[] b) {
+        float[] r = new float[9];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                double sum = 0;
+                for (int k = 0; k < 3; k++) {
+                    sum += (double) a[row * 3 + k] * b[k * 3 + col];
+                }
+                r[row * 3 + col] = (float) sum;
+            }
+        }
+        return r;
+    }
+
+    private static float[] map(float[] m, float x, float y) {
+        double w = m[6] * x + m[7] * y + m[8];
+        return new float[]{(float) ((m[0] * x + m[1] * y + m[2]) / w), (float) ((m[3] * x + m[4] * y + m[5]) / w)};
+    }
+}
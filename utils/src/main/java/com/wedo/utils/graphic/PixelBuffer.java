@@ -0,0 +1,193 @@
+package com.wedo.utils.graphic;
+
+import java.nio.IntBuffer;
+
+
+/**
+ * 与平台无关的 ARGB 像素缓冲区
+ * <p>
+ * 由 int 数组、起始偏移、行宽（stride）和宽高组成，可以表示整张图片，也可以表示另一块缓冲区中的一个矩形区域（共享数组）。
+ * 不依赖 android.graphics，模糊、去色、缩放、二维码绘制等像素运算都基于它实现，可直接在 JVM 上测试与调优；
+ * 与 Bitmap 之间的转换见 {@link ImageUtil#toPixelBuffer} 与 {@link ImageUtil#toBitmap}
+ */
+public final class PixelBuffer {
+    private final int[] pixels;
+    private final int offset;
+    private final int stride;
+    private final int width;
+    private final int height;
+
+    /**
+     * 创建一块新的紧凑缓冲区（offset 为 0，stride 等于宽）
+     *
+     * @param width  宽
+     * @param height 高
+     */
+    public PixelBuffer(int width, int height) {
+        this(new int[width * height], 0, width, width, height);
+    }
+
+    /**
+     * 包装已有的像素数组
+     *
+     * @param pixels 像素数组
+     * @param offset 左上角像素在数组中的位置
+     * @param stride 行宽，不小于 width
+     * @param width  宽
+     * @param height 高
+     */
+    public PixelBuffer(int[] pixels, int offset, int stride, int width, int height) {
+        if (width < 0 || height < 0 || stride < width || offset < 0
+                || (height > 0 && offset + (long) (height - 1) * stride + width > pixels.length)) {
+            throw new IllegalArgumentException("invalid buffer: offset=" + offset + " stride=" + stride
+                    + " size=" + width + "x" + height + " length=" + pixels.length);
+        }
+        this.pixels = pixels;
+        this.offset = offset;
+        this.stride = stride;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * 包装紧凑存放的像素数组
+     *
+     * @param pixels 像素数组，行宽为 width
+     * @param width  宽
+     * @param height 高
+     * @return 像素缓冲区
+     */
+    public static PixelBuffer wrap(int[] pixels, int width, int height) {
+        return new PixelBuffer(pixels, 0, width, width, height);
+    }
+
+    /**
+     * 包装 IntBuffer（从当前 position 开始，紧凑存放）
+     * <p>
+     * 有底层数组的 IntBuffer 直接共享数组，否则（如 direct buffer）复制一份
+     *
+     * @param buffer 像素数据
+     * @param width  宽
+     * @param height 高
+     * @return 像素缓冲区
+     */
+    public static PixelBuffer wrap(IntBuffer buffer, int width, int height) {
+        if (buffer.hasArray()) {
+            return new PixelBuffer(buffer.array(), buffer.arrayOffset() + buffer.position(), width, width, height);
+        }
+        int[] pixels = new int[width * height];
+        buffer.duplicate().get(pixels);
+        return wrap(pixels, width, height);
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 像素 (x, y) 在数组中的位置
+     */
+    public int indexOf(int x, int y) {
+        return offset + y * stride + x;
+    }
+
+    public int get(int x, int y) {
+        return pixels[indexOf(x, y)];
+    }
+
+    public void set(int x, int y, int color) {
+        pixels[indexOf(x, y)] = color;
+    }
+
+    /**
+     * 是否紧凑存放（offset 为 0 且 stride 等于宽），紧凑的缓冲区可以直接交给只接受 int[] 的运算
+     */
+    public boolean isCompact() {
+        return offset == 0 && stride == width;
+    }
+
+    /**
+     * 获取一个矩形区域的视图，与当前缓冲区共享数组
+     *
+     * @param x      区域左上角 x
+     * @param y      区域左上角 y
+     * @param width  区域宽
+     * @param height 区域高
+     * @return 区域视图
+     */
+    public PixelBuffer region(int x, int y, int width, int height) {
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.width || y + height > this.height) {
+            throw new IllegalArgumentException("region out of bounds: (" + x + ", " + y + ") "
+                    + width + "x" + height + " in " + this.width + "x" + this.height);
+        }
+        return new PixelBuffer(pixels, indexOf(x, y), stride, width, height);
+    }
+
+    /**
+     * 复制到另一块同样大小的缓冲区
+     *
+     * @param dst 目标缓冲区
+     */
+    public void copyTo(PixelBuffer dst) {
+        if (dst.width != width || dst.height != height) {
+            throw new IllegalArgumentException("size mismatch: " + width + "x" + height
+                    + " -> " + dst.width + "x" + dst.height);
+        }
+        copyTo(dst.pixels, dst.offset, dst.stride);
+    }
+
+    /**
+     * 复制到数组中
+     *
+     * @param dst       目标数组
+     * @param dstOffset 左上角像素写入的位置
+     * @param dstStride 目标行宽
+     */
+    public void copyTo(int[] dst, int dstOffset, int dstStride) {
+        if (pixels == dst && offset == dstOffset && stride == dstStride) return;
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(pixels, offset + y * stride, dst, dstOffset + y * dstStride, width);
+        }
+    }
+
+    /**
+     * 从数组中复制像素
+     *
+     * @param src       源数组
+     * @param srcOffset 左上角像素的位置
+     * @param srcStride 源行宽
+     */
+    public void copyFrom(int[] src, int srcOffset, int srcStride) {
+        if (pixels == src && offset == srcOffset && stride == srcStride) return;
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(src, srcOffset + y * srcStride, pixels, offset + y * stride, width);
+        }
+    }
+
+    /**
+     * 复制出一块新的紧凑缓冲区
+     *
+     * @return 新的缓冲区
+     */
+    public PixelBuffer copy() {
+        PixelBuffer copy = new PixelBuffer(width, height);
+        copyTo(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,107 @@
+package com.wedo.utils.graphic;
+
+
+/**
+ * 纯 Java 的像素颜色处理工具类，基于 {@link PixelBuffer}
+ */
+public final class PixelFilters {
+    /**
+     * 亮度权重（与 ColorMatrix.setSaturation(0) 一致：0.213、0.715、0.072），8 位定点数，和为 256
+     */
+    private static final int GRAY_R = 55;
+    private static final int GRAY_G = 183;
+    private static final int GRAY_B = 18;
+
+    /**
+     * UNPREMULTIPLY[a] = 255 / a，16 位定点数
+     */
+    private static final int[] UNPREMULTIPLY = new int[256];
+
+    static {
+        for (int a = 1; a < 256; a++) {
+            UNPREMULTIPLY[a] = ((255 << 16) + (a >> 1)) / a;
+        }
+    }
+
+    private PixelFilters() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 去色（保留 alpha）
+     *
+     * @param src 源像素
+     * @param dst 目标像素，尺寸与 src 相同，可以与 src 相同
+     */
+    public static void toGray(PixelBuffer src, PixelBuffer dst) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        if (dst.getWidth() != w || dst.getHeight() != h) {
+            throw new IllegalArgumentException("size mismatch: " + w + "x" + h
+                    + " -> " + dst.getWidth() + "x" + dst.getHeight());
+        }
+        int[] in = src.getPixels();
+        int[] out = dst.getPixels();
+        for (int y = 0; y < h; y++) {
+            int i = src.indexOf(0, y);
+            int o = dst.indexOf(0, y);
+            for (int x = 0; x < w; x++) {
+                int p = in[i + x];
+                int gray = (((p >> 16) & 0xff) * GRAY_R + ((p >> 8) & 0xff) * GRAY_G + (p & 0xff) * GRAY_B + 128) >> 8;
+                out[o + x] = (p & 0xff000000) | (gray << 16) | (gray << 8) | gray;
+            }
+        }
+    }
+
+    /**
+     * 预乘 alpha（原地修改）：缩放等滤波前调用，透明像素的颜色不再参与加权，边缘不会混入透明区域的颜色（通常为黑色）
+     *
+     * @param buffer 非预乘的像素
+     */
+    public static void premultiply(PixelBuffer buffer) {
+        int[] pixels = buffer.getPixels();
+        for (int y = 0; y < buffer.getHeight(); y++) {
+            for (int i = buffer.indexOf(0, y), end = i + buffer.getWidth(); i < end; i++) {
+                int p = pixels[i];
+                int a = p >>> 24;
+                if (a == 0xff) continue;
+                pixels[i] = (a << 24) | (premultiply((p >> 16) & 0xff, a) << 16)
+                        | (premultiply((p >> 8) & 0xff, a) << 8) | premultiply(p & 0xff, a);
+            }
+        }
+    }
+
+    /**
+     * 还原预乘 alpha（原地修改），{@link #premultiply(PixelBuffer)} 的逆运算，alpha 为 0 的像素颜色为 0
+     *
+     * @param buffer 预乘的像素
+     */
+    public static void unpremultiply(PixelBuffer buffer) {
+        int[] pixels = buffer.getPixels();
+        for (int y = 0; y < buffer.getHeight(); y++) {
+            for (int i = buffer.indexOf(0, y), end = i + buffer.getWidth(); i < end; i++) {
+                int p = pixels[i];
+                int a = p >>> 24;
+                if (a == 0xff) continue;
+                pixels[i] = (a << 24) | (unpremultiply((p >> 16) & 0xff, a) << 16)
+                        | (unpremultiply((p >> 8) & 0xff, a) << 8) | unpremultiply(p & 0xff, a);
+            }
+        }
+    }
+
+    /**
+     * c * a / 255（四舍五入）
+     */
+    private static int premultiply(int c, int a) {
+        int x = c * a + 128;
+        return (x + (x >> 8)) >> 8;
+    }
+
+    /**
+     * c * 255 / a（四舍五入，a 为 0 时返回 0）；滤波结果中的 c 可能大于 a，结果不超过 255
+     */
+    private static int unpremultiply(int c, int a) {
+        if (a == 0) return 0;
+        return Math.min(255, (c * UNPREMULTIPLY[a] + 0x8000) >>> 16);
+    }
+}
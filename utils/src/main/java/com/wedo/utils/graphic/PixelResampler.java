@@ -0,0 +1,297 @@
+package com.wedo.utils.graphic;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+
+/**
+ * 纯 Java 的可分离重采样，可选双线性、双三次（Catmull-Rom）和 Lanczos（a = 3）滤波
+ * <p>
+ * 先横向后纵向分离计算：缩小时滤波器按缩小倍数展宽（起低通作用，没有锯齿），放大时为插值。
+ * 每对（源长度、目标长度、滤波器）的权重表只计算一次并缓存（最多 {@link #MAX_CACHED_WEIGHTS} 个），
+ * 权重为 {@link #WEIGHT_BITS} 位定点数。可传入线程池按目标行分段并行，每个分段只对自己用到的源行做横向计算，
+ * 结果与串行完全相同。超出边界的采样点取边缘像素；与 {@link PixelScaler} 相同，四个通道分别计算，
+ * 半透明图片应先用 {@link PixelFilters#premultiply(PixelBuffer)} 预乘 alpha，完成后再还原，否则透明区域的颜色会混入边缘
+ */
+public final class PixelResampler {
+    /**
+     * 双线性（三角形滤波，半径 1），缩小时与面积平均接近
+     */
+    public static final int FILTER_BILINEAR = 0;
+    /**
+     * 双三次（Catmull-Rom，半径 2），比双线性锐利，轻微过冲
+     */
+    public static final int FILTER_BICUBIC = 1;
+    /**
+     * Lanczos（a = 3，半径 3），细节保留最好，边缘有轻微振铃
+     */
+    public static final int FILTER_LANCZOS = 2;
+
+    /**
+     * 缓存的权重表个数上限
+     */
+    public static final int MAX_CACHED_WEIGHTS = 16;
+
+    /**
+     * 并行时每个分段至少处理的源像素数
+     */
+    private static final int MIN_BAND_PIXELS = 256 * 256;
+
+    /* 权重精度（位），每个目标像素的权重之和为 1 << WEIGHT_BITS */
+    private static final int WEIGHT_BITS = 14;
+    /* 横向结果保留的小数位数，纵向累加不会超出 int 范围 */
+    private static final int INTERMEDIATE_BITS = 7;
+
+    private static final Map<Long, Weights> WEIGHTS_CACHE = new LinkedHashMap<>(MAX_CACHED_WEIGHTS, 0.75f, true);
+
+    private PixelResampler() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 重采样
+     *
+     * @param src    源像素，行宽为 sw
+     * @param sw     源宽
+     * @param sh     源高
+     * @param dst    目标像素，行宽为 dw
+     * @param dw     目标宽
+     * @param dh     目标高
+     * @param filter 滤波器
+     */
+    public static void scale(int[] src, int sw, int sh, int[] dst, int dw, int dh, int filter) {
+        scale(PixelBuffer.wrap(src, sw, sh), PixelBuffer.wrap(dst, dw, dh), filter, null);
+    }
+
+    /**
+     * 重采样，目标尺寸即 dst 的尺寸，按目标行分段并行
+     *
+     * @param src      源像素
+     * @param dst      目标像素
+     * @param filter   滤波器
+     * @param executor 线程池，为 null 时在当前线程中执行
+     */
+    public static void scale(final PixelBuffer src, final PixelBuffer dst, int filter, Executor executor) {
+        final Weights xWeights = getWeights(src.getWidth(), dst.getWidth(), filter);
+        final Weights yWeights = getWeights(src.getHeight(), dst.getHeight(), filter);
+        // 每个目标行的工作量：纵向 dw * taps，加上分摊的横向 sw * taps
+        long pixelsPerRow = (long) dst.getWidth() * yWeights.maxCount
+                + (long) src.getWidth() * xWeights.maxCount * src.getHeight() / Math.max(1, dst.getHeight());
+        int minBandRows = (int) Math.max(1, Math.min(dst.getHeight(), MIN_BAND_PIXELS / Math.max(1, pixelsPerRow)));
+        ParallelBands.run(executor, dst.getHeight(), minBandRows, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                scaleRows(src, dst, xWeights, yWeights, start, end);
+            }
+        });
+    }
+
+    /**
+     * 清除缓存的权重表
+     */
+    public static void clearCache() {
+        synchronized (WEIGHTS_CACHE) {
+            WEIGHTS_CACHE.clear();
+        }
+    }
+
+    /**
+     * 获取（或计算并缓存）一个方向上的权重表
+     */
+    static Weights getWeights(int srcLength, int dstLength, int filter) {
+        if (filter < FILTER_BILINEAR || filter > FILTER_LANCZOS) {
+            throw new IllegalArgumentException("unknown filter: " + filter);
+        }
+        Long key = ((long) filter << 56) | ((long) srcLength << 28) | dstLength;
+        synchronized (WEIGHTS_CACHE) {
+            Weights weights = WEIGHTS_CACHE.get(key);
+            if (weights != null) return weights;
+        }
+        // 在锁外计算，并发时可能重复计算，结果相同
+        Weights weights = new Weights(srcLength, dstLength, filter);
+        synchronized (WEIGHTS_CACHE) {
+            WEIGHTS_CACHE.put(key, weights);
+            if (WEIGHTS_CACHE.size() > MAX_CACHED_WEIGHTS) {
+                WEIGHTS_CACHE.remove(WEIGHTS_CACHE.keySet().iterator().next());
+            }
+        }
+        return weights;
+    }
+
+    private static void scaleRows(PixelBuffer src, PixelBuffer dst, Weights xWeights, Weights yWeights,
+                                  int start, int end) {
+        int dw = dst.getWidth();
+        int[] in = src.getPixels();
+        int[] out = dst.getPixels();
+        // 本分段用到的源行
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = 0;
+        for (int dy = start; dy < end; dy++) {
+            firstRow = Math.min(firstRow, yWeights.first[dy]);
+            lastRow = Math.max(lastRow, yWeights.first[dy] + yWeights.count[dy]);
+        }
+        int rows = lastRow - firstRow;
+        // 横向结果，每个通道保留 INTERMEDIATE_BITS 位小数
+        int[] a = new int[rows * dw];
+        int[] r = new int[rows * dw];
+        int[] g = new int[rows * dw];
+        int[] b = new int[rows * dw];
+        int shift = WEIGHT_BITS - INTERMEDIATE_BITS;
+        int round = 1 << (shift - 1);
+        for (int row = 0; row < rows; row++) {
+            int i = src.indexOf(0, firstRow + row);
+            int o = row * dw;
+            for (int dx = 0; dx < dw; dx++, o++) {
+                int sx = i + xWeights.first[dx];
+                int wi = xWeights.offset[dx];
+                int n = xWeights.count[dx];
+                int sa = round, sr = round, sg = round, sb = round;
+                for (int k = 0; k < n; k++) {
+                    int w = xWeights.weights[wi + k];
+                    int p = in[sx + k];
+                    sa += (p >>> 24) * w;
+                    sr += ((p >> 16) & 0xff) * w;
+                    sg += ((p >> 8) & 0xff) * w;
+                    sb += (p & 0xff) * w;
+                }
+                a[o] = sa >> shift;
+                r[o] = sr >> shift;
+                g[o] = sg >> shift;
+                b[o] = sb >> shift;
+            }
+        }
+        int finalShift = WEIGHT_BITS + INTERMEDIATE_BITS;
+        int finalRound = 1 << (finalShift - 1);
+        int max = 255 << finalShift;
+        for (int dy = start; dy < end; dy++) {
+            int row = yWeights.first[dy] - firstRow;
+            int wi = yWeights.offset[dy];
+            int n = yWeights.count[dy];
+            int o = dst.indexOf(0, dy);
+            for (int dx = 0; dx < dw; dx++) {
+                int sa = finalRound, sr = finalRound, sg = finalRound, sb = finalRound;
+                for (int k = 0, i = row * dw + dx; k < n; k++, i += dw) {
+                    int w = yWeights.weights[wi + k];
+                    sa += a[i] * w;
+                    sr += r[i] * w;
+                    sg += g[i] * w;
+                    sb += b[i] * w;
+                }
+                // 双三次和 Lanczos 有负权重，结果可能超出 0-255
+                out[o + dx] = (clamp(sa, max) >> finalShift << 24) | (clamp(sr, max) >> finalShift << 16)
+                        | (clamp(sg, max) >> finalShift << 8) | (clamp(sb, max) >> finalShift);
+            }
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : value > max ? max : value;
+    }
+
+    /**
+     * 滤波器半径
+     */
+    private static double getRadius(int filter) {
+        switch (filter) {
+            case FILTER_BICUBIC:
+                return 2;
+            case FILTER_LANCZOS:
+                return 3;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * 滤波器在 x 处的值
+     */
+    private static double kernel(int filter, double x) {
+        x = Math.abs(x);
+        switch (filter) {
+            case FILTER_BICUBIC:
+                // Catmull-Rom（a = -0.5）
+                if (x < 1) return (1.5 * x - 2.5) * x * x + 1;
+                if (x < 2) return ((-0.5 * x + 2.5) * x - 4) * x + 2;
+                return 0;
+            case FILTER_LANCZOS:
+                if (x == 0) return 1;
+                if (x >= 3) return 0;
+                double px = Math.PI * x;
+                return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+            default:
+                return x < 1 ? 1 - x : 0;
+        }
+    }
+
+    /**
+     * 一个方向上的权重：目标坐标 d 使用源坐标 [first[d], first[d] + count[d])，
+     * 权重依次为 weights[offset[d]...]，和为 1 << {@link #WEIGHT_BITS}（可能有负权重）
+     */
+    static final class Weights {
+        final int[] first;
+        final int[] count;
+        final int[] offset;
+        final int[] weights;
+        final int maxCount;
+
+        Weights(int srcLength, int dstLength, int filter) {
+            first = new int[dstLength];
+            count = new int[dstLength];
+            offset = new int[dstLength];
+            double scale = (double) dstLength / srcLength;
+            // 缩小时滤波器按缩小倍数展宽
+            double filterScale = Math.min(1, scale);
+            double support = getRadius(filter) / filterScale;
+            int taps = (int) Math.ceil(support * 2) + 2;
+            int[] temp = new int[dstLength * taps];
+            double[] values = new double[taps];
+            int size = 0;
+            int widest = 0;
+            int one = 1 << WEIGHT_BITS;
+            for (int d = 0; d < dstLength; d++) {
+                // 像素中心对齐
+                double center = (d + 0.5) / scale;
+                int left = (int) Math.floor(center - support);
+                int right = (int) Math.ceil(center + support);
+                // 超出边界的采样点合并到边缘像素
+                int s0 = Math.max(0, Math.min(srcLength - 1, left));
+                int s1 = Math.max(0, Math.min(srcLength - 1, right));
+                int n = s1 - s0 + 1;
+                Arrays.fill(values, 0, n, 0);
+                double total = 0;
+                for (int s = left; s <= right; s++) {
+                    double w = kernel(filter, (s + 0.5 - center) * filterScale);
+                    if (w == 0) continue;
+                    int clamped = Math.max(s0, Math.min(s1, s));
+                    values[clamped - s0] += w;
+                    total += w;
+                }
+                // 去掉两端权重为 0 的像素
+                int lo = 0;
+                int hi = n - 1;
+                while (lo < hi && values[lo] == 0) lo++;
+                while (hi > lo && values[hi] == 0) hi--;
+                first[d] = s0 + lo;
+                count[d] = hi - lo + 1;
+                offset[d] = size;
+                int sum = 0;
+                int max = size;
+                for (int k = lo; k <= hi; k++) {
+                    int w = (int) Math.round(values[k] / total * one);
+                    temp[size] = w;
+                    if (w > temp[max]) max = size;
+                    sum += w;
+                    size++;
+                }
+                // 舍入误差计入权重最大的像素，保证权重之和恰好为 1
+                temp[max] += one - sum;
+                widest = Math.max(widest, count[d]);
+            }
+            weights = new int[size];
+            System.arraycopy(temp, 0, weights, 0, size);
+            maxCount = widest;
+        }
+    }
+}
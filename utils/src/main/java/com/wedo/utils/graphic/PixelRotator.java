@@ -0,0 +1,272 @@
+package com.wedo.utils.graphic;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * 纯 Java 的直角旋转与翻转（无插值，结果精确）
+ * <p>
+ * 变换以 EXIF 方向表示（{@link ExifOrientation#ORIENTATION_ROTATE_90} 等），8 种方向由同一个分块拷贝完成：
+ * 目标图按 {@link #BLOCK_SIZE} x {@link #BLOCK_SIZE} 分块，每块对应源图中的一块，两块都在 L1 缓存中，
+ * 避免逐行转置时每个像素都跨行访问造成的缓存缺失。可传入线程池按目标行分段并行。
+ * 180 度旋转和翻转任意尺寸都可原地进行；90、270 度旋转和转置只有正方形图片可原地进行
+ */
+public final class PixelRotator {
+    /**
+     * 分块边长：两个 32 x 32 的 int 块共 8KB
+     */
+    public static final int BLOCK_SIZE = 32;
+
+    /**
+     * 并行时每个分段至少处理的像素数
+     */
+    private static final int MIN_BAND_PIXELS = 256 * 256;
+
+    private PixelRotator() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 旋转角度（顺时针）对应的方向
+     *
+     * @param degrees 90 的整数倍，可为负数
+     * @return 方向
+     */
+    public static int getOrientation(int degrees) {
+        if (degrees % 90 != 0) {
+            throw new IllegalArgumentException("not a right angle: " + degrees);
+        }
+        switch (((degrees % 360) + 360) % 360) {
+            case 90:
+                return ExifOrientation.ORIENTATION_ROTATE_90;
+            case 180:
+                return ExifOrientation.ORIENTATION_ROTATE_180;
+            case 270:
+                return ExifOrientation.ORIENTATION_ROTATE_270;
+            default:
+                return ExifOrientation.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * 变换后宽高是否互换
+     */
+    public static boolean swapsAxes(int orientation) {
+        return orientation == ExifOrientation.ORIENTATION_ROTATE_90 || orientation == ExifOrientation.ORIENTATION_ROTATE_270
+                || orientation == ExifOrientation.ORIENTATION_TRANSPOSE
+                || orientation == ExifOrientation.ORIENTATION_TRANSVERSE;
+    }
+
+    /**
+     * 源图靠上的行是否变换到目标图靠下（宽高不互换时）或靠右（宽高互换时）的位置
+     */
+    static boolean reversesRows(int orientation) {
+        return orientation == ExifOrientation.ORIENTATION_ROTATE_90 || orientation == ExifOrientation.ORIENTATION_ROTATE_180
+                || orientation == ExifOrientation.ORIENTATION_FLIP_VERTICAL
+                || orientation == ExifOrientation.ORIENTATION_TRANSVERSE;
+    }
+
+    /**
+     * 按方向变换，dst 的尺寸必须是变换后的尺寸（{@link #swapsAxes} 时宽高互换）
+     *
+     * @param src         源像素
+     * @param dst         目标像素，不能与 src 共享数组
+     * @param orientation EXIF 方向，{@link ExifOrientation#ORIENTATION_UNDEFINED} 视为不变换
+     * @param executor    线程池，为 null 时在当前线程中执行
+     */
+    public static void transform(PixelBuffer src, final PixelBuffer dst, int orientation, Executor executor) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        boolean swap = swapsAxes(orientation);
+        if (dst.getWidth() != (swap ? h : w) || dst.getHeight() != (swap ? w : h)) {
+            throw new IllegalArgumentException("size mismatch: " + w + "x" + h + " -> "
+                    + dst.getWidth() + "x" + dst.getHeight() + " (orientation " + orientation + ")");
+        }
+        if (src.getPixels() == dst.getPixels()) {
+            throw new IllegalArgumentException("src and dst must not share pixels, use transformInPlace");
+        }
+        if (w == 0 || h == 0) return;
+        // 目标像素 (dx, dy) 对应源数组下标 origin + dx * stepX + dy * stepY
+        int s = src.getStride();
+        int left = src.getOffset();
+        int right = left + w - 1;
+        int bottom = (h - 1) * s;
+        final int origin;
+        final int stepX;
+        final int stepY;
+        switch (orientation) {
+            case ExifOrientation.ORIENTATION_FLIP_HORIZONTAL:
+                origin = right;
+                stepX = -1;
+                stepY = s;
+                break;
+            case ExifOrientation.ORIENTATION_ROTATE_180:
+                origin = right + bottom;
+                stepX = -1;
+                stepY = -s;
+                break;
+            case ExifOrientation.ORIENTATION_FLIP_VERTICAL:
+                origin = left + bottom;
+                stepX = 1;
+                stepY = -s;
+                break;
+            case ExifOrientation.ORIENTATION_TRANSPOSE:
+                origin = left;
+                stepX = s;
+                stepY = 1;
+                break;
+            case ExifOrientation.ORIENTATION_ROTATE_90:
+                origin = left + bottom;
+                stepX = -s;
+                stepY = 1;
+                break;
+            case ExifOrientation.ORIENTATION_TRANSVERSE:
+                origin = right + bottom;
+                stepX = -s;
+                stepY = -1;
+                break;
+            case ExifOrientation.ORIENTATION_ROTATE_270:
+                origin = right;
+                stepX = s;
+                stepY = -1;
+                break;
+            default:
+                origin = left;
+                stepX = 1;
+                stepY = s;
+                break;
+        }
+        final int[] in = src.getPixels();
+        int minBandRows = Math.max(1, Math.min(dst.getHeight(), MIN_BAND_PIXELS / dst.getWidth()));
+        ParallelBands.run(executor, dst.getHeight(), minBandRows, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                copyBlocks(in, origin, stepX, stepY, dst, start, end);
+            }
+        });
+    }
+
+    /**
+     * 按旋转角度变换
+     *
+     * @param src      源像素
+     * @param dst      目标像素，尺寸为旋转后的尺寸
+     * @param degrees  顺时针旋转角度，90 的整数倍
+     * @param executor 线程池，为 null 时在当前线程中执行
+     */
+    public static void rotate(PixelBuffer src, PixelBuffer dst, int degrees, Executor executor) {
+        transform(src, dst, getOrientation(degrees), executor);
+    }
+
+    /**
+     * 原地变换：翻转和 180 度旋转支持任意尺寸，宽高互换的变换只支持正方形
+     *
+     * @param buffer      像素
+     * @param orientation EXIF 方向
+     */
+    public static void transformInPlace(PixelBuffer buffer, int orientation) {
+        int w = buffer.getWidth();
+        int h = buffer.getHeight();
+        if (swapsAxes(orientation) && w != h) {
+            throw new IllegalArgumentException("cannot transform " + w + "x" + h + " in place (orientation "
+                    + orientation + ")");
+        }
+        switch (orientation) {
+            case ExifOrientation.ORIENTATION_FLIP_HORIZONTAL:
+                flipHorizontal(buffer);
+                break;
+            case ExifOrientation.ORIENTATION_FLIP_VERTICAL:
+                flipVertical(buffer);
+                break;
+            case ExifOrientation.ORIENTATION_ROTATE_180:
+                flipHorizontal(buffer);
+                flipVertical(buffer);
+                break;
+            case ExifOrientation.ORIENTATION_TRANSPOSE:
+                transposeSquare(buffer);
+                break;
+            case ExifOrientation.ORIENTATION_ROTATE_90:
+                // 转置后水平翻转
+                transposeSquare(buffer);
+                flipHorizontal(buffer);
+                break;
+            case ExifOrientation.ORIENTATION_ROTATE_270:
+                transposeSquare(buffer);
+                flipVertical(buffer);
+                break;
+            case ExifOrientation.ORIENTATION_TRANSVERSE:
+                transposeSquare(buffer);
+                flipHorizontal(buffer);
+                flipVertical(buffer);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void copyBlocks(int[] in, int origin, int stepX, int stepY, PixelBuffer dst, int start, int end) {
+        int[] out = dst.getPixels();
+        int dw = dst.getWidth();
+        for (int by = start; by < end; by += BLOCK_SIZE) {
+            int yEnd = Math.min(end, by + BLOCK_SIZE);
+            for (int bx = 0; bx < dw; bx += BLOCK_SIZE) {
+                int xEnd = Math.min(dw, bx + BLOCK_SIZE);
+                for (int dy = by; dy < yEnd; dy++) {
+                    int o = dst.indexOf(bx, dy);
+                    int i = origin + bx * stepX + dy * stepY;
+                    for (int dx = bx; dx < xEnd; dx++, i += stepX) {
+                        out[o++] = in[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void flipHorizontal(PixelBuffer buffer) {
+        int[] pixels = buffer.getPixels();
+        for (int y = 0; y < buffer.getHeight(); y++) {
+            for (int i = buffer.indexOf(0, y), j = i + buffer.getWidth() - 1; i < j; i++, j--) {
+                int t = pixels[i];
+                pixels[i] = pixels[j];
+                pixels[j] = t;
+            }
+        }
+    }
+
+    private static void flipVertical(PixelBuffer buffer) {
+        int[] pixels = buffer.getPixels();
+        int w = buffer.getWidth();
+        int[] row = new int[w];
+        for (int top = 0, bottom = buffer.getHeight() - 1; top < bottom; top++, bottom--) {
+            int i = buffer.indexOf(0, top);
+            int j = buffer.indexOf(0, bottom);
+            System.arraycopy(pixels, i, row, 0, w);
+            System.arraycopy(pixels, j, pixels, i, w);
+            System.arraycopy(row, 0, pixels, j, w);
+        }
+    }
+
+    /**
+     * 正方形原地转置：交换对角线两侧对应的块
+     */
+    private static void transposeSquare(PixelBuffer buffer) {
+        int[] pixels = buffer.getPixels();
+        int n = buffer.getWidth();
+        for (int by = 0; by < n; by += BLOCK_SIZE) {
+            int yEnd = Math.min(n, by + BLOCK_SIZE);
+            for (int bx = by; bx < n; bx += BLOCK_SIZE) {
+                int xEnd = Math.min(n, bx + BLOCK_SIZE);
+                for (int y = by; y < yEnd; y++) {
+                    // 对角线上的块只交换上三角部分
+                    for (int x = bx == by ? y + 1 : bx; x < xEnd; x++) {
+                        int i = buffer.indexOf(x, y);
+                        int j = buffer.indexOf(y, x);
+                        int t = pixels[i];
+                        pixels[i] = pixels[j];
+                        pixels[j] = t;
+                    }
+                }
+            }
+        }
+    }
+}
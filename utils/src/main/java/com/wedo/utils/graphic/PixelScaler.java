@@ -0,0 +1,353 @@
+package com.wedo.utils.graphic;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 纯 Java 的像素缩放工具类，直接操作 ARGB 像素数组（或 {@link PixelBuffer}），不经过任何编解码
+ * <p>
+ * 提供三种方式：整数倍块平均（{@link #downscaleBox}）、任意比例面积平均（{@link #scaleArea}，缩小时质量最好）
+ * 和双线性插值（{@link #scaleBilinear}，速度最快，缩小超过 2 倍时会有锯齿）；后两者可传入线程池按行并行
+ */
+public final class PixelScaler {
+    /**
+     * 并行时每个分段至少处理的源像素数，避免分段过小时调度开销超过计算量
+     */
+    private static final int MIN_BAND_PIXELS = 256 * 256;
+
+    /* 面积平均的权重精度（位），每个目标像素在一个方向上的权重之和为 1 << WEIGHT_BITS */
+    private static final int WEIGHT_BITS = 14;
+
+    private PixelScaler() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 按整数倍缩小后的边长
+     *
+     * @param length 原始边长
+     * @param factor 缩小倍数
+     * @return 缩小后的边长（向上取整）
+     */
+    public static int getBoxSize(int length, int factor) {
+        return (length + factor - 1) / factor;
+    }
+
+    /**
+     * 按整数倍缩小（每个 factor x factor 的块取平均值，边缘不足一块时按实际像素数平均）
+     *
+     * @param src    源像素，行宽为 w
+     * @param w      源宽
+     * @param h      源高
+     * @param factor 缩小倍数
+     * @param dst    目标像素，尺寸为 {@link #getBoxSize}(w, factor) x {@link #getBoxSize}(h, factor)
+     */
+    public static void downscaleBox(int[] src, int w, int h, int factor, int[] dst) {
+        downscaleBox(PixelBuffer.wrap(src, w, h), factor,
+                PixelBuffer.wrap(dst, getBoxSize(w, factor), getBoxSize(h, factor)));
+    }
+
+    /**
+     * 按整数倍缩小（每个 factor x factor 的块取平均值，边缘不足一块时按实际像素数平均）
+     *
+     * @param src    源像素
+     * @param factor 缩小倍数
+     * @param dst    目标像素，尺寸为 {@link #getBoxSize}(宽, factor) x {@link #getBoxSize}(高, factor)
+     */
+    public static void downscaleBox(PixelBuffer src, int factor, PixelBuffer dst) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        int dw = getBoxSize(w, factor);
+        int dh = getBoxSize(h, factor);
+        int[] in = src.getPixels();
+        int[] out = dst.getPixels();
+        for (int dy = 0; dy < dh; dy++) {
+            int y0 = dy * factor;
+            int y1 = Math.min(y0 + factor, h);
+            int o = dst.indexOf(0, dy);
+            for (int dx = 0; dx < dw; dx++) {
+                int x0 = dx * factor;
+                int x1 = Math.min(x0 + factor, w);
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int y = y0; y < y1; y++) {
+                    int i = src.indexOf(x0, y);
+                    for (int x = x0; x < x1; x++, i++) {
+                        int p = in[i];
+                        a += p >>> 24;
+                        r += (p >> 16) & 0xff;
+                        g += (p >> 8) & 0xff;
+                        b += p & 0xff;
+                    }
+                }
+                int n = (y1 - y0) * (x1 - x0);
+                int half = n >> 1;
+                out[o + dx] = ((a + half) / n << 24) | ((r + half) / n << 16)
+                        | ((g + half) / n << 8) | ((b + half) / n);
+            }
+        }
+    }
+
+    /**
+     * 双线性插值缩放
+     * <p>
+     * 采用像素中心对齐，超出边界的采样点取边缘像素。
+     * 权重使用 8 位定点数，避免浮点运算
+     *
+     * @param src 源像素，行宽为 sw
+     * @param sw  源宽
+     * @param sh  源高
+     * @param dst 目标像素，行宽为 dw
+     * @param dw  目标宽
+     * @param dh  目标高
+     */
+    public static void scaleBilinear(int[] src, int sw, int sh, int[] dst, int dw, int dh) {
+        scaleBilinear(PixelBuffer.wrap(src, sw, sh), PixelBuffer.wrap(dst, dw, dh));
+    }
+
+    /**
+     * 双线性插值缩放，目标尺寸即 dst 的尺寸
+     *
+     * @param src 源像素
+     * @param dst 目标像素
+     */
+    public static void scaleBilinear(PixelBuffer src, PixelBuffer dst) {
+        scaleBilinear(src, dst, null);
+    }
+
+    /**
+     * 双线性插值缩放，目标尺寸即 dst 的尺寸，按目标行分段并行
+     *
+     * @param src      源像素
+     * @param dst      目标像素
+     * @param executor 线程池，为 null 时在当前线程中执行
+     */
+    public static void scaleBilinear(final PixelBuffer src, final PixelBuffer dst, Executor executor) {
+        int sw = src.getWidth();
+        int dw = dst.getWidth();
+        int dh = dst.getHeight();
+        final int[] x0 = new int[dw];
+        final int[] x1 = new int[dw];
+        final int[] fx = new int[dw];
+        for (int x = 0; x < dw; x++) {
+            computeSample(x, dw, sw, x0, x1, fx, x);
+        }
+        ParallelBands.run(executor, dh, getMinBandRows(dw * 4, dh), new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                scaleBilinearRows(src, dst, x0, x1, fx, start, end);
+            }
+        });
+    }
+
+    private static void scaleBilinearRows(PixelBuffer src, PixelBuffer dst, int[] x0, int[] x1, int[] fx,
+                                          int start, int end) {
+        int sh = src.getHeight();
+        int dw = dst.getWidth();
+        int dh = dst.getHeight();
+        int[] in = src.getPixels();
+        int[] out = dst.getPixels();
+        int[] y0 = new int[1];
+        int[] y1 = new int[1];
+        int[] fy = new int[1];
+        for (int y = start; y < end; y++) {
+            computeSample(y, dh, sh, y0, y1, fy, 0);
+            int row0 = src.indexOf(0, y0[0]);
+            int row1 = src.indexOf(0, y1[0]);
+            int wy = fy[0];
+            int o = dst.indexOf(0, y);
+            for (int x = 0; x < dw; x++) {
+                int wx = fx[x];
+                int top = lerp(in[row0 + x0[x]], in[row0 + x1[x]], wx);
+                int bottom = lerp(in[row1 + x0[x]], in[row1 + x1[x]], wx);
+                out[o + x] = lerp(top, bottom, wy);
+            }
+        }
+    }
+
+    /**
+     * 面积平均缩放（任意比例）
+     * <p>
+     * 每个目标像素取其在源图中覆盖区域内所有像素按覆盖面积加权的平均值，部分覆盖的边缘像素按比例计入，
+     * 等价于理想的盒式滤波，缩小时没有锯齿和摩尔纹。先纵向后横向分离计算，权重为定点数
+     *
+     * @param src 源像素，行宽为 sw
+     * @param sw  源宽
+     * @param sh  源高
+     * @param dst 目标像素，行宽为 dw
+     * @param dw  目标宽
+     * @param dh  目标高
+     */
+    public static void scaleArea(int[] src, int sw, int sh, int[] dst, int dw, int dh) {
+        scaleArea(PixelBuffer.wrap(src, sw, sh), PixelBuffer.wrap(dst, dw, dh), null);
+    }
+
+    /**
+     * 面积平均缩放（任意比例），目标尺寸即 dst 的尺寸，按目标行分段并行
+     *
+     * @param src      源像素
+     * @param dst      目标像素
+     * @param executor 线程池，为 null 时在当前线程中执行
+     */
+    public static void scaleArea(final PixelBuffer src, final PixelBuffer dst, Executor executor) {
+        final AreaWeights xWeights = new AreaWeights(src.getWidth(), dst.getWidth());
+        final AreaWeights yWeights = new AreaWeights(src.getHeight(), dst.getHeight());
+        int sourceRowsPerRow = Math.max(1, src.getHeight() / dst.getHeight());
+        ParallelBands.run(executor, dst.getHeight(), getMinBandRows(src.getWidth() * sourceRowsPerRow, dst.getHeight()),
+                new ParallelBands.BandTask() {
+                    @Override
+                    public void run(int start, int end) {
+                        scaleAreaRows(src, dst, xWeights, yWeights, start, end);
+                    }
+                });
+    }
+
+    private static void scaleAreaRows(PixelBuffer src, PixelBuffer dst, AreaWeights xWeights, AreaWeights yWeights,
+                                      int start, int end) {
+        int sw = src.getWidth();
+        int dw = dst.getWidth();
+        int[] in = src.getPixels();
+        int[] out = dst.getPixels();
+        // 纵向加权后的一行，每个通道保留 8 位小数
+        int[] a = new int[sw];
+        int[] r = new int[sw];
+        int[] g = new int[sw];
+        int[] b = new int[sw];
+        int shift = WEIGHT_BITS - 8;
+        int round = 1 << (shift - 1);
+        for (int dy = start; dy < end; dy++) {
+            int first = yWeights.first[dy];
+            int wi = yWeights.offset[dy];
+            int count = yWeights.count[dy];
+            for (int k = 0; k < count; k++) {
+                int w = yWeights.weights[wi + k];
+                int i = src.indexOf(0, first + k);
+                if (k == 0) {
+                    for (int x = 0; x < sw; x++, i++) {
+                        int p = in[i];
+                        a[x] = (p >>> 24) * w;
+                        r[x] = ((p >> 16) & 0xff) * w;
+                        g[x] = ((p >> 8) & 0xff) * w;
+                        b[x] = (p & 0xff) * w;
+                    }
+                } else {
+                    for (int x = 0; x < sw; x++, i++) {
+                        int p = in[i];
+                        a[x] += (p >>> 24) * w;
+                        r[x] += ((p >> 16) & 0xff) * w;
+                        g[x] += ((p >> 8) & 0xff) * w;
+                        b[x] += (p & 0xff) * w;
+                    }
+                }
+            }
+            for (int x = 0; x < sw; x++) {
+                a[x] = (a[x] + round) >> shift;
+                r[x] = (r[x] + round) >> shift;
+                g[x] = (g[x] + round) >> shift;
+                b[x] = (b[x] + round) >> shift;
+            }
+            int o = dst.indexOf(0, dy);
+            int finalShift = WEIGHT_BITS + 8;
+            int finalRound = 1 << (finalShift - 1);
+            for (int dx = 0; dx < dw; dx++) {
+                int sx = xWeights.first[dx];
+                int xi = xWeights.offset[dx];
+                int n = xWeights.count[dx];
+                int sa = finalRound, sr = finalRound, sg = finalRound, sb = finalRound;
+                for (int k = 0; k < n; k++, sx++) {
+                    int w = xWeights.weights[xi + k];
+                    sa += a[sx] * w;
+                    sr += r[sx] * w;
+                    sg += g[sx] * w;
+                    sb += b[sx] * w;
+                }
+                out[o + dx] = (sa >>> finalShift << 24) | (sr >>> finalShift << 16)
+                        | (sg >>> finalShift << 8) | (sb >>> finalShift);
+            }
+        }
+    }
+
+    /**
+     * 每个分段的最小目标行数
+     *
+     * @param pixelsPerRow 每个目标行需要处理的源像素数
+     * @param rows         目标行数
+     */
+    private static int getMinBandRows(int pixelsPerRow, int rows) {
+        return Math.max(1, Math.min(rows, MIN_BAND_PIXELS / Math.max(1, pixelsPerRow)));
+    }
+
+    /**
+     * 一个方向上的面积平均权重：目标坐标 d 覆盖源坐标 [first[d], first[d] + count[d])，
+     * 权重依次为 weights[offset[d]...]，和为 1 << {@link #WEIGHT_BITS}
+     */
+    static final class AreaWeights {
+        final int[] first;
+        final int[] count;
+        final int[] offset;
+        final int[] weights;
+
+        AreaWeights(int srcLength, int dstLength) {
+            first = new int[dstLength];
+            count = new int[dstLength];
+            offset = new int[dstLength];
+            // 每个目标像素最多覆盖 ceil(src / dst) + 1 个源像素
+            int[] temp = new int[dstLength * (srcLength / dstLength + 2)];
+            int size = 0;
+            int one = 1 << WEIGHT_BITS;
+            for (int d = 0; d < dstLength; d++) {
+                // 以 1 / dstLength 个源像素为单位：覆盖区间为 [d * srcLength, (d + 1) * srcLength)
+                long start = (long) d * srcLength;
+                long end = start + srcLength;
+                int s0 = (int) (start / dstLength);
+                int s1 = (int) Math.min(srcLength, (end + dstLength - 1) / dstLength);
+                first[d] = s0;
+                count[d] = s1 - s0;
+                offset[d] = size;
+                int sum = 0;
+                int max = size;
+                for (int s = s0; s < s1; s++) {
+                    long overlap = Math.min(end, (long) (s + 1) * dstLength) - Math.max(start, (long) s * dstLength);
+                    int w = (int) (overlap * one / srcLength);
+                    temp[size] = w;
+                    if (w > temp[max]) max = size;
+                    sum += w;
+                    size++;
+                }
+                // 舍入误差计入权重最大的像素，保证权重之和恰好为 1
+                temp[max] += one - sum;
+            }
+            weights = new int[size];
+            System.arraycopy(temp, 0, weights, 0, size);
+        }
+    }
+
+    /**
+     * 计算目标坐标 d 对应的两个源坐标以及插值权重（0-256），写入各数组的 index 位置
+     */
+    private static void computeSample(int d, int dstLength, int srcLength,
+                                      int[] s0, int[] s1, int[] f, int index) {
+        // 定点数 (d + 0.5) * srcLength / dstLength - 0.5，精度 1/256
+        long pos = (((2L * d + 1) * srcLength << 8) / (2L * dstLength)) - 128;
+        if (pos < 0) pos = 0;
+        int i = (int) (pos >> 8);
+        if (i >= srcLength - 1) {
+            s0[index] = s1[index] = srcLength - 1;
+            f[index] = 0;
+        } else {
+            s0[index] = i;
+            s1[index] = i + 1;
+            f[index] = (int) (pos & 0xff);
+        }
+    }
+
+    /**
+     * 按权重 t（0-256）在两个 ARGB 像素间插值
+     */
+    private static int lerp(int p0, int p1, int t) {
+        if (t == 0 || p0 == p1) return p0;
+        int u = 256 - t;
+        // 同时处理 A、G 与 R、B 两组通道，每组通道间留有 8 位空间，不会相互进位；加 0x80 四舍五入
+        int ag = (((p0 >>> 8) & 0x00ff00ff) * u + ((p1 >>> 8) & 0x00ff00ff) * t + 0x00800080) & 0xff00ff00;
+        int rb = ((p0 & 0x00ff00ff) * u + (p1 & 0x00ff00ff) * t + 0x00800080) >>> 8 & 0x00ff00ff;
+        return ag | rb;
+    }
+}
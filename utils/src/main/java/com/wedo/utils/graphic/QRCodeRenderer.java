@@ -0,0 +1,77 @@
+package com.wedo.utils.graphic;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * 纯 Java 的二维码（条形码）绘制，结果为 {@link PixelBuffer}，不依赖 android.graphics
+ */
+public final class QRCodeRenderer {
+    public static final int BLACK = 0xff000000;
+    public static final int WHITE = 0xffffffff;
+
+    private QRCodeRenderer() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 生成二维码（utf-8 编码，容错级别 H）
+     *
+     * @param content 二维码中的内容
+     * @param width   二维码的宽
+     * @param height  二维码的高
+     * @param border  二维码空白边距的宽度
+     * @return 二维码像素，编码失败时返回 null
+     */
+    public static PixelBuffer encode(String content, int width, int height, int border) {
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.CHARACTER_SET, "utf-8");
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
+        hints.put(EncodeHintType.MARGIN, border);
+        try {
+            BitMatrix matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, width, height, hints);
+            return render(matrix, BLACK, WHITE);
+        } catch (WriterException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 把编码矩阵绘制为像素
+     * <p>
+     * 逐行按连续的同色区间填充，而不是逐点判断
+     *
+     * @param matrix     编码矩阵
+     * @param foreground 前景色（矩阵中为 true 的点）
+     * @param background 背景色
+     * @return 像素缓冲区，尺寸与矩阵相同
+     */
+    public static PixelBuffer render(BitMatrix matrix, int foreground, int background) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        PixelBuffer buffer = new PixelBuffer(width, height);
+        int[] pixels = buffer.getPixels();
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            int x = 0;
+            while (x < width) {
+                boolean on = matrix.get(x, y);
+                int end = x + 1;
+                while (end < width && matrix.get(end, y) == on) end++;
+                Arrays.fill(pixels, offset + x, offset + end, on ? foreground : background);
+                x = end;
+            }
+        }
+        return buffer;
+    }
+}
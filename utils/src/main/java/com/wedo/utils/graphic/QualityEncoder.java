@@ -0,0 +1,349 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * 按目标大小编码图片
+ * <p>
+ * 每种格式维护一条"质量 - 每像素字节数"曲线，从先验值开始，根据每次编码的实际结果不断修正。
+ * 编码时先按曲线预测质量，编码一次后用实际大小校准当前图片相对曲线的偏移，再预测下一次的质量，
+ * 结果不超过目标大小且不小于目标大小的 (1 - 容差) 时停止，常见照片 2-3 次编码即可完成（原二分法需要 9 次左右）。
+ * 编码结果直接以 byte[]、OutputStream 或文件的形式返回，不再解码回 Bitmap。
+ * 注：线程安全，多个线程可同时编码，只有质量模型的读取和修正需要同步
+ */
+public final class QualityEncoder {
+    /**
+     * 默认容差：结果不小于目标大小的 90% 即可
+     */
+    public static final float DEFAULT_TOLERANCE = 0.1f;
+
+    /**
+     * 最多编码次数（不含兜底的最低质量编码），超过后返回已找到的最佳结果
+     */
+    private static final int MAX_PASSES = 8;
+
+    /**
+     * 编码器
+     */
+    public interface Encoder {
+        /**
+         * 按指定质量编码，写入 out
+         *
+         * @param quality 质量 0-100
+         * @param out     输出流
+         */
+        void encode(int quality, OutputStream out) throws IOException;
+    }
+
+    /* 各格式的质量模型，读写时以自身为锁 */
+    private final Map<String, QualityModel> models = new HashMap<>();
+    private final float tolerance;
+    private volatile int lastPassCount;
+
+    public static QualityEncoder getInstance() {
+        return QualityEncoderHolder.INSTANCE;
+    }
+
+    private static class QualityEncoderHolder {
+        private static final QualityEncoder INSTANCE = new QualityEncoder(DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * @param tolerance 容差 0-1，越小结果越接近目标大小，编码次数也越多
+     */
+    public QualityEncoder(float tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * 按目标大小编码
+     *
+     * @param src         源图片
+     * @param format      图片的类型： JPEG、PNG、WEBP
+     * @param maxByteSize 允许的最大字节数
+     * @return 编码结果；最低质量仍超过 maxByteSize 时返回最低质量的结果，编码失败时返回 null
+     */
+    public byte[] encode(Bitmap src, Bitmap.CompressFormat format, long maxByteSize) {
+        try {
+            Buffers buffers = new Buffers();
+            encodeToBuffer(src, format, maxByteSize, buffers);
+            return buffers.best.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 按目标大小编码，写入输出流
+     *
+     * @param src         源图片
+     * @param format      图片的类型： JPEG、PNG、WEBP
+     * @param maxByteSize 允许的最大字节数
+     * @param out         输出流（不会被关闭）
+     * @return 使用的质量
+     */
+    public int encode(Bitmap src, Bitmap.CompressFormat format, long maxByteSize,
+                      OutputStream out) throws IOException {
+        Buffers buffers = new Buffers();
+        int quality = encodeToBuffer(src, format, maxByteSize, buffers);
+        buffers.best.writeTo(out);
+        return quality;
+    }
+
+    /**
+     * 按目标大小编码，写入文件
+     *
+     * @param src         源图片
+     * @param format      图片的类型： JPEG、PNG、WEBP
+     * @param maxByteSize 允许的最大字节数
+     * @param file        目标文件
+     * @return 是否成功
+     */
+    public boolean encode(Bitmap src, Bitmap.CompressFormat format, long maxByteSize, File file) {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            encode(src, format, maxByteSize, out);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按目标大小编码（与平台无关的核心实现）
+     *
+     * @param encoder     编码器
+     * @param format      格式名称，每种格式单独维护质量模型
+     * @param pixelCount  像素数
+     * @param maxByteSize 允许的最大字节数
+     * @param out         输出流（不会被关闭）
+     * @return 使用的质量
+     */
+    public int encode(Encoder encoder, String format, long pixelCount, long maxByteSize,
+                      OutputStream out) throws IOException {
+        Buffers buffers = new Buffers();
+        int quality = search(encoder, format, pixelCount, maxByteSize, buffers);
+        buffers.best.writeTo(out);
+        return quality;
+    }
+
+    /**
+     * 最近完成的一次编码（任意线程）所用的编码次数
+     */
+    public int getLastPassCount() {
+        return lastPassCount;
+    }
+
+    private int encodeToBuffer(final Bitmap src, final Bitmap.CompressFormat format, long maxByteSize,
+                               Buffers buffers) throws IOException {
+        Encoder encoder = new Encoder() {
+            @Override
+            public void encode(int quality, OutputStream out) throws IOException {
+                if (!src.compress(format, quality, out)) {
+                    throw new IOException("failed to compress bitmap as " + format);
+                }
+            }
+        };
+        if (format == Bitmap.CompressFormat.PNG) {
+            // 无损格式忽略质量参数，编码一次即可
+            encoder.encode(100, buffers.best);
+            lastPassCount = 1;
+            return 100;
+        }
+        return search(encoder, format.name(), (long) src.getWidth() * src.getHeight(), maxByteSize, buffers);
+    }
+
+    /**
+     * 搜索满足大小的最高质量，结果留在 buffers.best 中
+     */
+    private int search(Encoder encoder, String format, long pixelCount, long maxByteSize, Buffers buffers)
+            throws IOException {
+        QualityModel shared;
+        QualityModel model;
+        synchronized (models) {
+            shared = models.get(format);
+            if (shared == null) {
+                shared = new QualityModel();
+                models.put(format, shared);
+            }
+            // 搜索期间使用副本，其他线程修正模型不影响本次预测
+            model = new QualityModel(shared);
+        }
+        double pixels = Math.max(1, pixelCount);
+        double minAccepted = maxByteSize * (1 - tolerance);
+        // 以容差区间的中点为目标，预测稍有偏差时仍能落在区间内
+        double target = Math.log(Math.max(1, maxByteSize * (1 - tolerance / 2)) / pixels);
+        // lo 为已知满足大小的最高质量，hi 为已知超出大小的最低质量
+        int lo = -1;
+        int hi = 101;
+        int[] qualities = new int[MAX_PASSES + 1];
+        double[] sizes = new double[MAX_PASSES + 1];
+        int passes = 0;
+        double offset = model.getLevel();
+        int quality = model.predict(target - offset);
+        while (true) {
+            buffers.current.reset();
+            encoder.encode(quality, buffers.current);
+            int size = buffers.current.size();
+            qualities[passes] = quality;
+            sizes[passes] = Math.log(Math.max(1, size) / pixels);
+            passes++;
+            // 当前图片相对曲线的偏移以最近一次编码为准
+            offset = sizes[passes - 1] - model.getLogSize(quality);
+            if (size <= maxByteSize) {
+                lo = quality;
+                buffers.swap();
+                if (size >= minAccepted || quality == 100) break;
+            } else {
+                hi = quality;
+                if (quality == 0) {
+                    buffers.swap();
+                    break;
+                }
+            }
+            if (hi - lo <= 1) break;
+            if (passes == MAX_PASSES) {
+                if (lo < 0) {
+                    // 每次都超出大小且没有试过最低质量，最后按最低质量编码一次作为结果
+                    quality = 0;
+                    buffers.current.reset();
+                    encoder.encode(quality, buffers.current);
+                    qualities[passes] = quality;
+                    sizes[passes] = Math.log(Math.max(1, buffers.current.size()) / pixels);
+                    passes++;
+                    buffers.swap();
+                }
+                break;
+            }
+            int next;
+            int prev = passes - 2;
+            if (passes >= 2 && sizes[passes - 1] != sizes[prev]) {
+                // 已有两次结果时在两点间插值（割线法），比曲线形状更贴近当前图片
+                double q = quality + (target - sizes[passes - 1])
+                        * (quality - qualities[prev]) / (sizes[passes - 1] - sizes[prev]);
+                next = (int) Math.floor(Math.max(0, Math.min(100, q)));
+            } else {
+                next = model.predict(target - offset);
+            }
+            if (next <= lo || next >= hi) {
+                // 预测落在已知区间之外时取区间中点
+                next = lo < 0 ? Math.max(0, Math.min(hi - 1, next)) : (lo + hi) >>> 1;
+                if (next <= lo) next = lo + 1;
+            }
+            quality = next;
+        }
+        synchronized (models) {
+            shared.learn(qualities, sizes, passes);
+        }
+        lastPassCount = passes;
+        return lo >= 0 ? lo : 0;
+    }
+
+    /**
+     * 一次编码的输出缓冲区：current 为本次编码，best 为已知满足大小的最高质量（或最低质量）的结果
+     */
+    private static final class Buffers {
+        ByteArrayOutputStream current = new ByteArrayOutputStream(64 * 1024);
+        ByteArrayOutputStream best = new ByteArrayOutputStream(64 * 1024);
+
+        void swap() {
+            ByteArrayOutputStream temp = best;
+            best = current;
+            current = temp;
+        }
+    }
+
+    /**
+     * 质量 - 每像素字节数（取对数）曲线，在 0、10、...、100 处取值，中间线性插值
+     */
+    static final class QualityModel {
+        /**
+         * 典型照片 JPEG 编码的每像素字节数（先验值）
+         */
+        private static final double[] PRIOR = {
+                0.030, 0.045, 0.070, 0.090, 0.105, 0.120, 0.140, 0.190, 0.260, 0.370, 1.100
+        };
+        private static final double LEARNING_RATE = 0.2;
+
+        private final double[] anchors = new double[PRIOR.length];
+        /* 图片整体复杂度的平均偏移 */
+        private double level;
+
+        QualityModel() {
+            for (int i = 0; i < PRIOR.length; i++) {
+                anchors[i] = Math.log(PRIOR[i]);
+            }
+        }
+
+        QualityModel(QualityModel other) {
+            System.arraycopy(other.anchors, 0, anchors, 0, anchors.length);
+            level = other.level;
+        }
+
+        double getLevel() {
+            return level;
+        }
+
+        /**
+         * 曲线在 quality 处的值（不含偏移）
+         */
+        double getLogSize(int quality) {
+            int i = Math.min(quality / 10, anchors.length - 2);
+            double t = (quality - i * 10) / 10.0;
+            return anchors[i] + (anchors[i + 1] - anchors[i]) * t;
+        }
+
+        /**
+         * 曲线值不超过 logSize 的最高质量
+         */
+        int predict(double logSize) {
+            for (int quality = 100; quality > 0; quality--) {
+                if (getLogSize(quality) <= logSize) return quality;
+            }
+            return 0;
+        }
+
+        /**
+         * 根据一张图片的多次编码结果修正曲线：第一次编码确定这张图片的偏移并更新平均偏移，
+         * 之后每次编码的残差修正其所在区间两端的取值
+         */
+        void learn(int[] qualities, double[] logSizes, int count) {
+            double offset = logSizes[0] - getLogSize(qualities[0]);
+            level += LEARNING_RATE * (offset - level);
+            for (int k = 1; k < count; k++) {
+                int quality = qualities[k];
+                double residual = logSizes[k] - offset - getLogSize(quality);
+                int i = Math.min(quality / 10, anchors.length - 2);
+                double t = (quality - i * 10) / 10.0;
+                anchors[i] += LEARNING_RATE * residual * (1 - t);
+                anchors[i + 1] += LEARNING_RATE * residual * t;
+            }
+            // 保持曲线单调递增
+            for (int i = 1; i < anchors.length; i++) {
+                if (anchors[i] < anchors[i - 1]) {
+                    anchors[i] = anchors[i - 1];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.wedo.utils.graphic;
+
+import java.util.Arrays;
+
+
+/**
+ * ARGB_8888 到 RGB_565 的抖动量化
+ * <p>
+ * 把像素量化为 RGB_565 能精确表示的颜色（R、B 5 位，G 6 位，按 q * 255 / 31 展开回 8 位），结果仍以 ARGB 存放，
+ * 写入 RGB_565 的 Bitmap 时平台直接截断低位，不再引入误差。直接截断会在渐变区域产生明显的色带，
+ * 抖动把量化误差分散到相邻像素上，局部平均颜色与原图一致：
+ * <ul>
+ * <li>{@link #DITHER_ORDERED}：4x4 Bayer 矩阵，查表实现，各像素独立，可分段并行，适合大多数场景</li>
+ * <li>{@link #DITHER_DIFFUSION}：Floyd-Steinberg 误差扩散，噪点更细，但只能按行顺序处理</li>
+ * </ul>
+ * 实例保存当前行号和误差扩散的状态，可以分多次按从上到下的顺序处理同一张图片的各个行段（不必一次读取整张图片）。
+ * 注：实例不是线程安全的
+ */
+public final class Rgb565Dither {
+    public static final int DITHER_NONE = 0;
+    public static final int DITHER_ORDERED = 1;
+    public static final int DITHER_DIFFUSION = 2;
+
+    /**
+     * 4x4 Bayer 矩阵
+     */
+    private static final int[] BAYER = {
+            0, 8, 2, 10,
+            12, 4, 14, 6,
+            3, 11, 1, 9,
+            15, 7, 13, 5
+    };
+
+    /**
+     * 有序抖动的量化表：ORDERED_5[t][v] = floor(v * 31 / 255 + (t + 0.5) / 16) 展开回 8 位后的值，t 为 Bayer 阈值；
+     * ROUND_5、ROUND_6 为四舍五入（不抖动，误差扩散也使用它）
+     */
+    private static final int[][] ORDERED_5 = new int[16][256];
+    private static final int[][] ORDERED_6 = new int[16][256];
+    private static final int[] ROUND_5 = new int[256];
+    private static final int[] ROUND_6 = new int[256];
+
+    static {
+        for (int t = 0; t < 16; t++) {
+            for (int v = 0; v < 256; v++) {
+                ORDERED_5[t][v] = expand5((int) (v * 31 / 255.0 + (t + 0.5) / 16));
+                ORDERED_6[t][v] = expand6((int) (v * 63 / 255.0 + (t + 0.5) / 16));
+            }
+        }
+        for (int v = 0; v < 256; v++) {
+            ROUND_5[v] = expand5((v * 31 + 127) / 255);
+            ROUND_6[v] = expand6((v * 63 + 127) / 255);
+        }
+    }
+
+    private final int width;
+    private final int mode;
+    /* 下一个要处理的行号 */
+    private int row;
+    /* 误差扩散：当前行和下一行的误差，每个像素 3 个通道，两端各留一个像素 */
+    private int[] errors;
+    private int[] nextErrors;
+
+    /**
+     * @param width 图片宽度
+     * @param mode  抖动方式
+     */
+    public Rgb565Dither(int width, int mode) {
+        if (mode != DITHER_NONE && mode != DITHER_ORDERED && mode != DITHER_DIFFUSION) {
+            throw new IllegalArgumentException("unknown dither mode: " + mode);
+        }
+        this.width = width;
+        this.mode = mode;
+        if (mode == DITHER_DIFFUSION) {
+            errors = new int[(width + 2) * 3];
+            nextErrors = new int[(width + 2) * 3];
+        }
+    }
+
+    /**
+     * 量化接下来的若干行（原地修改，保留 alpha）
+     *
+     * @param rows 宽度与图片相同的行段，紧接在上一次处理的行之后
+     */
+    public void process(PixelBuffer rows) {
+        if (rows.getWidth() != width) {
+            throw new IllegalArgumentException("width mismatch: " + rows.getWidth() + " != " + width);
+        }
+        int[] pixels = rows.getPixels();
+        for (int y = 0; y < rows.getHeight(); y++, row++) {
+            int offset = rows.indexOf(0, y);
+            if (mode == DITHER_DIFFUSION) {
+                diffuseRow(pixels, offset);
+            } else {
+                orderedRow(pixels, offset);
+            }
+        }
+    }
+
+    /**
+     * 整张图片量化为 RGB_565（原地修改）
+     *
+     * @param buffer 像素
+     * @param mode   抖动方式
+     */
+    public static void dither(PixelBuffer buffer, int mode) {
+        new Rgb565Dither(buffer.getWidth(), mode).process(buffer);
+    }
+
+    /**
+     * 是否所有像素都不透明
+     */
+    public static boolean isOpaque(PixelBuffer buffer) {
+        int[] pixels = buffer.getPixels();
+        for (int y = 0; y < buffer.getHeight(); y++) {
+            for (int i = buffer.indexOf(0, y), end = i + buffer.getWidth(); i < end; i++) {
+                if (pixels[i] >>> 24 != 0xff) return false;
+            }
+        }
+        return true;
+    }
+
+    private void orderedRow(int[] pixels, int offset) {
+        int[] red = ROUND_5;
+        int[] green = ROUND_6;
+        int[] blue = ROUND_5;
+        for (int x = 0; x < width; x++) {
+            if (mode == DITHER_ORDERED) {
+                int t = BAYER[((row & 3) << 2) | (x & 3)];
+                red = ORDERED_5[t];
+                green = ORDERED_6[t];
+                blue = red;
+            }
+            int p = pixels[offset + x];
+            pixels[offset + x] = (p & 0xff000000) | (red[(p >> 16) & 0xff] << 16)
+                    | (green[(p >> 8) & 0xff] << 8) | blue[p & 0xff];
+        }
+    }
+
+    private void diffuseRow(int[] pixels, int offset) {
+        int[] current = errors;
+        int[] next = nextErrors;
+        for (int x = 0; x < width; x++) {
+            int p = pixels[offset + x];
+            int e = (x + 1) * 3;
+            int color = p & 0xff000000;
+            for (int c = 0; c < 3; c++) {
+                int shift = 16 - c * 8;
+                // 误差以 1/16 为单位累积
+                int want = ((p >> shift) & 0xff) + (current[e + c] + 8 >> 4);
+                want = want < 0 ? 0 : want > 255 ? 255 : want;
+                int quantized = c == 1 ? ROUND_6[want] : ROUND_5[want];
+                int error = want - quantized;
+                color |= quantized << shift;
+                // Floyd-Steinberg：右 7/16，左下 3/16，下 5/16，右下 1/16
+                current[e + 3 + c] += error * 7;
+                next[e - 3 + c] += error * 3;
+                next[e + c] += error * 5;
+                next[e + 3 + c] += error;
+            }
+            pixels[offset + x] = color;
+        }
+        // 当前行的误差已用完，清零后作为下一行的累积区
+        Arrays.fill(current, 0);
+        errors = next;
+        nextErrors = current;
+    }
+
+    private static int expand5(int q) {
+        q = Math.min(31, q);
+        return (q << 3) | (q >> 2);
+    }
+
+    private static int expand6(int q) {
+        q = Math.min(63, q);
+        return (q << 2) | (q >> 4);
+    }
+}
@@ -0,0 +1,165 @@
+package com.wedo.utils.graphic;
+
+
+/**
+ * 逐行输入的面积平均缩放
+ * <p>
+ * 源图按从上到下的顺序逐行传入，每行先横向缩放到目标宽度，再按覆盖面积累加到对应的目标行，
+ * 目标行累加完成后立即写入 dst。任何时刻只保存一行累加结果，不需要完整的源图，
+ * 适合与分块解码配合处理超大图片。结果与 {@link PixelScaler#scaleArea} 相差不超过 1
+ */
+public final class StreamingAreaScaler {
+    /* 与 PixelScaler 相同的权重精度 */
+    private static final int WEIGHT_BITS = 14;
+
+    private final int srcWidth;
+    private final int srcHeight;
+    private final PixelBuffer dst;
+    private final PixelScaler.AreaWeights xWeights;
+    private final PixelScaler.AreaWeights yWeights;
+
+    /* 当前目标行的累加结果，每个通道为 8 位小数的定点数乘以纵向权重 */
+    private final int[] a;
+    private final int[] r;
+    private final int[] g;
+    private final int[] b;
+    /* 横向缩放后的一行，8 位小数 */
+    private final int[] row;
+
+    private int srcRow;
+    private int dstRow;
+
+    /**
+     * @param srcWidth  源宽
+     * @param srcHeight 源高（将要传入的总行数）
+     * @param dst       目标像素，目标尺寸即 dst 的尺寸
+     */
+    public StreamingAreaScaler(int srcWidth, int srcHeight, PixelBuffer dst) {
+        if (srcWidth <= 0 || srcHeight <= 0) {
+            throw new IllegalArgumentException("invalid source size: " + srcWidth + "x" + srcHeight);
+        }
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.dst = dst;
+        int dw = dst.getWidth();
+        xWeights = new PixelScaler.AreaWeights(srcWidth, dw);
+        yWeights = new PixelScaler.AreaWeights(srcHeight, dst.getHeight());
+        a = new int[dw];
+        r = new int[dw];
+        g = new int[dw];
+        b = new int[dw];
+        row = new int[dw * 4];
+    }
+
+    /**
+     * 传入下一行源像素
+     *
+     * @param pixels 像素数组
+     * @param offset 该行第一个像素的位置，之后 srcWidth 个像素为该行
+     */
+    public void pushRow(int[] pixels, int offset) {
+        if (srcRow >= srcHeight) {
+            throw new IllegalStateException("all " + srcHeight + " rows have been pushed");
+        }
+        scaleRow(pixels, offset);
+        int dh = dst.getHeight();
+        // 一个源行可能跨越相邻的两个目标行
+        while (dstRow < dh) {
+            int first = yWeights.first[dstRow];
+            int k = srcRow - first;
+            if (k < 0 || k >= yWeights.count[dstRow]) break;
+            accumulate(yWeights.weights[yWeights.offset[dstRow] + k], k == 0);
+            if (k < yWeights.count[dstRow] - 1) break;
+            emit(dstRow++);
+        }
+        srcRow++;
+    }
+
+    /**
+     * 传入若干行源像素
+     *
+     * @param pixels 像素数组
+     * @param offset 第一行第一个像素的位置
+     * @param stride 行宽
+     * @param rows   行数
+     */
+    public void pushRows(int[] pixels, int offset, int stride, int rows) {
+        for (int i = 0; i < rows; i++) {
+            pushRow(pixels, offset + i * stride);
+        }
+    }
+
+    /**
+     * 已传入的行数
+     */
+    public int getRowCount() {
+        return srcRow;
+    }
+
+    /**
+     * 是否已传入全部源行（此时所有目标行均已写入）
+     */
+    public boolean isFinished() {
+        return srcRow == srcHeight;
+    }
+
+    public int getSrcWidth() {
+        return srcWidth;
+    }
+
+    public int getSrcHeight() {
+        return srcHeight;
+    }
+
+    private void scaleRow(int[] pixels, int offset) {
+        int dw = dst.getWidth();
+        int shift = WEIGHT_BITS - 8;
+        int round = 1 << (shift - 1);
+        for (int dx = 0, j = 0; dx < dw; dx++, j += 4) {
+            int sx = offset + xWeights.first[dx];
+            int wi = xWeights.offset[dx];
+            int n = xWeights.count[dx];
+            int sa = round, sr = round, sg = round, sb = round;
+            for (int k = 0; k < n; k++, sx++) {
+                int w = xWeights.weights[wi + k];
+                int p = pixels[sx];
+                sa += (p >>> 24) * w;
+                sr += ((p >> 16) & 0xff) * w;
+                sg += ((p >> 8) & 0xff) * w;
+                sb += (p & 0xff) * w;
+            }
+            row[j] = sa >> shift;
+            row[j + 1] = sr >> shift;
+            row[j + 2] = sg >> shift;
+            row[j + 3] = sb >> shift;
+        }
+    }
+
+    private void accumulate(int w, boolean reset) {
+        int dw = dst.getWidth();
+        for (int x = 0, j = 0; x < dw; x++, j += 4) {
+            if (reset) {
+                a[x] = row[j] * w;
+                r[x] = row[j + 1] * w;
+                g[x] = row[j + 2] * w;
+                b[x] = row[j + 3] * w;
+            } else {
+                a[x] += row[j] * w;
+                r[x] += row[j + 1] * w;
+                g[x] += row[j + 2] * w;
+                b[x] += row[j + 3] * w;
+            }
+        }
+    }
+
+    private void emit(int y) {
+        int[] out = dst.getPixels();
+        int o = dst.indexOf(0, y);
+        int shift = WEIGHT_BITS + 8;
+        int round = 1 << (shift - 1);
+        for (int x = 0; x < dst.getWidth(); x++) {
+            out[o + x] = ((a[x] + round) >>> shift << 24) | ((r[x] + round) >>> shift << 16)
+                    | ((g[x] + round) >>> shift << 8) | ((b[x] + round) >>> shift);
+        }
+    }
+}
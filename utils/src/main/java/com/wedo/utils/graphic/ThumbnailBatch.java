@@ -0,0 +1,344 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * 批量生成缩略图
+ * <p>
+ * 在固定大小的线程池中并行解码、缩放、编码，结果直接写入文件。提交任务的线程受两个信号量限制：
+ * 排队的任务数不超过线程数的 2 倍；正在处理的文件预估内存之和不超过预算（大图占用更多额度，
+ * 预算紧张时并发度自动降低，单个文件超过预算时独占全部额度）。
+ * 每个文件完成或失败时回调 {@link Listener}，结束后返回成功数、失败原因、写入字节数和吞吐量。
+ * 实际的解码与编码由 {@link Transcoder} 完成，默认实现见 {@link BitmapTranscoder}
+ */
+public final class ThumbnailBatch {
+    /**
+     * 每个线程最多排队的任务数
+     */
+    private static final int QUEUE_PER_THREAD = 2;
+
+    /**
+     * 转码器
+     */
+    public interface Transcoder {
+        /**
+         * 预估处理一个文件时占用的内存（字节），在提交任务的线程中调用
+         *
+         * @param source 源文件
+         * @return 预估内存，无法预估时返回 0
+         */
+        long estimateMemory(File source);
+
+        /**
+         * 输出文件的扩展名（不含点）
+         */
+        String getExtension();
+
+        /**
+         * 生成缩略图并写入 target，在线程池中调用
+         *
+         * @param source 源文件
+         * @param target 目标文件
+         */
+        void transcode(File source, File target) throws IOException;
+    }
+
+    /**
+     * 进度回调，在线程池的线程中调用（已同步，同一时刻只有一个回调）
+     */
+    public interface Listener {
+        /**
+         * @param completed 已完成（含失败）的文件数
+         * @param total     文件总数
+         * @param source    刚完成的源文件
+         * @param error     失败原因，成功时为 null
+         */
+        void onProgress(int completed, int total, File source, Throwable error);
+    }
+
+    /**
+     * 执行结果
+     */
+    public static final class Result {
+        public final int total;
+        public final int succeeded;
+        /**
+         * 失败的源文件及原因，按完成顺序排列
+         */
+        public final Map<File, Throwable> failures;
+        /**
+         * 写入的总字节数
+         */
+        public final long bytesWritten;
+        public final long elapsedMillis;
+        /**
+         * 是否因线程中断提前结束（未提交的文件不计入成功与失败）
+         */
+        public final boolean interrupted;
+
+        Result(int total, int succeeded, Map<File, Throwable> failures, long bytesWritten, long elapsedMillis,
+               boolean interrupted) {
+            this.total = total;
+            this.succeeded = succeeded;
+            this.failures = Collections.unmodifiableMap(failures);
+            this.bytesWritten = bytesWritten;
+            this.elapsedMillis = elapsedMillis;
+            this.interrupted = interrupted;
+        }
+
+        /**
+         * 每秒处理的文件数
+         */
+        public float getFilesPerSecond() {
+            return (succeeded + failures.size()) * 1000f / Math.max(1, elapsedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "Result[total=" + total + ", succeeded=" + succeeded + ", failed=" + failures.size()
+                    + ", bytes=" + bytesWritten + ", elapsed=" + elapsedMillis + "ms"
+                    + (interrupted ? ", interrupted" : "") + "]";
+        }
+    }
+
+    private final Transcoder transcoder;
+    private final int threads;
+    private final long memoryBudget;
+
+    /**
+     * 线程数等于 CPU 核数，内存预算为最大堆内存的 1/4
+     *
+     * @param transcoder 转码器
+     */
+    public ThumbnailBatch(Transcoder transcoder) {
+        this(transcoder, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * 线程数等于 CPU 核数
+     *
+     * @param transcoder   转码器
+     * @param memoryBudget 同时处理的文件预估内存之和的上限（字节）
+     */
+    public ThumbnailBatch(Transcoder transcoder, long memoryBudget) {
+        this(transcoder, Runtime.getRuntime().availableProcessors(), memoryBudget);
+    }
+
+    /**
+     * @param transcoder   转码器
+     * @param threads      最大线程数
+     * @param memoryBudget 同时处理的文件预估内存之和的上限（字节）
+     */
+    public ThumbnailBatch(Transcoder transcoder, int threads, long memoryBudget) {
+        this.transcoder = transcoder;
+        this.threads = Math.max(1, threads);
+        this.memoryBudget = Math.max(1, memoryBudget);
+    }
+
+    /**
+     * 处理所有文件，全部完成后返回
+     *
+     * @param sources   源文件
+     * @param outputDir 输出目录，输出文件名为源文件名去掉扩展名后加上 {@link Transcoder#getExtension()}
+     * @param listener  进度回调，可为 null
+     * @return 执行结果
+     */
+    public Result run(List<File> sources, final File outputDir, final Listener listener) {
+        final long start = System.currentTimeMillis();
+        final int total = sources.size();
+        outputDir.mkdirs();
+        // 内存额度以 KB 为单位，避免超出 int 范围
+        final int memoryPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudget >> 10));
+        final Semaphore memory = new Semaphore(memoryPermits);
+        final int queuePermits = threads * QUEUE_PER_THREAD;
+        final Semaphore queue = new Semaphore(queuePermits);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final Map<File, Throwable> failures = new LinkedHashMap<>();
+        final long[] bytesWritten = new long[1];
+        final int[] completed = new int[1];
+        ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "thumbnail-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        boolean interrupted = false;
+        try {
+            for (final File source : sources) {
+                final int permits = (int) Math.min(memoryPermits,
+                        Math.max(1, (transcoder.estimateMemory(source) + 1023) >> 10));
+                try {
+                    queue.acquire();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+                try {
+                    memory.acquire(permits);
+                } catch (InterruptedException e) {
+                    queue.release();
+                    interrupted = true;
+                    break;
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        File target = getTarget(outputDir, source);
+                        Throwable error = null;
+                        try {
+                            transcoder.transcode(source, target);
+                        } catch (Throwable t) {
+                            error = t;
+                            target.delete();
+                        } finally {
+                            memory.release(permits);
+                            queue.release();
+                        }
+                        synchronized (failures) {
+                            if (error == null) {
+                                succeeded.incrementAndGet();
+                                bytesWritten[0] += target.length();
+                            } else {
+                                failures.put(source, error);
+                            }
+                            completed[0]++;
+                            if (listener != null) {
+                                listener.onProgress(completed[0], total, source, error);
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // 等待已提交的任务全部结束
+        while (true) {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (failures) {
+            return new Result(total, succeeded.get(), new LinkedHashMap<>(failures), bytesWritten[0],
+                    System.currentTimeMillis() - start, interrupted);
+        }
+    }
+
+    /**
+     * 输出文件
+     */
+    File getTarget(File outputDir, File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return new File(outputDir, name + "." + transcoder.getExtension());
+    }
+
+    /**
+     * 默认转码器：按 {@link ImageProbe} 读取的宽高选择采样大小解码（复用 {@link BitmapPool}），
+     * 面积平均缩放到不超过指定宽高（保持宽高比），再编码写入文件
+     */
+    public static final class BitmapTranscoder implements Transcoder {
+        private final int maxWidth;
+        private final int maxHeight;
+        private final Bitmap.CompressFormat format;
+        private final int quality;
+
+        /**
+         * @param maxWidth  最大宽度
+         * @param maxHeight 最大高度
+         * @param format    编码格式
+         * @param quality   编码质量 0-100
+         */
+        public BitmapTranscoder(int maxWidth, int maxHeight, Bitmap.CompressFormat format, int quality) {
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+            this.format = format;
+            this.quality = quality;
+        }
+
+        @Override
+        public long estimateMemory(File source) {
+            ImageProbe.Info info = new ImageProbe().probe(source);
+            if (info == null) return 0;
+            int sampleSize = TiledBitmapLoader.getSampleSize(info.width, info.height, maxWidth, maxHeight);
+            long decoded = 4L * ((info.width + sampleSize - 1) / sampleSize) * ((info.height + sampleSize - 1) / sampleSize);
+            // 解码结果、其像素数组副本，以及缩略图
+            return 2 * decoded + 8L * maxWidth * maxHeight;
+        }
+
+        @Override
+        public String getExtension() {
+            return format == Bitmap.CompressFormat.PNG ? "png" : format == Bitmap.CompressFormat.JPEG ? "jpg" : "webp";
+        }
+
+        @Override
+        public void transcode(File source, File target) throws IOException {
+            String path = source.getAbsolutePath();
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            ImageUtil.decodeBounds(path, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                throw new IOException("unsupported image: " + source);
+            }
+            options.inSampleSize = TiledBitmapLoader.getSampleSize(options.outWidth, options.outHeight,
+                    maxWidth, maxHeight);
+            Bitmap decoded = BitmapPool.getInstance().decodeFile(path, options);
+            if (decoded == null) {
+                throw new IOException("failed to decode " + source);
+            }
+            float ratio = Math.min(1f, ImageUtil.getScaleToFitRatio(decoded.getWidth(), decoded.getHeight(),
+                    maxWidth, maxHeight));
+            Bitmap thumbnail = decoded;
+            if (ratio < 1f) {
+                // 已在线程池中并行处理多个文件，单个文件的缩放不再并行
+                thumbnail = ImageUtil.resample(decoded, Math.max(1, Math.round(decoded.getWidth() * ratio)),
+                        Math.max(1, Math.round(decoded.getHeight() * ratio)), ImageUtil.FILTER_AREA, null);
+                BitmapPool.getInstance().put(decoded);
+            }
+            OutputStream out = null;
+            try {
+                out = new BufferedOutputStream(new FileOutputStream(target));
+                if (!thumbnail.compress(format, quality, out)) {
+                    throw new IOException("failed to encode " + target);
+                }
+            } finally {
+                BitmapPool.getInstance().put(thumbnail);
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.wedo.utils.graphic;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * 总大小受限的 LRU 缓存，可选把淘汰的对象转入软引用层
+ * <p>
+ * 每个对象的大小和节省的内存在放入时计算并保存，移除时减去保存的值，
+ * 对象之后变化（如 Bitmap 被 recycle 后大小为 0）不会造成统计偏差；失效的对象在 get 时移除。
+ * 注：非线程安全，由调用方同步
+ */
+abstract class TieredLruCache<V> {
+    private final LinkedHashMap<String, Entry<V>> strong = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<String, SoftReference<V>> soft;
+
+    private long maxSize;
+    private long size;
+    private long savedSize;
+    /* 软引用层超过该数量时清理已被 GC 回收的条目 */
+    private int softPruneThreshold = 64;
+
+    private int hitCount;
+    private int softHitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * @param maxSize  强引用层的容量
+     * @param softTier 是否把淘汰的对象转入软引用层
+     */
+    TieredLruCache(long maxSize, boolean softTier) {
+        this.maxSize = maxSize;
+        this.soft = softTier ? new HashMap<String, SoftReference<V>>() : null;
+    }
+
+    /**
+     * 对象的大小，放入时调用
+     */
+    abstract long sizeOf(V value);
+
+    /**
+     * 对象节省的内存，放入时调用
+     */
+    abstract long savedBytesOf(V value);
+
+    /**
+     * 对象是否仍可使用
+     */
+    abstract boolean isValid(V value);
+
+    V get(String key) {
+        if (key == null) return null;
+        Entry<V> entry = strong.get(key);
+        if (entry != null) {
+            if (isValid(entry.value)) {
+                hitCount++;
+                return entry.value;
+            }
+            strong.remove(key);
+            release(entry);
+        }
+        if (soft != null) {
+            SoftReference<V> ref = soft.remove(key);
+            V value = ref == null ? null : ref.get();
+            if (value != null && isValid(value)) {
+                softHitCount++;
+                putStrong(key, value);
+                return value;
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    void put(String key, V value) {
+        if (key == null || value == null) return;
+        if (soft != null) {
+            soft.remove(key);
+        }
+        putStrong(key, value);
+    }
+
+    void remove(String key) {
+        Entry<V> entry = strong.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+        if (soft != null) {
+            soft.remove(key);
+        }
+    }
+
+    void clear() {
+        strong.clear();
+        size = 0;
+        savedSize = 0;
+        if (soft != null) {
+            soft.clear();
+        }
+    }
+
+    void clearSoft() {
+        if (soft != null) {
+            soft.clear();
+        }
+    }
+
+    void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getSavedSize() {
+        return savedSize;
+    }
+
+    int getCount() {
+        return strong.size();
+    }
+
+    int getHitCount() {
+        return hitCount;
+    }
+
+    int getSoftHitCount() {
+        return softHitCount;
+    }
+
+    int getMissCount() {
+        return missCount;
+    }
+
+    int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 淘汰最久未使用的对象直到总大小不超过 targetSize
+     */
+    void trimToSize(long targetSize) {
+        Iterator<Map.Entry<String, Entry<V>>> iterator = strong.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            Map.Entry<String, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            Entry<V> entry = eldest.getValue();
+            release(entry);
+            evictionCount++;
+            if (soft != null && isValid(entry.value)) {
+                soft.put(eldest.getKey(), new SoftReference<>(entry.value));
+            }
+        }
+        if (soft != null && soft.size() > softPruneThreshold) {
+            Iterator<SoftReference<V>> refs = soft.values().iterator();
+            while (refs.hasNext()) {
+                if (refs.next().get() == null) {
+                    refs.remove();
+                }
+            }
+            softPruneThreshold = Math.max(64, soft.size() * 2);
+        }
+    }
+
+    private void putStrong(String key, V value) {
+        Entry<V> entry = new Entry<>(value, sizeOf(value), savedBytesOf(value));
+        Entry<V> previous = strong.put(key, entry);
+        if (previous != null) {
+            release(previous);
+        }
+        size += entry.size;
+        savedSize += entry.saved;
+        trimToSize(maxSize);
+    }
+
+    private void release(Entry<V> entry) {
+        size -= entry.size;
+        savedSize -= entry.saved;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long size;
+        final long saved;
+
+        Entry(V value, long size, long saved) {
+            this.value = value;
+            this.size = size;
+            this.saved = saved;
+        }
+    }
+}
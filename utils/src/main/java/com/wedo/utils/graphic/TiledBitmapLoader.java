@@ -0,0 +1,314 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+
+/**
+ * 超大图片的分块加载
+ * <p>
+ * 通过 {@link BitmapRegionDecoder} 把指定区域按横条逐块解码（inSampleSize 取不小于目标分辨率的最大 2 的幂），
+ * 每块的像素逐行交给 {@link StreamingAreaScaler} 缩放到精确的目标尺寸，解码完即丢弃，
+ * 任何时刻只保存不超过预算的一两块像素和目标图片，不会产生原始分辨率的完整图片。
+ * 传入线程池时，解码与缩放流水线执行：两块像素缓冲区通过阻塞队列在解码线程与当前线程间轮流传递
+ */
+public final class TiledBitmapLoader {
+    /**
+     * 默认每块像素的内存预算（字节）
+     */
+    public static final long DEFAULT_TILE_BYTES = 4 * 1024 * 1024;
+
+    private TiledBitmapLoader() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 加载整张图片并缩放到不超过指定宽高（保持宽高比）
+     *
+     * @param filePath  文件路径
+     * @param maxWidth  最大宽度
+     * @param maxHeight 最大高度
+     * @return 图片，解码失败时返回 null
+     */
+    public static Bitmap decodeToFit(String filePath, int maxWidth, int maxHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(filePath, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+        float ratio = Math.min(1f, ImageUtil.getScaleToFitRatio(options.outWidth, options.outHeight, maxWidth, maxHeight));
+        int width = Math.max(1, Math.round(options.outWidth * ratio));
+        int height = Math.max(1, Math.round(options.outHeight * ratio));
+        return decode(filePath, null, width, height, DEFAULT_TILE_BYTES, null);
+    }
+
+    /**
+     * 加载图片的指定区域并缩放到精确的目标尺寸
+     *
+     * @param filePath  文件路径
+     * @param region    源图中的区域，为 null 时为整张图片
+     * @param dstWidth  目标宽
+     * @param dstHeight 目标高
+     * @return 图片，解码失败时返回 null
+     */
+    public static Bitmap decode(String filePath, Rect region, int dstWidth, int dstHeight) {
+        return decode(filePath, region, dstWidth, dstHeight, DEFAULT_TILE_BYTES, null);
+    }
+
+    /**
+     * 加载图片的指定区域并缩放到精确的目标尺寸
+     *
+     * @param filePath  文件路径
+     * @param region    源图中的区域，为 null 时为整张图片
+     * @param dstWidth  目标宽
+     * @param dstHeight 目标高
+     * @param tileBytes 每块像素的内存预算（字节）
+     * @param executor  解码线程池，为 null 时在当前线程中依次解码和缩放
+     * @return 图片，解码失败时返回 null
+     */
+    public static Bitmap decode(String filePath, Rect region, int dstWidth, int dstHeight,
+                                long tileBytes, Executor executor) {
+        BitmapRegionDecoder decoder = null;
+        try {
+            decoder = BitmapRegionDecoder.newInstance(filePath, false);
+            Rect rect = region != null ? new Rect(region) : new Rect(0, 0, decoder.getWidth(), decoder.getHeight());
+            if (!rect.intersect(0, 0, decoder.getWidth(), decoder.getHeight())) return null;
+            PixelBuffer pixels = new PixelBuffer(dstWidth, dstHeight);
+            decode(decoder, rect, pixels, tileBytes, executor);
+            Bitmap bitmap = BitmapPool.getInstance().getDirty(dstWidth, dstHeight, Bitmap.Config.ARGB_8888);
+            if (bitmap == null) {
+                bitmap = Bitmap.createBitmap(dstWidth, dstHeight, Bitmap.Config.ARGB_8888);
+            }
+            ImageUtil.setPixels(bitmap, pixels);
+            return bitmap;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (decoder != null) {
+                decoder.recycle();
+            }
+        }
+    }
+
+    /**
+     * 把 decoder 中的指定区域分块解码并缩放到 dst（按预乘 alpha 缩放，dst 中为非预乘的像素）
+     *
+     * @param decoder   区域解码器（调用方负责回收）
+     * @param region    源图中的区域，必须在图片范围内
+     * @param dst       目标像素，目标尺寸即 dst 的尺寸
+     * @param tileBytes 每块像素的内存预算（字节）
+     * @param executor  解码线程池，为 null 时在当前线程中依次解码和缩放
+     */
+    public static void decode(BitmapRegionDecoder decoder, Rect region, PixelBuffer dst,
+                              long tileBytes, Executor executor) throws IOException {
+        int sampleSize = getSampleSize(region.width(), region.height(), dst.getWidth(), dst.getHeight());
+        TileSource source = new TileSource(decoder, region, sampleSize, tileBytes);
+        StreamingAreaScaler scaler = new StreamingAreaScaler(source.sampledWidth, source.sampledHeight, dst);
+        if (executor == null) {
+            Tile tile = new Tile(source.getTileCapacity());
+            try {
+                while (source.next(tile)) {
+                    push(scaler, tile);
+                }
+            } finally {
+                source.release();
+            }
+        } else {
+            decodePipelined(source, scaler, executor);
+        }
+        // 解码器的取整方式与预期不同而少了几行时，重复最后一行补齐
+        while (!scaler.isFinished() && scaler.getRowCount() > 0) {
+            scaler.pushRow(source.lastRow, 0);
+        }
+        PixelFilters.unpremultiply(dst);
+    }
+
+    /**
+     * 不小于目标分辨率的最大采样大小（2 的幂）
+     *
+     * @param srcWidth  源宽
+     * @param srcHeight 源高
+     * @param dstWidth  目标宽
+     * @param dstHeight 目标高
+     * @return 采样大小
+     */
+    public static int getSampleSize(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= dstWidth && srcHeight / (sampleSize * 2) >= dstHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 每块的源图行数：采样后一块像素不超过预算，且为采样大小的整数倍（保证各块采样后的行能无缝拼接）
+     *
+     * @param regionWidth 区域宽度
+     * @param sampleSize  采样大小
+     * @param tileBytes   每块像素的内存预算（字节）
+     * @return 行数
+     */
+    public static int getTileRows(int regionWidth, int sampleSize, long tileBytes) {
+        long sampledWidth = (regionWidth + sampleSize - 1) / sampleSize;
+        long sampledRows = Math.max(1, tileBytes / (4 * sampledWidth));
+        return (int) Math.min(Integer.MAX_VALUE / sampleSize, sampledRows) * sampleSize;
+    }
+
+    private static void push(StreamingAreaScaler scaler, Tile tile) {
+        int rows = Math.min(tile.height, scaler.getSrcHeight() - scaler.getRowCount());
+        scaler.pushRows(tile.pixels, 0, scaler.getSrcWidth(), rows);
+    }
+
+    /**
+     * 解码在线程池中执行，当前线程负责缩放
+     */
+    private static void decodePipelined(final TileSource source, StreamingAreaScaler scaler, Executor executor)
+            throws IOException {
+        // 只有两块缓冲区，队列容量大于缓冲区数量，放入时不会阻塞
+        final BlockingQueue<Tile> free = new ArrayBlockingQueue<>(3);
+        final BlockingQueue<Tile> ready = new ArrayBlockingQueue<>(3);
+        free.add(new Tile(source.getTileCapacity()));
+        free.add(new Tile(source.getTileCapacity()));
+        final Tile end = new Tile(0);
+        final IOException[] error = new IOException[1];
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Tile tile = free.take();
+                        if (tile == end || !source.next(tile)) break;
+                        ready.put(tile);
+                    }
+                } catch (IOException e) {
+                    error[0] = e;
+                } catch (RuntimeException e) {
+                    error[0] = new IOException(e);
+                } catch (InterruptedException e) {
+                    // 消费方已放弃
+                } finally {
+                    source.release();
+                    ready.offer(end);
+                }
+            }
+        });
+        boolean interrupted = false;
+        try {
+            while (true) {
+                Tile tile;
+                try {
+                    tile = ready.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+                if (tile == end) break;
+                push(scaler, tile);
+                free.offer(tile);
+            }
+        } finally {
+            // 通知解码线程结束（正常结束时它已退出，多放入一个也不影响）
+            free.offer(end);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // error 在放入 end 之前写入，队列保证其可见
+        if (error[0] != null) throw error[0];
+    }
+
+    /**
+     * 一块解码后的像素
+     */
+    private static final class Tile {
+        final int[] pixels;
+        int height;
+
+        Tile(int capacity) {
+            pixels = new int[capacity];
+        }
+    }
+
+    /**
+     * 按顺序逐块解码，复用同一个 Bitmap 作为 inBitmap
+     */
+    private static final class TileSource {
+        final BitmapRegionDecoder decoder;
+        final Rect region;
+        final int sampleSize;
+        final int tileRows;
+        final int sampledWidth;
+        final int sampledHeight;
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        final int[] lastRow;
+        private int top;
+
+        TileSource(BitmapRegionDecoder decoder, Rect region, int sampleSize, long tileBytes) {
+            this.decoder = decoder;
+            this.region = region;
+            this.sampleSize = sampleSize;
+            this.tileRows = Math.min(getTileRows(region.width(), sampleSize, tileBytes),
+                    ((region.height() + sampleSize - 1) / sampleSize) * sampleSize);
+            this.sampledWidth = (region.width() + sampleSize - 1) / sampleSize;
+            this.sampledHeight = (region.height() + sampleSize - 1) / sampleSize;
+            this.lastRow = new int[sampledWidth];
+            this.top = region.top;
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            options.inMutable = true;
+        }
+
+        int getTileCapacity() {
+            return sampledWidth * (tileRows / sampleSize);
+        }
+
+        /**
+         * 解码下一块到 tile
+         *
+         * @return 是否还有数据
+         */
+        boolean next(Tile tile) throws IOException {
+            if (top >= region.bottom) return false;
+            int bottom = Math.min(region.bottom, top + tileRows);
+            Rect rect = new Rect(region.left, top, region.right, bottom);
+            Bitmap bitmap = decoder.decodeRegion(rect, options);
+            if (bitmap == null) {
+                throw new IOException("failed to decode region " + rect);
+            }
+            // 复用 inBitmap 时结果位于其左上角，尺寸保持不变
+            options.inBitmap = bitmap;
+            int expectedRows = (bottom - top + sampleSize - 1) / sampleSize;
+            int width = Math.min(sampledWidth, bitmap.getWidth());
+            int height = Math.min(expectedRows, bitmap.getHeight());
+            bitmap.getPixels(tile.pixels, 0, sampledWidth, 0, 0, width, height);
+            // 按预乘 alpha 缩放，透明区域的边缘没有暗边
+            PixelFilters.premultiply(new PixelBuffer(tile.pixels, 0, sampledWidth, width, height));
+            // 解码器向下取整时少一列，重复最后一列补齐
+            for (int y = 0; width < sampledWidth && y < height; y++) {
+                int o = y * sampledWidth;
+                for (int x = width; x < sampledWidth; x++) {
+                    tile.pixels[o + x] = tile.pixels[o + width - 1];
+                }
+            }
+            tile.height = height;
+            System.arraycopy(tile.pixels, (height - 1) * sampledWidth, lastRow, 0, sampledWidth);
+            top = bottom;
+            return true;
+        }
+
+        /**
+         * 把复用的 Bitmap 放回 {@link BitmapPool}
+         */
+        void release() {
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.wedo.utils.graphic;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import androidx.annotation.ColorInt;
+import android.view.Gravity;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+
+/**
+ * 可复用的水印模板
+ * <p>
+ * 文字或图片水印在每个缩放比例下只渲染一次并缓存（最多缓存 {@link #MAX_CACHED_SCALES} 个比例），
+ * 添加水印时直接绘制到可变的目标图片上，只混合水印覆盖的区域，不复制整张图片。
+ * 批量添加时按图片宽度计算缩放比例，比例按对数取整（每倍 {@link #SCALE_STEPS_PER_OCTAVE} 级，相邻两级相差约 9%），
+ * 宽度相近的图片使用同一个缓存的水印。
+ * 模板创建后不再修改，可在多个线程中同时使用
+ */
+public final class WatermarkTemplate {
+    /**
+     * 缓存的缩放比例个数上限
+     */
+    public static final int MAX_CACHED_SCALES = 8;
+    /**
+     * 批量添加时缩放比例每增大一倍的级数
+     */
+    public static final int SCALE_STEPS_PER_OCTAVE = 8;
+
+    /**
+     * 批量添加时每个分段至少处理的图片数
+     */
+    private static final int MIN_IMAGES_PER_BAND = 1;
+
+    private final String text;
+    private final float textSize;
+    private final int color;
+    private final Bitmap image;
+    private final Paint paint;
+    private final Map<Float, Bitmap> rendered = new LinkedHashMap<>(MAX_CACHED_SCALES, 0.75f, true);
+
+    private WatermarkTemplate(String text, float textSize, int color, Bitmap image, int alpha) {
+        this.text = text;
+        this.textSize = textSize;
+        this.color = color;
+        this.image = image;
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setAlpha(alpha);
+    }
+
+    /**
+     * 文字水印
+     *
+     * @param content  水印文字
+     * @param textSize 缩放比例为 1 时的字号
+     * @param color    颜色
+     * @return 水印模板
+     */
+    public static WatermarkTemplate fromText(String content, float textSize, @ColorInt int color) {
+        return new WatermarkTemplate(content, textSize, color, null, 255);
+    }
+
+    /**
+     * 图片水印
+     *
+     * @param watermark 缩放比例为 1 时的水印图片（模板使用期间不要回收）
+     * @param alpha     透明度 0-255
+     * @return 水印模板
+     */
+    public static WatermarkTemplate fromImage(Bitmap watermark, int alpha) {
+        return new WatermarkTemplate(null, 0, 0, watermark, alpha);
+    }
+
+    /**
+     * 缩放比例为 1 时的水印宽度
+     */
+    public int getWidth() {
+        return getRendered(1f).getWidth();
+    }
+
+    /**
+     * 缩放比例为 1 时的水印高度
+     */
+    public int getHeight() {
+        return getRendered(1f).getHeight();
+    }
+
+    /**
+     * 在指定位置添加水印
+     *
+     * @param dst   可变的目标图片
+     * @param x     水印左上角坐标 x
+     * @param y     水印左上角坐标 y
+     * @param scale 缩放比例
+     */
+    public void apply(Bitmap dst, int x, int y, float scale) {
+        checkMutable(dst);
+        new Canvas(dst).drawBitmap(getRendered(scale), x, y, paint);
+    }
+
+    /**
+     * 按对齐方式添加水印
+     *
+     * @param dst     可变的目标图片
+     * @param gravity 对齐方式，如 Gravity.BOTTOM | Gravity.RIGHT
+     * @param marginX 与图片左右边缘的距离
+     * @param marginY 与图片上下边缘的距离
+     * @param scale   缩放比例
+     */
+    public void apply(Bitmap dst, int gravity, int marginX, int marginY, float scale) {
+        checkMutable(dst);
+        Bitmap watermark = getRendered(scale);
+        Rect container = new Rect(0, 0, dst.getWidth(), dst.getHeight());
+        Rect bounds = new Rect();
+        Gravity.apply(gravity, watermark.getWidth(), watermark.getHeight(), container, marginX, marginY, bounds);
+        new Canvas(dst).drawBitmap(watermark, bounds.left, bounds.top, paint);
+    }
+
+    /**
+     * 批量添加水印，水印宽度为图片宽度的 widthFraction 倍，在 {@link ParallelBands#getDefaultExecutor()} 上执行
+     *
+     * @param images         可变的目标图片
+     * @param gravity        对齐方式
+     * @param marginFraction 与图片边缘的距离占图片宽度的比例
+     * @param widthFraction  水印宽度占图片宽度的比例
+     */
+    public void applyAll(List<Bitmap> images, int gravity, float marginFraction, float widthFraction) {
+        applyAll(images, gravity, marginFraction, widthFraction, ParallelBands.getDefaultExecutor());
+    }
+
+    /**
+     * 批量添加水印，水印宽度为图片宽度的 widthFraction 倍
+     *
+     * @param images         可变的目标图片
+     * @param gravity        对齐方式
+     * @param marginFraction 与图片边缘的距离占图片宽度的比例
+     * @param widthFraction  水印宽度占图片宽度的比例
+     * @param executor       线程池，为 null 时在当前线程中执行
+     */
+    public void applyAll(final List<Bitmap> images, final int gravity, final float marginFraction,
+                         final float widthFraction, Executor executor) {
+        final int baseWidth = getWidth();
+        ParallelBands.run(executor, images.size(), MIN_IMAGES_PER_BAND, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    Bitmap dst = images.get(i);
+                    float scale = getScaleForWidth(baseWidth, dst.getWidth() * widthFraction);
+                    int margin = Math.round(dst.getWidth() * marginFraction);
+                    apply(dst, gravity, margin, margin, scale);
+                }
+            }
+        });
+    }
+
+    /**
+     * 使水印宽度接近 targetWidth 的缩放比例，取 2 的 k/{@link #SCALE_STEPS_PER_OCTAVE} 次方中最接近的一个
+     *
+     * @param baseWidth   缩放比例为 1 时的水印宽度
+     * @param targetWidth 期望的水印宽度
+     * @return 缩放比例
+     */
+    static float getScaleForWidth(int baseWidth, float targetWidth) {
+        double ratio = Math.max(1f, targetWidth) / Math.max(1, baseWidth);
+        long steps = Math.round(Math.log(ratio) / Math.log(2) * SCALE_STEPS_PER_OCTAVE);
+        return (float) Math.pow(2, (double) steps / SCALE_STEPS_PER_OCTAVE);
+    }
+
+    /**
+     * 清除缓存的渲染结果（其他线程可能仍在绘制，不回收，由 GC 释放）
+     */
+    public void clear() {
+        synchronized (rendered) {
+            rendered.clear();
+        }
+    }
+
+    private Bitmap getRendered(float scale) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("scale must be positive: " + scale);
+        }
+        synchronized (rendered) {
+            Bitmap bitmap = rendered.get(scale);
+            if (bitmap == null) {
+                bitmap = image != null ? renderImage(scale) : renderText(scale);
+                rendered.put(scale, bitmap);
+                if (rendered.size() > MAX_CACHED_SCALES) {
+                    // 淘汰最久未使用的比例，不回收（其他线程可能仍在绘制）
+                    rendered.remove(rendered.keySet().iterator().next());
+                }
+            }
+            return bitmap;
+        }
+    }
+
+    private Bitmap renderText(float scale) {
+        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(color);
+        textPaint.setTextSize(textSize * scale);
+        Rect bounds = new Rect();
+        textPaint.getTextBounds(text, 0, text.length(), bounds);
+        Bitmap bitmap = Bitmap.createBitmap(Math.max(1, bounds.width()), Math.max(1, bounds.height()),
+                Bitmap.Config.ARGB_8888);
+        new Canvas(bitmap).drawText(text, -bounds.left, -bounds.top, textPaint);
+        return bitmap;
+    }
+
+    private Bitmap renderImage(float scale) {
+        if (scale == 1f) return image;
+        int width = Math.max(1, Math.round(image.getWidth() * scale));
+        int height = Math.max(1, Math.round(image.getHeight() * scale));
+        if (scale < 1f) {
+            // 缩小时面积平均，避免细线和小字丢失
+            return ImageUtil.scaleArea(image, width, height);
+        }
+        return Bitmap.createScaledBitmap(image, width, height, true);
+    }
+
+    private static void checkMutable(Bitmap dst) {
+        if (!dst.isMutable()) {
+            throw new IllegalArgumentException("destination bitmap must be mutable");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.wedo.utils.graphic.blur;
+
+
+/**
+ * 模糊算法
+ */
+public enum BlurAlgorithm {
+    /**
+     * stack blur，见 {@link FastBlur}
+     */
+    STACK,
+    /**
+     * 三次盒式模糊，耗时与半径无关，适合大半径，见 {@link BoxBlur}
+     */
+    BOX,
+    /**
+     * RenderScript 模糊，半径上限 25，超出时改用 {@link #BOX}，见 {@link RSBlur}
+     */
+    RENDER_SCRIPT
+}
@@ -0,0 +1,210 @@
+package com.wedo.utils.graphic.blur;
+
+
+/**
+ * 模糊运算的可复用缓冲区
+ * <p>
+ * 持有像素数组、r/g/b 中间结果、vmin 表、除法查找表和 stack 等，按需扩容，
+ * 重复模糊相同尺寸、相同半径的图片时（串行模式）不再分配任何内存，适合实时预览等高频模糊场景。
+ * 注：非线程安全，每个线程单独使用一个实例
+ */
+public final class BlurContext {
+    /**
+     * 每种除法查找表缓存的个数（半径越大表越大，stack blur 半径 25 时约 680KB）
+     */
+    private static final int DIV_TABLE_CACHE_SIZE = 4;
+
+    private int[] pixels;
+    private int[] alpha;
+    private int[] red;
+    private int[] green;
+    private int[] blue;
+
+    private int[] vminX;
+    private int[] vminY;
+    private int vminWidth = -1;
+    private int vminHeight = -1;
+    private int vminRadius = -1;
+
+    private int[][] stack;
+    private int[] ring;
+
+    private final int[][] scratch = new int[2][];
+
+    private final TableCache divTables = new TableCache();
+    private final TableCache boxTables = new TableCache();
+
+    /**
+     * 获取至少能容纳 size 个像素的数组
+     *
+     * @param size 像素个数
+     * @return 像素数组（内容未清空）
+     */
+    public int[] obtainPixels(int size) {
+        if (pixels == null || pixels.length < size) {
+            pixels = new int[size];
+        }
+        return pixels;
+    }
+
+    int[] obtainAlpha(int size) {
+        if (alpha == null || alpha.length < size) {
+            alpha = new int[size];
+        }
+        return alpha;
+    }
+
+    int[] obtainRed(int size) {
+        if (red == null || red.length < size) {
+            red = new int[size];
+        }
+        return red;
+    }
+
+    int[] obtainGreen(int size) {
+        if (green == null || green.length < size) {
+            green = new int[size];
+        }
+        return green;
+    }
+
+    int[] obtainBlue(int size) {
+        if (blue == null || blue.length < size) {
+            blue = new int[size];
+        }
+        return blue;
+    }
+
+    /**
+     * 获取第 index 块临时缓冲区（与像素数组及其他临时缓冲区互不重叠）
+     *
+     * @param index 缓冲区编号：0 或 1
+     * @param size  大小
+     * @return 临时缓冲区（内容未清空）
+     */
+    int[] obtainScratch(int index, int size) {
+        if (scratch[index] == null || scratch[index].length < size) {
+            scratch[index] = new int[size];
+        }
+        return scratch[index];
+    }
+
+    /**
+     * 横向 vmin 表：vminX[x] = min(x + radius + 1, w - 1)
+     */
+    int[] obtainVminX(int w, int h, int radius) {
+        prepareVmin(w, h, radius);
+        return vminX;
+    }
+
+    /**
+     * 纵向 vmin 表：vminY[y] = min(y + radius + 1, h - 1) * w
+     */
+    int[] obtainVminY(int w, int h, int radius) {
+        prepareVmin(w, h, radius);
+        return vminY;
+    }
+
+    private void prepareVmin(int w, int h, int radius) {
+        if (w == vminWidth && h == vminHeight && radius == vminRadius) return;
+        if (vminX == null || vminX.length < w) {
+            vminX = new int[w];
+        }
+        if (vminY == null || vminY.length < h) {
+            vminY = new int[h];
+        }
+        int r1 = radius + 1;
+        for (int x = 0; x < w; x++) {
+            vminX[x] = Math.min(x + r1, w - 1);
+        }
+        for (int y = 0; y < h; y++) {
+            vminY[y] = Math.min(y + r1, h - 1) * w;
+        }
+        vminWidth = w;
+        vminHeight = h;
+        vminRadius = radius;
+    }
+
+    int[][] obtainStack(int radius, int channels) {
+        int div = radius + radius + 1;
+        if (stack == null || stack.length != div || stack[0].length != channels) {
+            stack = new int[div][channels];
+        }
+        return stack;
+    }
+
+    int[] obtainRing(int div) {
+        if (ring == null || ring.length != div) {
+            ring = new int[div];
+        }
+        return ring;
+    }
+
+    /**
+     * 获取指定半径的除法查找表，最近使用的几个半径会被缓存
+     */
+    int[] obtainDivTable(int radius) {
+        int[] dv = divTables.get(radius);
+        if (dv == null) {
+            dv = FastBlur.createDivTable(radius);
+            divTables.put(radius, dv);
+        }
+        return dv;
+    }
+
+    /**
+     * 获取指定盒子半径的除法查找表，最近使用的几个半径会被缓存
+     */
+    int[] obtainBoxTable(int boxRadius) {
+        int[] table = boxTables.get(boxRadius);
+        if (table == null) {
+            table = BoxBlur.createBoxTable(boxRadius);
+            boxTables.put(boxRadius, table);
+        }
+        return table;
+    }
+
+    /**
+     * 释放所有缓冲区，之后仍可继续使用（会重新分配）
+     */
+    public void release() {
+        pixels = alpha = red = green = blue = vminX = vminY = null;
+        vminWidth = vminHeight = vminRadius = -1;
+        stack = null;
+        ring = null;
+        scratch[0] = scratch[1] = null;
+        divTables.clear();
+        boxTables.clear();
+    }
+
+    /**
+     * 按半径缓存查找表，超出容量时覆盖最早放入的表
+     */
+    private static final class TableCache {
+        private final int[] keys = new int[DIV_TABLE_CACHE_SIZE];
+        private final int[][] tables = new int[DIV_TABLE_CACHE_SIZE][];
+        private int next;
+
+        int[] get(int key) {
+            for (int i = 0; i < DIV_TABLE_CACHE_SIZE; i++) {
+                if (tables[i] != null && keys[i] == key) {
+                    return tables[i];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, int[] table) {
+            keys[next] = key;
+            tables[next] = table;
+            next = (next + 1) % DIV_TABLE_CACHE_SIZE;
+        }
+
+        void clear() {
+            for (int i = 0; i < DIV_TABLE_CACHE_SIZE; i++) {
+                tables[i] = null;
+            }
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.wedo.utils.graphic.blur;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RSRuntimeException;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicBlur;
+import android.renderscript.Type;
+
+import com.wedo.utils.graphic.PixelBuffer;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * 长期持有的模糊引擎
+ * <p>
+ * 与每次都创建、销毁 RenderScript 的 {@link RSBlur} 不同，RenderScript 上下文和 ScriptIntrinsicBlur 只创建一次，
+ * 输入输出 Allocation 按尺寸缓存；CPU 模糊使用同一个 {@link BlurContext}，不再重复分配缓冲区。
+ * 每次模糊根据半径、图片大小和 RenderScript 是否可用选择后端（见 {@link #selectAlgorithm}），
+ * RenderScript 出错后自动改用 CPU 后端。
+ * 不再使用时（如 Activity#onDestroy）调用 {@link #release()} 释放资源。
+ * 注：各方法已同步，可在多个线程中使用同一个实例，但同一时刻只执行一个模糊
+ */
+public final class BlurEngine {
+    /**
+     * RenderScript 支持的最大半径
+     */
+    public static final int RENDER_SCRIPT_MAX_RADIUS = 25;
+
+    /**
+     * 像素数少于该值时，数据在 Java 与 RenderScript 之间复制的开销超过模糊本身，改用 CPU
+     */
+    static final int RENDER_SCRIPT_MIN_PIXELS = 128 * 128;
+
+    /**
+     * 半径超过该值时使用耗时与半径无关的三次盒式模糊
+     */
+    static final int BOX_MIN_RADIUS = 48;
+
+    /**
+     * 像素数超过该值时 CPU 模糊才分段并行（分段调度有固定开销）
+     */
+    static final int PARALLEL_MIN_PIXELS = 256 * 256;
+
+    private final Context appContext;
+    private final Executor executor;
+    private final BlurContext blurContext = new BlurContext();
+
+    private RenderScript renderScript;
+    private ScriptIntrinsicBlur script;
+    private Allocation input;
+    private Allocation output;
+    private boolean renderScriptFailed;
+
+    /**
+     * 只使用 CPU 后端、串行执行的引擎（可在 JVM 上使用）
+     */
+    public BlurEngine() {
+        this(null, null);
+    }
+
+    /**
+     * @param context  上下文对象，为 null 时不使用 RenderScript
+     * @param executor CPU 模糊并行执行所用的线程池，为 null 时串行执行
+     */
+    public BlurEngine(Context context, Executor executor) {
+        this.appContext = context == null ? null : context.getApplicationContext();
+        this.executor = executor;
+    }
+
+    /**
+     * 选择模糊后端
+     *
+     * @param radius                 模糊半径
+     * @param width                  图片宽
+     * @param height                 图片高
+     * @param renderScriptAvailable  RenderScript 是否可用（SDK >= 17、有上下文、未出过错、图片为 ARGB_8888）
+     * @return 使用的后端
+     */
+    public static BlurAlgorithm selectAlgorithm(int radius, int width, int height, boolean renderScriptAvailable) {
+        long pixels = (long) width * height;
+        if (renderScriptAvailable && radius <= RENDER_SCRIPT_MAX_RADIUS && pixels >= RENDER_SCRIPT_MIN_PIXELS) {
+            return BlurAlgorithm.RENDER_SCRIPT;
+        }
+        return radius > BOX_MIN_RADIUS ? BlurAlgorithm.BOX : BlurAlgorithm.STACK;
+    }
+
+    /**
+     * 模糊图片（直接在原图上模糊）
+     *
+     * @param bitmap 待模糊图片，必须是可修改的
+     * @param radius 模糊半径，小于 1 时不做处理
+     * @return 使用的后端，未处理时返回 null
+     */
+    public synchronized BlurAlgorithm blur(Bitmap bitmap, int radius) {
+        if (radius < 1) return null;
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        boolean rsAvailable = isRenderScriptAvailable() && bitmap.getConfig() == Bitmap.Config.ARGB_8888;
+        BlurAlgorithm algorithm = selectAlgorithm(radius, w, h, rsAvailable);
+        if (algorithm == BlurAlgorithm.RENDER_SCRIPT) {
+            if (blurByRenderScript(bitmap, radius)) {
+                return algorithm;
+            }
+            algorithm = selectAlgorithm(radius, w, h, false);
+        }
+        int[] pix = blurContext.obtainPixels(w * h);
+        bitmap.getPixels(pix, 0, w, 0, 0, w, h);
+        blurByCpu(algorithm, pix, w, h, radius);
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return algorithm;
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix，只使用 CPU 后端）
+     *
+     * @param pix    ARGB 像素数组，行宽为 w
+     * @param w      宽
+     * @param h      高
+     * @param radius 模糊半径，小于 1 时不做处理
+     * @return 使用的后端，未处理时返回 null
+     */
+    public synchronized BlurAlgorithm blur(int[] pix, int w, int h, int radius) {
+        if (radius < 1) return null;
+        BlurAlgorithm algorithm = selectAlgorithm(radius, w, h, false);
+        blurByCpu(algorithm, pix, w, h, radius);
+        return algorithm;
+    }
+
+    /**
+     * 模糊像素缓冲区（结果直接写回 buffer，只使用 CPU 后端）
+     *
+     * @param buffer ARGB 像素缓冲区
+     * @param radius 模糊半径，小于 1 时不做处理
+     * @return 使用的后端，未处理时返回 null
+     */
+    public synchronized BlurAlgorithm blur(PixelBuffer buffer, int radius) {
+        if (radius < 1) return null;
+        int w = buffer.getWidth();
+        int h = buffer.getHeight();
+        if (buffer.isCompact()) {
+            return blur(buffer.getPixels(), w, h, radius);
+        }
+        int[] pix = blurContext.obtainPixels(w * h);
+        buffer.copyTo(pix, 0, w);
+        BlurAlgorithm algorithm = blur(pix, w, h, radius);
+        buffer.copyFrom(pix, 0, w);
+        return algorithm;
+    }
+
+    /**
+     * 释放 RenderScript 资源和所有缓冲区，之后仍可继续使用（会重新创建）
+     */
+    public synchronized void release() {
+        destroyRenderScript();
+        blurContext.release();
+    }
+
+    private void blurByCpu(BlurAlgorithm algorithm, int[] pix, int w, int h, int radius) {
+        Executor cpuExecutor = (long) w * h >= PARALLEL_MIN_PIXELS ? executor : null;
+        if (algorithm == BlurAlgorithm.BOX) {
+            BoxBlur.blur(pix, w, h, radius, blurContext, cpuExecutor);
+        } else {
+            PackedFastBlur.blur(pix, w, h, radius, blurContext, cpuExecutor);
+        }
+    }
+
+    private boolean isRenderScriptAvailable() {
+        return appContext != null && !renderScriptFailed
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1;
+    }
+
+    /**
+     * @return 是否成功，失败后不再使用 RenderScript
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private boolean blurByRenderScript(Bitmap bitmap, int radius) {
+        try {
+            if (renderScript == null) {
+                renderScript = RenderScript.create(appContext);
+                script = ScriptIntrinsicBlur.create(renderScript, Element.U8_4(renderScript));
+            }
+            int w = bitmap.getWidth();
+            int h = bitmap.getHeight();
+            if (input == null || input.getType().getX() != w || input.getType().getY() != h) {
+                destroyAllocations();
+                Type type = Type.createXY(renderScript, Element.U8_4(renderScript), w, h);
+                input = Allocation.createTyped(renderScript, type, Allocation.USAGE_SCRIPT);
+                output = Allocation.createTyped(renderScript, type, Allocation.USAGE_SCRIPT);
+            }
+            input.copyFrom(bitmap);
+            script.setRadius(radius);
+            script.setInput(input);
+            script.forEach(output);
+            output.copyTo(bitmap);
+            return true;
+        } catch (RSRuntimeException e) {
+            e.printStackTrace();
+            renderScriptFailed = true;
+            destroyRenderScript();
+            return false;
+        }
+    }
+
+    private void destroyAllocations() {
+        if (input != null) {
+            input.destroy();
+            input = null;
+        }
+        if (output != null) {
+            output.destroy();
+            output = null;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private void destroyRenderScript() {
+        destroyAllocations();
+        if (script != null) {
+            script.destroy();
+            script = null;
+        }
+        if (renderScript != null) {
+            renderScript.destroy();
+            renderScript = null;
+        }
+    }
+}
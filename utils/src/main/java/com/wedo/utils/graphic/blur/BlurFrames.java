@@ -0,0 +1,282 @@
+package com.wedo.utils.graphic.blur;
+
+import android.graphics.Bitmap;
+
+import com.wedo.utils.graphic.ImageUtil;
+import com.wedo.utils.graphic.PixelBuffer;
+import com.wedo.utils.graphic.PixelScaler;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * 模糊过渡动画的帧缓存
+ * <p>
+ * 从一张源图生成半径从 0 均匀增加到 maxRadius 的 frameCount 帧，按动画进度（0-1）取帧。
+ * 每帧按 {@link ScaledBlur} 的误差模型选择缩小倍数，在缩小后的图上模糊：
+ * 各倍数的缩小图（1/2、1/4、1/8）逐级由上一级生成并被所有帧共享，
+ * 缩小倍数与等效半径都相同的帧共用同一份结果，所有帧共用一个 {@link BlurContext}。
+ * 帧以缩小后的尺寸保存，显示时由 Canvas 放大绘制（见 {@link #getBitmap}），或用 {@link #getFrame(float, PixelBuffer)} 放大到原尺寸。
+ * 可以调用 {@link #prepareAsync} 在后台线程中提前生成全部帧，未生成的帧在取用时生成
+ */
+public final class BlurFrames {
+    /**
+     * 动画帧的默认误差预算：帧只显示很短的时间，允许比 {@link ScaledBlur#DEFAULT_ERROR_BUDGET} 更大的误差
+     */
+    public static final float DEFAULT_ERROR_BUDGET = 3f;
+
+    /**
+     * 最大缩小倍数
+     */
+    private static final int MAX_FACTOR = 8;
+
+    /**
+     * 帧准备完成的回调
+     */
+    public interface OnPreparedListener {
+        /**
+         * 全部帧生成完成（在生成帧的线程中回调）
+         *
+         * @param frames 帧缓存
+         */
+        void onPrepared(BlurFrames frames);
+    }
+
+    private final PixelBuffer source;
+    private final int maxRadius;
+    private final int frameCount;
+    private final float errorBudget;
+
+    /* 下标为 log2(缩小倍数) 的缩小图 */
+    private final PixelBuffer[] levels = new PixelBuffer[4];
+    private final PixelBuffer[] frames;
+    private final int[] factors;
+    private final Bitmap[] bitmaps;
+    private final BlurContext context = new BlurContext();
+
+    /**
+     * @param pix        源像素（会复制一份），行宽为 w
+     * @param w          宽
+     * @param h          高
+     * @param maxRadius  最后一帧的模糊半径
+     * @param frameCount 帧数（包含半径为 0 的第一帧），至少为 2
+     */
+    public BlurFrames(int[] pix, int w, int h, int maxRadius, int frameCount) {
+        this(pix, w, h, maxRadius, frameCount, DEFAULT_ERROR_BUDGET);
+    }
+
+    /**
+     * @param pix         源像素（会复制一份），行宽为 w
+     * @param w           宽
+     * @param h           高
+     * @param maxRadius   最后一帧的模糊半径
+     * @param frameCount  帧数（包含半径为 0 的第一帧），至少为 2
+     * @param errorBudget 误差预算，见 {@link ScaledBlur#pickScaleFactor}
+     */
+    public BlurFrames(int[] pix, int w, int h, int maxRadius, int frameCount, float errorBudget) {
+        if (frameCount < 2) {
+            throw new IllegalArgumentException("frameCount must be at least 2: " + frameCount);
+        }
+        this.source = PixelBuffer.wrap(pix, w, h).copy();
+        this.maxRadius = maxRadius;
+        this.frameCount = frameCount;
+        this.errorBudget = errorBudget;
+        this.frames = new PixelBuffer[frameCount];
+        this.factors = new int[frameCount];
+        this.bitmaps = new Bitmap[frameCount];
+        levels[0] = source;
+    }
+
+    /**
+     * 从图片创建帧缓存
+     *
+     * @param src        源图片
+     * @param maxRadius  最后一帧的模糊半径
+     * @param frameCount 帧数（包含半径为 0 的第一帧），至少为 2
+     * @return 帧缓存
+     */
+    public static BlurFrames from(Bitmap src, int maxRadius, int frameCount) {
+        PixelBuffer buffer = ImageUtil.toPixelBuffer(src);
+        return new BlurFrames(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), maxRadius, frameCount);
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 第 index 帧的模糊半径
+     */
+    public int getRadius(int index) {
+        return Math.round((float) maxRadius * index / (frameCount - 1));
+    }
+
+    /**
+     * 动画进度对应的帧
+     *
+     * @param progress 动画进度，0-1
+     * @return 帧下标
+     */
+    public int getFrameIndex(float progress) {
+        int index = Math.round(progress * (frameCount - 1));
+        return Math.max(0, Math.min(frameCount - 1, index));
+    }
+
+    /**
+     * 生成全部帧
+     */
+    public synchronized void prepare() {
+        for (int i = 0; i < frameCount; i++) {
+            obtainFrame(i);
+        }
+    }
+
+    /**
+     * 在后台线程中生成全部帧
+     *
+     * @param executor 执行生成任务的线程池
+     * @param listener 完成回调，可以为 null
+     */
+    public void prepareAsync(Executor executor, final OnPreparedListener listener) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prepare();
+                if (listener != null) {
+                    listener.onPrepared(BlurFrames.this);
+                }
+            }
+        });
+    }
+
+    /**
+     * 获取动画进度对应的帧（缩小后的尺寸，见 {@link #getScale}），请勿修改
+     *
+     * @param progress 动画进度，0-1
+     * @return 帧像素
+     */
+    public synchronized PixelBuffer getFrame(float progress) {
+        return obtainFrame(getFrameIndex(progress));
+    }
+
+    /**
+     * 帧相对于源图的缩小倍数
+     *
+     * @param progress 动画进度，0-1
+     * @return 缩小倍数：1、2、4 或 8
+     */
+    public synchronized int getScale(float progress) {
+        int index = getFrameIndex(progress);
+        obtainFrame(index);
+        return factors[index];
+    }
+
+    /**
+     * 获取动画进度对应的帧，放大到原尺寸（保留源图的 alpha 通道）
+     *
+     * @param progress 动画进度，0-1
+     * @param dst      目标像素，尺寸与源图相同
+     */
+    public synchronized void getFrame(float progress, PixelBuffer dst) {
+        PixelBuffer frame = obtainFrame(getFrameIndex(progress));
+        if (frame == source) {
+            source.copyTo(dst);
+            return;
+        }
+        PixelScaler.scaleBilinear(frame, dst);
+        int[] out = dst.getPixels();
+        int[] in = source.getPixels();
+        int w = source.getWidth();
+        for (int y = 0; y < source.getHeight(); y++) {
+            int i = y * w;
+            int o = dst.indexOf(0, y);
+            for (int x = 0; x < w; x++) {
+                out[o + x] = (in[i + x] & 0xff000000) | (out[o + x] & 0x00ffffff);
+            }
+        }
+    }
+
+    /**
+     * 获取动画进度对应的帧图片（缩小后的尺寸，绘制时按 {@link #getScale} 放大），图片会被缓存，请勿修改或回收
+     *
+     * @param progress 动画进度，0-1
+     * @return 帧图片
+     */
+    public synchronized Bitmap getBitmap(float progress) {
+        int index = getFrameIndex(progress);
+        if (bitmaps[index] == null) {
+            PixelBuffer frame = obtainFrame(index);
+            for (int i = 0; i < frameCount; i++) {
+                if (frames[i] == frame && bitmaps[i] != null) {
+                    bitmaps[index] = bitmaps[i];
+                    return bitmaps[index];
+                }
+            }
+            bitmaps[index] = ImageUtil.toBitmap(frame, Bitmap.Config.ARGB_8888);
+        }
+        return bitmaps[index];
+    }
+
+    /**
+     * 释放所有帧与缓冲区
+     */
+    public synchronized void release() {
+        for (int i = 0; i < frameCount; i++) {
+            frames[i] = null;
+            if (bitmaps[i] != null && !bitmaps[i].isRecycled()) {
+                bitmaps[i].recycle();
+            }
+            bitmaps[i] = null;
+        }
+        for (int i = 1; i < levels.length; i++) {
+            levels[i] = null;
+        }
+        context.release();
+    }
+
+    private PixelBuffer obtainFrame(int index) {
+        if (frames[index] != null) return frames[index];
+        int radius = getRadius(index);
+        if (radius < 1) {
+            factors[index] = 1;
+            frames[index] = source;
+            return source;
+        }
+        int factor = Math.min(MAX_FACTOR, ScaledBlur.pickScaleFactor(radius, errorBudget));
+        PixelBuffer base = obtainLevel(factor);
+        while (factor > 1 && (base.getWidth() < 2 || base.getHeight() < 2)) {
+            factor >>= 1;
+            base = obtainLevel(factor);
+        }
+        int scaledRadius = ScaledBlur.getScaledRadius(radius, factor);
+        // 缩小倍数与等效半径都相同的帧结果相同
+        for (int i = 0; i < frameCount; i++) {
+            if (frames[i] != null && factors[i] == factor && i != index && frames[i] != source
+                    && ScaledBlur.getScaledRadius(getRadius(i), factor) == scaledRadius) {
+                factors[index] = factor;
+                frames[index] = frames[i];
+                return frames[index];
+            }
+        }
+        PixelBuffer frame = base.copy();
+        PackedFastBlur.blur(frame.getPixels(), frame.getWidth(), frame.getHeight(), scaledRadius, context, null);
+        factors[index] = factor;
+        frames[index] = frame;
+        return frame;
+    }
+
+    /**
+     * 获取缩小 factor 倍的图，由上一级缩小 2 倍得到
+     */
+    private PixelBuffer obtainLevel(int factor) {
+        int level = Integer.numberOfTrailingZeros(factor);
+        if (levels[level] == null) {
+            PixelBuffer upper = obtainLevel(factor >> 1);
+            PixelBuffer lower = new PixelBuffer(PixelScaler.getBoxSize(upper.getWidth(), 2),
+                    PixelScaler.getBoxSize(upper.getHeight(), 2));
+            PixelScaler.downscaleBox(upper, 2, lower);
+            levels[level] = lower;
+        }
+        return levels[level];
+    }
+}
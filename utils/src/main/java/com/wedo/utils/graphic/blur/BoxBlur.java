@@ -0,0 +1,240 @@
+package com.wedo.utils.graphic.blur;
+
+import android.graphics.Bitmap;
+
+import com.wedo.utils.graphic.ParallelBands;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * 三次盒式模糊近似高斯模糊
+ * <p>
+ * 每次盒式模糊都用滑动窗口累加和实现，每个像素的计算量与半径无关，
+ * 因此可以使用远超 RenderScript 上限（25）的半径而耗时不变。
+ * 半径的含义与 {@link FastBlur} 一致：三个盒子总方差等于半径为 r 的 stack blur 的方差 r(r+2)/6，
+ * 两种算法可以直接互换
+ */
+public final class BoxBlur {
+    /**
+     * 盒子个数
+     */
+    private static final int PASSES = 3;
+
+    /**
+     * 并行模式下每个分段最少包含的行（列）数
+     */
+    private static final int MIN_BAND_SIZE = 64;
+
+    private BoxBlur() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 模糊图片
+     *
+     * @param sentBitmap       待模糊图片
+     * @param radius           模糊半径
+     * @param canReuseInBitmap 是否直接在原图上模糊
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap) {
+        Bitmap bitmap;
+        if (canReuseInBitmap) {
+            bitmap = sentBitmap;
+        } else {
+            bitmap = sentBitmap.copy(sentBitmap.getConfig(), true);
+        }
+        if (radius < 1) {
+            return (null);
+        }
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        BlurContext context = new BlurContext();
+        int[] pix = context.obtainPixels(w * h);
+        bitmap.getPixels(pix, 0, w, 0, 0, w, h);
+        blur(pix, w, h, radius, context, null);
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return (bitmap);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix，保留原 alpha 通道）
+     *
+     * @param pix    ARGB 像素数组，行宽为 w
+     * @param w      宽
+     * @param h      高
+     * @param radius 模糊半径，小于 1 时不做处理
+     */
+    public static void blur(int[] pix, int w, int h, int radius) {
+        blur(pix, w, h, radius, new BlurContext(), null);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix，保留原 alpha 通道）
+     *
+     * @param pix      ARGB 像素数组，行宽为 w
+     * @param w        宽
+     * @param h        高
+     * @param radius   模糊半径，小于 1 时不做处理
+     * @param context  可复用的缓冲区
+     * @param executor 并行执行所用的线程池，为 null 时在当前线程中串行执行
+     */
+    public static void blur(final int[] pix, final int w, final int h, int radius,
+                            BlurContext context, Executor executor) {
+        if (radius < 1 || w <= 0 || h <= 0) {
+            return;
+        }
+        int wh = w * h;
+        final int[] boxes = getBoxRadii(radius);
+        final int[][] tables = new int[PASSES][];
+        for (int i = 0; i < PASSES; i++) {
+            tables[i] = context.obtainBoxTable(boxes[i]);
+        }
+        // 两块缓冲区交替作为输入输出：pix -> a -> b -> a（横向），a -> b -> a -> pix（纵向）
+        final int[] a = context.obtainScratch(0, wh);
+        final int[] b = context.obtainScratch(1, wh);
+        final int[] rsum = context.obtainRed(w);
+        final int[] gsum = context.obtainGreen(w);
+        final int[] bsum = context.obtainBlue(w);
+        if (executor == null) {
+            blurRows(pix, a, b, w, 0, h, boxes, tables);
+            blurColumns(pix, a, b, w, h, 0, w, boxes, tables, rsum, gsum, bsum);
+            return;
+        }
+        ParallelBands.run(executor, h, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurRows(pix, a, b, w, start, end, boxes, tables);
+            }
+        });
+        ParallelBands.run(executor, w, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurColumns(pix, a, b, w, h, start, end, boxes, tables, rsum, gsum, bsum);
+            }
+        });
+    }
+
+    /**
+     * 计算三个盒子的半径，使总方差等于半径为 radius 的 stack blur
+     *
+     * @param radius 模糊半径
+     * @return 三个盒子的半径（盒子宽度为 2 * r + 1）
+     */
+    static int[] getBoxRadii(int radius) {
+        // 宽度为 d 的盒子方差为 (d^2 - 1) / 12，先取不超过理想宽度的最大奇数 wl，
+        // 再把其中 n - m 个盒子加宽到 wl + 2，使总方差最接近目标
+        double variance = radius * (radius + 2) / 6.0;
+        double ideal = Math.sqrt(12 * variance / PASSES + 1);
+        int wl = (int) Math.floor(ideal);
+        if (wl % 2 == 0) wl--;
+        int wu = wl + 2;
+        double mIdeal = (12 * variance - PASSES * wl * wl - 4 * PASSES * wl - 3 * PASSES) / (-4.0 * wl - 4);
+        int m = (int) Math.round(mIdeal);
+        int[] radii = new int[PASSES];
+        for (int i = 0; i < PASSES; i++) {
+            radii[i] = ((i < m ? wl : wu) - 1) / 2;
+        }
+        return radii;
+    }
+
+    /**
+     * 生成宽度为 2 * boxRadius + 1 的盒子的除法查找表（四舍五入）
+     *
+     * @param boxRadius 盒子半径
+     * @return 查找表
+     */
+    static int[] createBoxTable(int boxRadius) {
+        int div = boxRadius + boxRadius + 1;
+        int[] table = new int[256 * div];
+        int half = div >> 1;
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (i + half) / div;
+        }
+        return table;
+    }
+
+    /**
+     * 对 [y0, y1) 行依次做三次横向盒式模糊：pix -> a -> b -> a
+     */
+    private static void blurRows(int[] pix, int[] a, int[] b, int w, int y0, int y1,
+                                 int[] boxes, int[][] tables) {
+        for (int y = y0; y < y1; y++) {
+            int offset = y * w;
+            blurRow(pix, a, offset, w, boxes[0], tables[0]);
+            blurRow(a, b, offset, w, boxes[1], tables[1]);
+            blurRow(b, a, offset, w, boxes[2], tables[2]);
+        }
+    }
+
+    /**
+     * 单行横向盒式模糊，超出边界的像素取边缘像素
+     */
+    private static void blurRow(int[] src, int[] dst, int offset, int w, int br, int[] dv) {
+        int wm = w - 1;
+        int rs = 0, gs = 0, bs = 0;
+        for (int i = -br; i <= br; i++) {
+            int p = src[offset + Math.min(wm, Math.max(i, 0))];
+            rs += (p >> 16) & 0xff;
+            gs += (p >> 8) & 0xff;
+            bs += p & 0xff;
+        }
+        for (int x = 0; x < w; x++) {
+            dst[offset + x] = (dv[rs] << 16) | (dv[gs] << 8) | dv[bs];
+            int in = src[offset + Math.min(wm, x + br + 1)];
+            int out = src[offset + Math.max(0, x - br)];
+            rs += ((in >> 16) & 0xff) - ((out >> 16) & 0xff);
+            gs += ((in >> 8) & 0xff) - ((out >> 8) & 0xff);
+            bs += (in & 0xff) - (out & 0xff);
+        }
+    }
+
+    /**
+     * 对 [x0, x1) 列依次做三次纵向盒式模糊：a -> b -> a -> pix
+     * <p>
+     * 按行遍历，每列维护一个累加和，访问内存是连续的
+     */
+    private static void blurColumns(int[] pix, int[] a, int[] b, int w, int h, int x0, int x1,
+                                    int[] boxes, int[][] tables, int[] rsum, int[] gsum, int[] bsum) {
+        blurColumns(a, b, w, h, x0, x1, boxes[0], tables[0], rsum, gsum, bsum, false);
+        blurColumns(b, a, w, h, x0, x1, boxes[1], tables[1], rsum, gsum, bsum, false);
+        blurColumns(a, pix, w, h, x0, x1, boxes[2], tables[2], rsum, gsum, bsum, true);
+    }
+
+    /**
+     * 纵向盒式模糊，超出边界的像素取边缘像素
+     *
+     * @param keepAlpha 是否保留 dst 原有的 alpha 通道
+     */
+    private static void blurColumns(int[] src, int[] dst, int w, int h, int x0, int x1, int br, int[] dv,
+                                    int[] rsum, int[] gsum, int[] bsum, boolean keepAlpha) {
+        int hm = h - 1;
+        for (int x = x0; x < x1; x++) {
+            rsum[x] = gsum[x] = bsum[x] = 0;
+        }
+        for (int i = -br; i <= br; i++) {
+            int row = Math.min(hm, Math.max(i, 0)) * w;
+            for (int x = x0; x < x1; x++) {
+                int p = src[row + x];
+                rsum[x] += (p >> 16) & 0xff;
+                gsum[x] += (p >> 8) & 0xff;
+                bsum[x] += p & 0xff;
+            }
+        }
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            int inRow = Math.min(hm, y + br + 1) * w;
+            int outRow = Math.max(0, y - br) * w;
+            for (int x = x0; x < x1; x++) {
+                int rgb = (dv[rsum[x]] << 16) | (dv[gsum[x]] << 8) | dv[bsum[x]];
+                dst[row + x] = keepAlpha ? (dst[row + x] & 0xff000000) | rgb : rgb;
+                int in = src[inRow + x];
+                int out = src[outRow + x];
+                rsum[x] += ((in >> 16) & 0xff) - ((out >> 16) & 0xff);
+                gsum[x] += ((in >> 8) & 0xff) - ((out >> 8) & 0xff);
+                bsum[x] += (in & 0xff) - (out & 0xff);
+            }
+        }
+    }
+}
@@ -2,12 +2,88 @@ package com.wedo.utils.graphic.blur;
 
 import android.graphics.Bitmap;
 
+import com.wedo.utils.graphic.ParallelBands;
+import com.wedo.utils.graphic.PixelBuffer;
+
+import java.util.concurrent.Executor;
+
 
 /**
  * 国外一位大神写的图片模糊算法
+ * <p>
+ * 横向模糊按行分段、纵向模糊按列分段，传入线程池时各分段并行执行，结果与串行执行逐位一致
  */
 public final class FastBlur {
-    public static Bitmap blur(Bitmap sentBitmap,int radius, boolean canReuseInBitmap) {
+    /**
+     * 并行模式下每个分段最少包含的行（列）数
+     */
+    private static final int MIN_BAND_SIZE = 64;
+
+    /**
+     * UNPREMULTIPLY[a] = 255 / a，16 位定点数
+     */
+    private static final int[] UNPREMULTIPLY = new int[256];
+
+    static {
+        for (int a = 1; a < 256; a++) {
+            UNPREMULTIPLY[a] = ((255 << 16) + (a >> 1)) / a;
+        }
+    }
+
+    private FastBlur() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap) {
+        return blur(sentBitmap, radius, canReuseInBitmap, new BlurContext(), null);
+    }
+
+    /**
+     * @param sentBitmap       待模糊图片
+     * @param radius           模糊半径
+     * @param canReuseInBitmap 是否直接在原图上模糊
+     * @param executor         并行执行所用的线程池，为 null 时在当前线程中串行执行
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap, Executor executor) {
+        return blur(sentBitmap, radius, canReuseInBitmap, new BlurContext(), executor);
+    }
+
+    /**
+     * @param sentBitmap       待模糊图片
+     * @param radius           模糊半径
+     * @param canReuseInBitmap 是否直接在原图上模糊（为 true 时配合 context 可避免所有 Java 堆分配）
+     * @param context          可复用的缓冲区
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap, BlurContext context) {
+        return blur(sentBitmap, radius, canReuseInBitmap, context, null);
+    }
+
+    /**
+     * @param sentBitmap       待模糊图片
+     * @param radius           模糊半径
+     * @param canReuseInBitmap 是否直接在原图上模糊
+     * @param context          可复用的缓冲区
+     * @param executor         并行执行所用的线程池，为 null 时在当前线程中串行执行
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap,
+                              BlurContext context, Executor executor) {
+        return blur(sentBitmap, radius, canReuseInBitmap, context, executor, false);
+    }
+
+    /**
+     * @param sentBitmap         待模糊图片
+     * @param radius             模糊半径
+     * @param canReuseInBitmap   是否直接在原图上模糊
+     * @param context            可复用的缓冲区
+     * @param executor           并行执行所用的线程池，为 null 时在当前线程中串行执行
+     * @param premultipliedAlpha 是否按预乘 alpha 模糊全部四个通道（适合半透明图片，避免透明区域产生暗边）
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap,
+                              BlurContext context, Executor executor, boolean premultipliedAlpha) {
         Bitmap bitmap;
         if (canReuseInBitmap) {
             bitmap = sentBitmap;
@@ -19,25 +95,402 @@ public final class FastBlur {
         }
         int w = bitmap.getWidth();
         int h = bitmap.getHeight();
-        int[] pix = new int[w * h];
+        int[] pix = context.obtainPixels(w * h);
         bitmap.getPixels(pix, 0, w, 0, 0, w, h);
+        blur(pix, w, h, radius, context, executor, premultipliedAlpha);
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return (bitmap);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     *
+     * @param pix    ARGB 像素数组，行宽为 w
+     * @param w      宽
+     * @param h      高
+     * @param radius 模糊半径，小于 1 时不做处理
+     */
+    public static void blur(int[] pix, int w, int h, int radius) {
+        blur(pix, w, h, radius, new BlurContext(), null);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     *
+     * @param pix      ARGB 像素数组，行宽为 w
+     * @param w        宽
+     * @param h        高
+     * @param radius   模糊半径，小于 1 时不做处理
+     * @param executor 并行执行所用的线程池，为 null 时在当前线程中串行执行
+     */
+    public static void blur(int[] pix, int w, int h, int radius, Executor executor) {
+        blur(pix, w, h, radius, new BlurContext(), executor);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     *
+     * @param pix     ARGB 像素数组，行宽为 w
+     * @param w       宽
+     * @param h       高
+     * @param radius  模糊半径，小于 1 时不做处理
+     * @param context 可复用的缓冲区
+     */
+    public static void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+        blur(pix, w, h, radius, context, null);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     * <p>
+     * 串行模式下所有缓冲区都取自 context；并行模式下每个分段会额外分配自己的 stack
+     *
+     * @param pix      ARGB 像素数组，行宽为 w
+     * @param w        宽
+     * @param h        高
+     * @param radius   模糊半径，小于 1 时不做处理
+     * @param context  可复用的缓冲区
+     * @param executor 并行执行所用的线程池，为 null 时在当前线程中串行执行
+     */
+    public static void blur(int[] pix, int w, int h, int radius, BlurContext context, Executor executor) {
+        blur(pix, w, h, radius, context, executor, false);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     * <p>
+     * 默认只模糊 r、g、b 并保留原 alpha，透明像素的颜色（通常是黑色）会渗入相邻的不透明区域形成暗边。
+     * premultipliedAlpha 为 true 时，读取像素时先预乘 alpha，四个通道一起模糊，写回时再还原，
+     * 全部在同一次横向、纵向模糊中完成，无需额外的合成步骤
+     *
+     * @param pix                ARGB 像素数组（非预乘），行宽为 w
+     * @param w                  宽
+     * @param h                  高
+     * @param radius             模糊半径，小于 1 时不做处理
+     * @param context            可复用的缓冲区
+     * @param executor           并行执行所用的线程池，为 null 时在当前线程中串行执行
+     * @param premultipliedAlpha 是否按预乘 alpha 模糊全部四个通道
+     */
+    public static void blur(final int[] pix, final int w, final int h, final int radius,
+                            BlurContext context, Executor executor, boolean premultipliedAlpha) {
+        if (radius < 1 || w <= 0 || h <= 0) {
+            return;
+        }
+        if (premultipliedAlpha) {
+            blurPremultiplied(pix, w, h, radius, context, executor);
+            return;
+        }
+        int wh = w * h;
+        final int[] r = context.obtainRed(wh);
+        final int[] g = context.obtainGreen(wh);
+        final int[] b = context.obtainBlue(wh);
+        final int[] dv = context.obtainDivTable(radius);
+        // 原算法在第一行（列）时顺带计算 vmin，分段后各段需要提前算好
+        final int[] vminX = context.obtainVminX(w, h, radius);
+        final int[] vminY = context.obtainVminY(w, h, radius);
+        if (executor == null) {
+            int[][] stack = context.obtainStack(radius, 3);
+            blurRows(pix, w, radius, 0, h, r, g, b, vminX, dv, stack);
+            blurColumns(pix, w, h, radius, 0, w, r, g, b, vminY, dv, stack);
+            return;
+        }
+        ParallelBands.run(executor, h, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurRows(pix, w, radius, start, end, r, g, b, vminX, dv, new int[radius + radius + 1][3]);
+            }
+        });
+        ParallelBands.run(executor, w, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurColumns(pix, w, h, radius, start, end, r, g, b, vminY, dv, new int[radius + radius + 1][3]);
+            }
+        });
+    }
+
+    /**
+     * 模糊像素缓冲区（结果直接写回 buffer）
+     * <p>
+     * 非紧凑存放（区域视图或行宽大于宽）时先复制到 context 的像素数组中模糊，再写回
+     *
+     * @param buffer             ARGB 像素缓冲区（非预乘）
+     * @param radius             模糊半径，小于 1 时不做处理
+     * @param context            可复用的缓冲区
+     * @param executor           并行执行所用的线程池，为 null 时在当前线程中串行执行
+     * @param premultipliedAlpha 是否按预乘 alpha 模糊全部四个通道
+     */
+    public static void blur(PixelBuffer buffer, int radius, BlurContext context, Executor executor,
+                            boolean premultipliedAlpha) {
+        int w = buffer.getWidth();
+        int h = buffer.getHeight();
+        if (buffer.isCompact()) {
+            blur(buffer.getPixels(), w, h, radius, context, executor, premultipliedAlpha);
+            return;
+        }
+        int[] pix = context.obtainPixels(w * h);
+        buffer.copyTo(pix, 0, w);
+        blur(pix, w, h, radius, context, executor, premultipliedAlpha);
+        buffer.copyFrom(pix, 0, w);
+    }
+
+    /**
+     * 预乘 alpha 模式：横向模糊时预乘，纵向模糊时还原
+     */
+    private static void blurPremultiplied(final int[] pix, final int w, final int h, final int radius,
+                                          BlurContext context, Executor executor) {
+        int wh = w * h;
+        final int[] a = context.obtainAlpha(wh);
+        final int[] r = context.obtainRed(wh);
+        final int[] g = context.obtainGreen(wh);
+        final int[] b = context.obtainBlue(wh);
+        final int[] dv = context.obtainDivTable(radius);
+        final int[] vminX = context.obtainVminX(w, h, radius);
+        final int[] vminY = context.obtainVminY(w, h, radius);
+        if (executor == null) {
+            int[][] stack = context.obtainStack(radius, 4);
+            blurRowsPremultiplied(pix, w, radius, 0, h, a, r, g, b, vminX, dv, stack);
+            blurColumnsPremultiplied(pix, w, h, radius, 0, w, a, r, g, b, vminY, dv, stack);
+            return;
+        }
+        ParallelBands.run(executor, h, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurRowsPremultiplied(pix, w, radius, start, end, a, r, g, b, vminX, dv,
+                        new int[radius + radius + 1][4]);
+            }
+        });
+        ParallelBands.run(executor, w, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurColumnsPremultiplied(pix, w, h, radius, start, end, a, r, g, b, vminY, dv,
+                        new int[radius + radius + 1][4]);
+            }
+        });
+    }
+
+    /**
+     * 预乘：c * a / 255（四舍五入）
+     */
+    static int premultiply(int c, int a) {
+        int x = c * a + 128;
+        return (x + (x >> 8)) >> 8;
+    }
+
+    /**
+     * 还原预乘：c * 255 / a（四舍五入，a 为 0 时返回 0）
+     */
+    static int unpremultiply(int c, int a) {
+        if (a == 0) return 0;
+        return Math.min(255, (c * UNPREMULTIPLY[a] + 0x8000) >>> 16);
+    }
+
+    /**
+     * 横向模糊 [y0, y1) 行（预乘 alpha），结果写入 a、r、g、b
+     */
+    private static void blurRowsPremultiplied(int[] pix, int w, int radius, int y0, int y1,
+                                              int[] a, int[] r, int[] g, int[] b,
+                                              int[] vmin, int[] dv, int[][] stack) {
         int wm = w - 1;
+        int div = radius + radius + 1;
+        int asum, rsum, gsum, bsum, x, y, i, p, pa, yi, yw;
+        int stackpointer;
+        int stackstart;
+        int[] sir;
+        int rbs;
+        int r1 = radius + 1;
+        int aoutsum, routsum, goutsum, boutsum;
+        int ainsum, rinsum, ginsum, binsum;
+        yw = yi = y0 * w;
+        for (y = y0; y < y1; y++) {
+            ainsum = rinsum = ginsum = binsum = aoutsum = routsum = goutsum = boutsum = 0;
+            asum = rsum = gsum = bsum = 0;
+            for (i = -radius; i <= radius; i++) {
+                p = pix[yi + Math.min(wm, Math.max(i, 0))];
+                sir = stack[i + radius];
+                pa = p >>> 24;
+                sir[0] = premultiply((p & 0xff0000) >> 16, pa);
+                sir[1] = premultiply((p & 0x00ff00) >> 8, pa);
+                sir[2] = premultiply(p & 0x0000ff, pa);
+                sir[3] = pa;
+                rbs = r1 - Math.abs(i);
+                rsum += sir[0] * rbs;
+                gsum += sir[1] * rbs;
+                bsum += sir[2] * rbs;
+                asum += sir[3] * rbs;
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                    ainsum += sir[3];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                    aoutsum += sir[3];
+                }
+            }
+            stackpointer = radius;
+            for (x = 0; x < w; x++) {
+                r[yi] = dv[rsum];
+                g[yi] = dv[gsum];
+                b[yi] = dv[bsum];
+                a[yi] = dv[asum];
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+                asum -= aoutsum;
+                stackstart = stackpointer - radius + div;
+                sir = stack[stackstart % div];
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+                aoutsum -= sir[3];
+                p = pix[yw + vmin[x]];
+                pa = p >>> 24;
+                sir[0] = premultiply((p & 0xff0000) >> 16, pa);
+                sir[1] = premultiply((p & 0x00ff00) >> 8, pa);
+                sir[2] = premultiply(p & 0x0000ff, pa);
+                sir[3] = pa;
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+                ainsum += sir[3];
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+                asum += ainsum;
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[stackpointer];
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+                aoutsum += sir[3];
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+                ainsum -= sir[3];
+                yi++;
+            }
+            yw += w;
+        }
+    }
+
+    /**
+     * 纵向模糊 [x0, x1) 列（预乘 alpha），读取 a、r、g、b，还原预乘后写回 pix
+     */
+    private static void blurColumnsPremultiplied(int[] pix, int w, int h, int radius, int x0, int x1,
+                                                 int[] a, int[] r, int[] g, int[] b,
+                                                 int[] vmin, int[] dv, int[][] stack) {
         int hm = h - 1;
-        int wh = w * h;
         int div = radius + radius + 1;
-        int r[] = new int[wh];
-        int g[] = new int[wh];
-        int b[] = new int[wh];
-        int rsum, gsum, bsum, x, y, i, p, yp, yi, yw;
-        int vmin[] = new int[Math.max(w, h)];
+        int asum, rsum, gsum, bsum, x, y, i, p, pa, yp, yi;
+        int stackpointer;
+        int stackstart;
+        int[] sir;
+        int rbs;
+        int r1 = radius + 1;
+        int aoutsum, routsum, goutsum, boutsum;
+        int ainsum, rinsum, ginsum, binsum;
+        for (x = x0; x < x1; x++) {
+            ainsum = rinsum = ginsum = binsum = aoutsum = routsum = goutsum = boutsum = 0;
+            asum = rsum = gsum = bsum = 0;
+            yp = -radius * w;
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, yp) + x;
+                sir = stack[i + radius];
+                sir[0] = r[yi];
+                sir[1] = g[yi];
+                sir[2] = b[yi];
+                sir[3] = a[yi];
+                rbs = r1 - Math.abs(i);
+                rsum += sir[0] * rbs;
+                gsum += sir[1] * rbs;
+                bsum += sir[2] * rbs;
+                asum += sir[3] * rbs;
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                    ainsum += sir[3];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                    aoutsum += sir[3];
+                }
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            yi = x;
+            stackpointer = radius;
+            for (y = 0; y < h; y++) {
+                pa = dv[asum];
+                pix[yi] = (pa << 24) | (unpremultiply(dv[rsum], pa) << 16)
+                        | (unpremultiply(dv[gsum], pa) << 8) | unpremultiply(dv[bsum], pa);
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+                asum -= aoutsum;
+                stackstart = stackpointer - radius + div;
+                sir = stack[stackstart % div];
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+                aoutsum -= sir[3];
+                p = x + vmin[y];
+                sir[0] = r[p];
+                sir[1] = g[p];
+                sir[2] = b[p];
+                sir[3] = a[p];
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+                ainsum += sir[3];
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+                asum += ainsum;
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[stackpointer];
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+                aoutsum += sir[3];
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+                ainsum -= sir[3];
+                yi += w;
+            }
+        }
+    }
+
+    /**
+     * 生成除法查找表：dv[i] = i / divsum
+     *
+     * @param radius 模糊半径
+     * @return 查找表
+     */
+    static int[] createDivTable(int radius) {
+        int div = radius + radius + 1;
         int divsum = (div + 1) >> 1;
         divsum *= divsum;
         int dv[] = new int[256 * divsum];
-        for (i = 0; i < 256 * divsum; i++) {
+        for (int i = 0; i < 256 * divsum; i++) {
             dv[i] = (i / divsum);
         }
-        yw = yi = 0;
-        int[][] stack = new int[div][3];
+        return dv;
+    }
+
+    /**
+     * 横向模糊 [y0, y1) 行，结果写入 r、g、b
+     */
+    private static void blurRows(int[] pix, int w, int radius, int y0, int y1,
+                                 int[] r, int[] g, int[] b, int[] vmin, int[] dv, int[][] stack) {
+        int wm = w - 1;
+        int div = radius + radius + 1;
+        int rsum, gsum, bsum, x, y, i, p, yi, yw;
         int stackpointer;
         int stackstart;
         int[] sir;
@@ -45,7 +498,8 @@ public final class FastBlur {
         int r1 = radius + 1;
         int routsum, goutsum, boutsum;
         int rinsum, ginsum, binsum;
-        for (y = 0; y < h; y++) {
+        yw = yi = y0 * w;
+        for (y = y0; y < y1; y++) {
             rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
             for (i = -radius; i <= radius; i++) {
                 p = pix[yi + Math.min(wm, Math.max(i, 0))];
@@ -80,9 +534,6 @@ public final class FastBlur {
                 routsum -= sir[0];
                 goutsum -= sir[1];
                 boutsum -= sir[2];
-                if (y == 0) {
-                    vmin[x] = Math.min(x + radius + 1, wm);
-                }
                 p = pix[yw + vmin[x]];
                 sir[0] = (p & 0xff0000) >> 16;
                 sir[1] = (p & 0x00ff00) >> 8;
@@ -105,7 +556,24 @@ public final class FastBlur {
             }
             yw += w;
         }
-        for (x = 0; x < w; x++) {
+    }
+
+    /**
+     * 纵向模糊 [x0, x1) 列，读取 r、g、b，结果写回 pix
+     */
+    private static void blurColumns(int[] pix, int w, int h, int radius, int x0, int x1,
+                                    int[] r, int[] g, int[] b, int[] vmin, int[] dv, int[][] stack) {
+        int hm = h - 1;
+        int div = radius + radius + 1;
+        int rsum, gsum, bsum, x, y, i, p, yp, yi;
+        int stackpointer;
+        int stackstart;
+        int[] sir;
+        int rbs;
+        int r1 = radius + 1;
+        int routsum, goutsum, boutsum;
+        int rinsum, ginsum, binsum;
+        for (x = x0; x < x1; x++) {
             rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
             yp = -radius * w;
             for (i = -radius; i <= radius; i++) {
@@ -144,9 +612,6 @@ public final class FastBlur {
                 routsum -= sir[0];
                 goutsum -= sir[1];
                 boutsum -= sir[2];
-                if (x == 0) {
-                    vmin[y] = Math.min(y + r1, hm) * w;
-                }
                 p = x + vmin[y];
                 sir[0] = r[p];
                 sir[1] = g[p];
@@ -168,7 +633,5 @@ public final class FastBlur {
                 yi += w;
             }
         }
-        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
-        return (bitmap);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,229 @@
+package com.wedo.utils.graphic.blur;
+
+import android.graphics.Bitmap;
+
+import com.wedo.utils.graphic.ParallelBands;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * {@link FastBlur} 的通道打包版本，结果与 FastBlur 逐位一致
+ * <p>
+ * 把 r、g、b 三个通道分别放到一个 long 的 [42, 63)、[21, 42)、[0, 21) 位上，
+ * 一次加减同时更新三个通道，原来的 9 个累加变量减少为 3 个；
+ * stack 改为存放原始像素的一维 int 环形缓冲区，横向结果也打包存放在一个 int 数组中。
+ * 每个通道 21 位，最大能容纳 255 * (r + 1)^2，因此半径不超过 {@link #MAX_RADIUS}，
+ * 超过时自动使用 FastBlur
+ */
+public final class PackedFastBlur {
+    /**
+     * 通道打包所支持的最大半径：255 * 90^2 < 2^21
+     */
+    public static final int MAX_RADIUS = 89;
+
+    private static final int LANE_BITS = 21;
+    private static final long LANE_MASK = (1L << LANE_BITS) - 1;
+
+    /**
+     * 并行模式下每个分段最少包含的行（列）数
+     */
+    private static final int MIN_BAND_SIZE = 64;
+
+    private PackedFastBlur() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 模糊图片
+     *
+     * @param sentBitmap       待模糊图片
+     * @param radius           模糊半径
+     * @param canReuseInBitmap 是否直接在原图上模糊
+     * @param context          可复用的缓冲区
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap, BlurContext context) {
+        Bitmap bitmap;
+        if (canReuseInBitmap) {
+            bitmap = sentBitmap;
+        } else {
+            bitmap = sentBitmap.copy(sentBitmap.getConfig(), true);
+        }
+        if (radius < 1) {
+            return (null);
+        }
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int[] pix = context.obtainPixels(w * h);
+        bitmap.getPixels(pix, 0, w, 0, 0, w, h);
+        blur(pix, w, h, radius, context, null);
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return (bitmap);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     *
+     * @param pix    ARGB 像素数组，行宽为 w
+     * @param w      宽
+     * @param h      高
+     * @param radius 模糊半径，小于 1 时不做处理
+     */
+    public static void blur(int[] pix, int w, int h, int radius) {
+        blur(pix, w, h, radius, new BlurContext(), null);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix）
+     *
+     * @param pix      ARGB 像素数组，行宽为 w
+     * @param w        宽
+     * @param h        高
+     * @param radius   模糊半径，小于 1 时不做处理
+     * @param context  可复用的缓冲区
+     * @param executor 并行执行所用的线程池，为 null 时在当前线程中串行执行
+     */
+    public static void blur(final int[] pix, final int w, final int h, final int radius,
+                            BlurContext context, Executor executor) {
+        if (radius < 1 || w <= 0 || h <= 0) {
+            return;
+        }
+        if (radius > MAX_RADIUS) {
+            FastBlur.blur(pix, w, h, radius, context, executor);
+            return;
+        }
+        final int[] rgb = context.obtainRed(w * h);
+        final int[] dv = context.obtainDivTable(radius);
+        final int[] vminX = context.obtainVminX(w, h, radius);
+        final int[] vminY = context.obtainVminY(w, h, radius);
+        if (executor == null) {
+            int[] stack = context.obtainRing(radius + radius + 1);
+            blurRows(pix, w, radius, 0, h, rgb, vminX, dv, stack);
+            blurColumns(pix, w, h, radius, 0, w, rgb, vminY, dv, stack);
+            return;
+        }
+        ParallelBands.run(executor, h, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurRows(pix, w, radius, start, end, rgb, vminX, dv, new int[radius + radius + 1]);
+            }
+        });
+        ParallelBands.run(executor, w, MIN_BAND_SIZE, new ParallelBands.BandTask() {
+            @Override
+            public void run(int start, int end) {
+                blurColumns(pix, w, h, radius, start, end, rgb, vminY, dv, new int[radius + radius + 1]);
+            }
+        });
+    }
+
+    /**
+     * 把像素的 r、g、b 展开到 long 的三个通道上
+     */
+    private static long unpack(int p) {
+        return ((p & 0xff0000L) << 26) | ((p & 0xff00L) << 13) | (p & 0xffL);
+    }
+
+    /**
+     * 对三个通道的累加和分别查表求平均，结果重新组合为 0x00RRGGBB
+     */
+    private static int average(long sum, int[] dv) {
+        return (dv[(int) (sum >>> (LANE_BITS * 2))] << 16)
+                | (dv[(int) ((sum >>> LANE_BITS) & LANE_MASK)] << 8)
+                | dv[(int) (sum & LANE_MASK)];
+    }
+
+    /**
+     * 横向模糊 [y0, y1) 行，结果打包写入 rgb
+     */
+    private static void blurRows(int[] pix, int w, int radius, int y0, int y1,
+                                 int[] rgb, int[] vmin, int[] dv, int[] stack) {
+        int wm = w - 1;
+        int div = radius + radius + 1;
+        int r1 = radius + 1;
+        int x, y, i, p, yi, yw, stackpointer;
+        long sum, insum, outsum, sir;
+        yw = yi = y0 * w;
+        for (y = y0; y < y1; y++) {
+            sum = insum = outsum = 0;
+            for (i = -radius; i <= radius; i++) {
+                p = pix[yi + Math.min(wm, Math.max(i, 0))];
+                stack[i + radius] = p;
+                sir = unpack(p);
+                sum += sir * (r1 - Math.abs(i));
+                if (i > 0) {
+                    insum += sir;
+                } else {
+                    outsum += sir;
+                }
+            }
+            stackpointer = radius;
+            for (x = 0; x < w; x++) {
+                rgb[yi] = average(sum, dv);
+                sum -= outsum;
+                int stackstart = stackpointer - radius + div;
+                if (stackstart >= div) stackstart -= div;
+                outsum -= unpack(stack[stackstart]);
+                p = pix[yw + vmin[x]];
+                stack[stackstart] = p;
+                insum += unpack(p);
+                sum += insum;
+                if (++stackpointer == div) stackpointer = 0;
+                sir = unpack(stack[stackpointer]);
+                outsum += sir;
+                insum -= sir;
+                yi++;
+            }
+            yw += w;
+        }
+    }
+
+    /**
+     * 纵向模糊 [x0, x1) 列，读取 rgb，结果写回 pix（保留原 alpha 通道）
+     */
+    private static void blurColumns(int[] pix, int w, int h, int radius, int x0, int x1,
+                                    int[] rgb, int[] vmin, int[] dv, int[] stack) {
+        int hm = h - 1;
+        int div = radius + radius + 1;
+        int r1 = radius + 1;
+        int x, y, i, p, yp, yi, stackpointer;
+        long sum, insum, outsum, sir;
+        for (x = x0; x < x1; x++) {
+            sum = insum = outsum = 0;
+            yp = -radius * w;
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, yp) + x;
+                p = rgb[yi];
+                stack[i + radius] = p;
+                sir = unpack(p);
+                sum += sir * (r1 - Math.abs(i));
+                if (i > 0) {
+                    insum += sir;
+                } else {
+                    outsum += sir;
+                }
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            yi = x;
+            stackpointer = radius;
+            for (y = 0; y < h; y++) {
+                pix[yi] = (0xff000000 & pix[yi]) | average(sum, dv);
+                sum -= outsum;
+                int stackstart = stackpointer - radius + div;
+                if (stackstart >= div) stackstart -= div;
+                outsum -= unpack(stack[stackstart]);
+                p = rgb[x + vmin[y]];
+                stack[stackstart] = p;
+                insum += unpack(p);
+                sum += insum;
+                if (++stackpointer == div) stackpointer = 0;
+                sir = unpack(stack[stackpointer]);
+                outsum += sir;
+                insum -= sir;
+                yi += w;
+            }
+        }
+    }
+}
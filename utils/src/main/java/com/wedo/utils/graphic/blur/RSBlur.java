@@ -3,6 +3,8 @@ package com.wedo.utils.graphic.blur;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.os.Build;
 import android.renderscript.Allocation;
 import android.renderscript.Element;
@@ -42,4 +44,36 @@ public final class RSBlur {
         }
         return blurredBitmap;
     }
-}
\ No newline at end of file
+
+    /**
+     * 只模糊图片的指定区域，结果写入目标图片（源图片保持不变）
+     * <p>
+     * 只复制区域及其外围 radius 宽的一圈像素交给 RenderScript 处理，计算量与区域大小成正比
+     *
+     * @param context 上下文对象
+     * @param src     源图片
+     * @param region  模糊区域（超出图片的部分会被裁掉）
+     * @param radius  模糊度（1-25）
+     * @param dst     目标图片，必须是可修改的，可以与 src 相同
+     * @param dstX    结果写入目标图片的起始坐标 x
+     * @param dstY    结果写入目标图片的起始坐标 y
+     * @return 目标图片
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    public static Bitmap blur(Context context, Bitmap src, Rect region, @IntRange(from = 1, to = 25) int radius,
+                              Bitmap dst, int dstX, int dstY) {
+        Rect roi = new Rect(region);
+        if (!roi.intersect(0, 0, src.getWidth(), src.getHeight())) return dst;
+        Rect apron = new Rect(roi.left - radius, roi.top - radius, roi.right + radius, roi.bottom + radius);
+        apron.intersect(0, 0, src.getWidth(), src.getHeight());
+        // RenderScript 的 U8_4 只支持 ARGB_8888，且模糊结果要写回，因此复制到一张可修改的小图上
+        Bitmap part = Bitmap.createBitmap(apron.width(), apron.height(), Bitmap.Config.ARGB_8888);
+        new Canvas(part).drawBitmap(src, apron, new Rect(0, 0, apron.width(), apron.height()), null);
+        part = blur(context, part, radius);
+        int[] pixels = new int[roi.width() * roi.height()];
+        part.getPixels(pixels, 0, roi.width(), roi.left - apron.left, roi.top - apron.top, roi.width(), roi.height());
+        dst.setPixels(pixels, 0, roi.width(), dstX, dstY, roi.width(), roi.height());
+        part.recycle();
+        return dst;
+    }
+}
@@ -0,0 +1,93 @@
+package com.wedo.utils.graphic.blur;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+
+/**
+ * 局部区域模糊（如标题栏、对话框背后的毛玻璃）
+ * <p>
+ * 只读取区域及其外围 radius 宽的一圈像素（保证区域边缘的模糊结果正确），
+ * 模糊后只把区域内的结果写到调用方提供的目标 Bitmap 或数组中，源图片保持不变。
+ * 计算量与 (区域宽 + 2r) x (区域高 + 2r) 成正比，与整张图片的大小无关，
+ * 结果与整张图片模糊后截取该区域逐位一致
+ */
+public final class RegionBlur {
+
+    private RegionBlur() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 模糊图片的指定区域
+     *
+     * @param src     源图片
+     * @param region  模糊区域（超出图片的部分会被裁掉）
+     * @param radius  模糊半径
+     * @param dst     目标图片，必须是可修改的，可以与 src 相同
+     * @param dstX    结果写入目标图片的起始坐标 x
+     * @param dstY    结果写入目标图片的起始坐标 y
+     * @param context 可复用的缓冲区
+     * @return 目标图片，区域为空时不做处理
+     */
+    public static Bitmap blur(Bitmap src, Rect region, int radius, Bitmap dst, int dstX, int dstY,
+                              BlurContext context) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        Rect roi = new Rect(region);
+        if (!roi.intersect(0, 0, w, h) || radius < 1) return dst;
+        int left = Math.max(0, roi.left - radius);
+        int top = Math.max(0, roi.top - radius);
+        int right = Math.min(w, roi.right + radius);
+        int bottom = Math.min(h, roi.bottom + radius);
+        int aw = right - left;
+        int ah = bottom - top;
+        int[] apron = context.obtainPixels(aw * ah);
+        src.getPixels(apron, 0, aw, left, top, aw, ah);
+        FastBlur.blur(apron, aw, ah, radius, context);
+        int offset = (roi.top - top) * aw + (roi.left - left);
+        dst.setPixels(apron, offset, aw, dstX, dstY, roi.width(), roi.height());
+        return dst;
+    }
+
+    /**
+     * 模糊像素数组的指定区域 [left, right) x [top, bottom)
+     *
+     * @param src       源像素，行宽为 w，不会被修改
+     * @param w         源宽
+     * @param h         源高
+     * @param left      区域左边界
+     * @param top       区域上边界
+     * @param right     区域右边界（不包含）
+     * @param bottom    区域下边界（不包含）
+     * @param radius    模糊半径
+     * @param dst       目标数组
+     * @param dstOffset 区域左上角写入目标数组的位置
+     * @param dstStride 目标数组的行宽
+     * @param context   可复用的缓冲区
+     */
+    public static void blur(int[] src, int w, int h, int left, int top, int right, int bottom, int radius,
+                            int[] dst, int dstOffset, int dstStride, BlurContext context) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(w, right);
+        bottom = Math.min(h, bottom);
+        if (left >= right || top >= bottom) return;
+        int ax = Math.max(0, left - radius);
+        int ay = Math.max(0, top - radius);
+        int aw = Math.min(w, right + radius) - ax;
+        int ah = Math.min(h, bottom + radius) - ay;
+        int[] apron = context.obtainPixels(aw * ah);
+        for (int y = 0; y < ah; y++) {
+            System.arraycopy(src, (ay + y) * w + ax, apron, y * aw, aw);
+        }
+        FastBlur.blur(apron, aw, ah, radius, context);
+        int rw = right - left;
+        int offset = (top - ay) * aw + (left - ax);
+        for (int y = top; y < bottom; y++) {
+            System.arraycopy(apron, offset, dst, dstOffset, rw);
+            offset += aw;
+            dstOffset += dstStride;
+        }
+    }
+}
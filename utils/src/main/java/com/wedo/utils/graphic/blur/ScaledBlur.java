@@ -0,0 +1,155 @@
+package com.wedo.utils.graphic.blur;
+
+import android.graphics.Bitmap;
+
+import com.wedo.utils.graphic.PixelScaler;
+
+
+/**
+ * 缩小-模糊-放大 的快速模糊
+ * <p>
+ * 大半径模糊的结果只含低频信息，先把图片缩小到 1/2、1/4 或 1/8，在小图上用等效半径模糊，
+ * 再双线性放大回原尺寸，视觉上与原图直接模糊几乎一致，计算量却降为 1/4 ~ 1/64。
+ * 缩小倍数根据半径和误差预算自动选择，误差预算是与原尺寸 {@link FastBlur} 结果相比
+ * 每个颜色通道的平均绝对误差（0-255）
+ */
+public final class ScaledBlur {
+    /**
+     * 默认误差预算
+     */
+    public static final float DEFAULT_ERROR_BUDGET = 1.5f;
+
+    /**
+     * 误差估算模型（基于噪声、色块、渐变三类图片标定，偏保守）：
+     * 误差 = ERROR_FLOOR + ERROR_RADIUS_RATIO * f / r + ERROR_MISMATCH_WEIGHT * 等效半径取整带来的模糊程度偏差
+     */
+    private static final float ERROR_FLOOR = 0.8f;
+    private static final float ERROR_RADIUS_RATIO = 4f;
+    private static final float ERROR_MISMATCH_WEIGHT = 6f;
+
+    private static final int[] FACTORS = {8, 4, 2};
+
+    private ScaledBlur() {
+        throw new UnsupportedOperationException("cannot be instantiated");
+    }
+
+    /**
+     * 根据模糊半径和误差预算选择缩小倍数
+     *
+     * @param radius      模糊半径
+     * @param errorBudget 误差预算，小于等于 0 时始终返回 1（不缩小）
+     * @return 预估误差不超过预算的最大缩小倍数：1、2、4 或 8
+     */
+    public static int pickScaleFactor(int radius, float errorBudget) {
+        if (errorBudget <= 0) return 1;
+        for (int factor : FACTORS) {
+            if (estimateError(radius, factor) <= errorBudget) {
+                return factor;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * 预估按指定倍数缩小模糊后，与原尺寸模糊结果相比的平均误差
+     *
+     * @param radius 模糊半径
+     * @param factor 缩小倍数
+     * @return 每个颜色通道的平均绝对误差（0-255），factor 为 1 时为 0
+     */
+    public static float estimateError(int radius, int factor) {
+        if (factor <= 1) return 0;
+        if (radius < factor) return Float.MAX_VALUE;
+        // 误差一部分来自缩小时丢失的高频与放大时的插值，缩小后的等效半径越大越小；
+        // 另一部分来自等效半径只能取整数，整体模糊程度与原半径有偏差
+        int scaled = getScaledRadius(radius, factor);
+        double f2 = factor * (double) factor;
+        double variance = getVariance(radius);
+        double scaledVariance = f2 * getVariance(scaled) + (f2 - 1) / 12 + f2 / 6;
+        double mismatch = Math.abs(Math.sqrt(scaledVariance / variance) - 1);
+        return (float) (ERROR_FLOOR + ERROR_RADIUS_RATIO * factor / radius + ERROR_MISMATCH_WEIGHT * mismatch);
+    }
+
+    /**
+     * 缩小后使用的等效半径，使总体模糊程度（方差）与原半径一致
+     *
+     * @param radius 原半径
+     * @param factor 缩小倍数
+     * @return 等效半径，至少为 1
+     */
+    static int getScaledRadius(int radius, int factor) {
+        if (factor <= 1) return radius;
+        // 缩小时的块平均与放大时的双线性插值也各自贡献 (f^2-1)/12 与 f^2/6 的方差
+        double f2 = factor * (double) factor;
+        double scaledVariance = (getVariance(radius) - (f2 - 1) / 12 - f2 / 6) / f2;
+        int scaled = (int) Math.round(Math.sqrt(1 + 6 * Math.max(0, scaledVariance)) - 1);
+        return Math.max(1, scaled);
+    }
+
+    /**
+     * stack blur 的核是半径为 r 的三角形，方差为 r(r+2)/6
+     */
+    private static double getVariance(int radius) {
+        return radius * (radius + 2) / 6.0;
+    }
+
+    /**
+     * 模糊图片
+     *
+     * @param sentBitmap       待模糊图片
+     * @param radius           模糊半径
+     * @param canReuseInBitmap 是否直接在原图上模糊
+     * @param errorBudget      误差预算
+     * @return 被模糊后的图片
+     */
+    public static Bitmap blur(Bitmap sentBitmap, int radius, boolean canReuseInBitmap, float errorBudget) {
+        Bitmap bitmap;
+        if (canReuseInBitmap) {
+            bitmap = sentBitmap;
+        } else {
+            bitmap = sentBitmap.copy(sentBitmap.getConfig(), true);
+        }
+        if (radius < 1) {
+            return (null);
+        }
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int[] pix = new int[w * h];
+        bitmap.getPixels(pix, 0, w, 0, 0, w, h);
+        blur(pix, w, h, radius, errorBudget, new BlurContext());
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return (bitmap);
+    }
+
+    /**
+     * 模糊像素数组（结果直接写回 pix，保留原 alpha 通道）
+     *
+     * @param pix         ARGB 像素数组，行宽为 w
+     * @param w           宽
+     * @param h           高
+     * @param radius      模糊半径，小于 1 时不做处理
+     * @param errorBudget 误差预算
+     * @param context     可复用的缓冲区，用于小图的模糊
+     */
+    public static void blur(int[] pix, int w, int h, int radius, float errorBudget, BlurContext context) {
+        if (radius < 1 || w <= 0 || h <= 0) {
+            return;
+        }
+        int factor = pickScaleFactor(radius, errorBudget);
+        int sw = PixelScaler.getBoxSize(w, factor);
+        int sh = PixelScaler.getBoxSize(h, factor);
+        if (factor == 1 || sw < 2 || sh < 2) {
+            FastBlur.blur(pix, w, h, radius, context);
+            return;
+        }
+        int[] small = context.obtainScratch(0, sw * sh);
+        PixelScaler.downscaleBox(pix, w, h, factor, small);
+        FastBlur.blur(small, sw, sh, getScaledRadius(radius, factor), context);
+        int[] large = context.obtainScratch(1, w * h);
+        PixelScaler.scaleBilinear(small, sw, sh, large, w, h);
+        int wh = w * h;
+        for (int i = 0; i < wh; i++) {
+            pix[i] = (pix[i] & 0xff000000) | (large[i] & 0x00ffffff);
+        }
+    }
+}
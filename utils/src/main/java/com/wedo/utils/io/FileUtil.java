@@ -6,7 +6,6 @@ import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
@@ -18,6 +17,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.wedo.utils.SUtils;
+import com.wedo.utils.graphic.BitmapPool;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
@@ -396,8 +396,9 @@ public class FileUtil {
      * @return 保存的 bitmap 数据
      */
     public Bitmap getAsBitmap(String key) {
-        if (getAsBinary(key) == null) return null;
-        return byte2Bitmap(getAsBinary(key));
+        byte[] bytes = getAsBinary(key);
+        if (bytes == null) return null;
+        return byte2Bitmap(bytes);
     }
 
     private byte[] bitmap2Byte(Bitmap bmp) {
@@ -411,7 +412,7 @@ public class FileUtil {
         if (bytes.length == 0) {
             return null;
         }
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        return BitmapPool.getInstance().decodeByteArray(bytes, 1);
     }
 
 
@@ -0,0 +1,114 @@
+package com.wedo.utils.graphic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapDiskCacheTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("raw", "cache");
+        dir.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static ByteBuffer createPixels(int length, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) (i * 31 + seed));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void putThenGet_roundTrips() {
+        BitmapDiskCache cache = new BitmapDiskCache(dir, 1 << 20);
+        ByteBuffer pixels = createPixels(4 * 30 * 20, 1);
+        assertTrue(cache.put("a", 30, 20, BitmapDiskCache.FORMAT_ARGB_8888, pixels));
+        assertEquals(0, pixels.position());
+        BitmapDiskCache.RawPixels raw = cache.getPixels("a");
+        assertEquals(30, raw.width);
+        assertEquals(20, raw.height);
+        assertEquals(BitmapDiskCache.FORMAT_ARGB_8888, raw.format);
+        assertTrue(raw.hasAlpha);
+        assertEquals(pixels, raw.pixels);
+        assertEquals(BitmapDiskCache.HEADER_SIZE + 4 * 30 * 20, cache.getSize());
+
+        // 长度与尺寸不符时拒绝保存
+        assertFalse(cache.put("b", 30, 20, BitmapDiskCache.FORMAT_RGB_565, pixels));
+        assertNull(cache.getPixels("b"));
+    }
+
+    @Test
+    public void budget_evictsLeastRecentlyUsed() {
+        int entry = BitmapDiskCache.HEADER_SIZE + 2 * 10 * 10;
+        BitmapDiskCache cache = new BitmapDiskCache(dir, entry * 2);
+        cache.put("a", 10, 10, BitmapDiskCache.FORMAT_RGB_565, createPixels(200, 1));
+        cache.put("b", 10, 10, BitmapDiskCache.FORMAT_RGB_565, createPixels(200, 2));
+        cache.getPixels("a");
+        cache.put("c", 10, 10, BitmapDiskCache.FORMAT_RGB_565, createPixels(200, 3));
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(2, dir.listFiles().length);
+
+        // 重新打开后保留已有的文件
+        BitmapDiskCache reopened = new BitmapDiskCache(dir, entry * 2);
+        assertEquals(entry * 2, reopened.getSize());
+        assertEquals(createPixels(200, 3), reopened.getPixels("c").pixels);
+        assertFalse(reopened.getPixels("c").hasAlpha);
+        reopened.clear();
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void corruptedFile_isRemoved() throws IOException {
+        BitmapDiskCache cache = new BitmapDiskCache(dir, 1 << 20);
+        cache.put("a", 10, 10, BitmapDiskCache.FORMAT_RGB_565, createPixels(200, 1));
+        File file = dir.listFiles()[0];
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[20]);
+        out.close();
+        assertNull(cache.getPixels("a"));
+        assertFalse(cache.contains("a"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void previousFileVersion_isRemoved() throws IOException {
+        BitmapDiskCache cache = new BitmapDiskCache(dir, 1 << 20);
+        cache.put("a", 10, 10, BitmapDiskCache.FORMAT_RGB_565, createPixels(200, 1));
+        File file = dir.listFiles()[0];
+        // "RPX1" 的文件头没有 alpha 标志：标识、宽、高、格式
+        ByteBuffer old = ByteBuffer.allocate(16 + 200);
+        old.putInt(0x52505831).putInt(10).putInt(10).putInt(BitmapDiskCache.FORMAT_RGB_565);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(old.array());
+        out.close();
+        assertNull(cache.getPixels("a"));
+        assertFalse(cache.contains("a"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.wedo.utils.graphic;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class BitmapMemoryCacheTest {
+
+    @Test
+    public void key_changesWithFileAndRequest() throws IOException {
+        File file = File.createTempFile("cache", ".jpg");
+        try {
+            write(file, 10);
+            String key = BitmapMemoryCache.getKey(file.getPath(), 100, 100, Bitmap.Config.ARGB_8888);
+            assertEquals(key, BitmapMemoryCache.getKey(file.getPath(), 100, 100, Bitmap.Config.ARGB_8888));
+            assertNotEquals(key, BitmapMemoryCache.getKey(file.getPath(), 100, 200, Bitmap.Config.ARGB_8888));
+            assertNotEquals(key, BitmapMemoryCache.getKey(file.getPath(), 100, 100, Bitmap.Config.RGB_565));
+            write(file, 20);
+            file.setLastModified(file.lastModified() + 2000);
+            assertNotEquals(key, BitmapMemoryCache.getKey(file.getPath(), 100, 100, Bitmap.Config.ARGB_8888));
+        } finally {
+            file.delete();
+        }
+        assertNull(BitmapMemoryCache.getKey(file.getPath(), 100, 100, Bitmap.Config.ARGB_8888));
+        assertNull(BitmapMemoryCache.getKey(null, 100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void trimTarget_shrinksWithPressure() {
+        long max = 1000;
+        assertEquals(max, BitmapMemoryCache.getTrimTarget(0, max));
+        assertEquals(750, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE, max));
+        assertEquals(500, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, max));
+        assertEquals(250, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, max));
+        assertEquals(500, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN, max));
+        assertEquals(500, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND, max));
+        assertEquals(0, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_MODERATE, max));
+        assertEquals(0, BitmapMemoryCache.getTrimTarget(ComponentCallbacks2.TRIM_MEMORY_COMPLETE, max));
+    }
+
+    private static void write(File file, int length) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+}
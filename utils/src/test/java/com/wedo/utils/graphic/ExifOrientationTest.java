@@ -0,0 +1,172 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExifOrientationTest {
+
+    private static void putShort(ByteArrayOutputStream out, int v, boolean le) {
+        if (le) {
+            out.write(v);
+            out.write(v >> 8);
+        } else {
+            out.write(v >> 8);
+            out.write(v);
+        }
+    }
+
+    private static void putInt(ByteArrayOutputStream out, int v, boolean le) {
+        if (le) {
+            putShort(out, v, true);
+            putShort(out, v >>> 16, true);
+        } else {
+            putShort(out, v >>> 16, false);
+            putShort(out, v, false);
+        }
+    }
+
+    /**
+     * TIFF 数据：IFD0 中依次为 ImageWidth、Orientation（可选）、XResolution
+     */
+    private static byte[] tiff(int orientation, boolean le) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(le ? 'I' : 'M');
+        out.write(le ? 'I' : 'M');
+        putShort(out, 42, le);
+        putInt(out, 8, le);
+        int count = orientation > 0 ? 3 : 2;
+        putShort(out, count, le);
+        putShort(out, 0x0100, le);
+        putShort(out, 3, le);
+        putInt(out, 1, le);
+        putInt(out, le ? 640 : 640 << 16, le);
+        if (orientation > 0) {
+            putShort(out, 0x0112, le);
+            putShort(out, 3, le);
+            putInt(out, 1, le);
+            putShort(out, orientation, le);
+            putShort(out, 0, le);
+        }
+        putShort(out, 0x011a, le);
+        putShort(out, 5, le);
+        putInt(out, 1, le);
+        putInt(out, 0, le);
+        putInt(out, 0, le);
+        return out.toByteArray();
+    }
+
+    private static void segment(ByteArrayOutputStream out, int marker, byte[] data) {
+        out.write(0xff);
+        out.write(marker);
+        putShort(out, data.length + 2, false);
+        out.write(data, 0, data.length);
+    }
+
+    private static byte[] jpeg(int orientation, boolean le, int app0Size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xff);
+        out.write(0xd8);
+        segment(out, 0xe0, new byte[app0Size]);
+        byte[] t = tiff(orientation, le);
+        byte[] exif = new byte[6 + t.length];
+        System.arraycopy("Exif".getBytes(), 0, exif, 0, 4);
+        System.arraycopy(t, 0, exif, 6, t.length);
+        segment(out, 0xe1, exif);
+        segment(out, 0xda, new byte[10]);
+        out.write(new byte[1000], 0, 1000);
+        return out.toByteArray();
+    }
+
+    private static int read(byte[] data) throws IOException {
+        return new ExifOrientation().read(new ByteArrayInputStream(data));
+    }
+
+    @Test
+    public void jpeg_bothByteOrders() throws IOException {
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            assertEquals(orientation, read(jpeg(orientation, false, 14)));
+            assertEquals(orientation, read(jpeg(orientation, true, 14)));
+        }
+        assertEquals(ExifOrientation.ORIENTATION_UNDEFINED, read(jpeg(0, false, 14)));
+    }
+
+    @Test
+    public void jpeg_skipsLargeSegments() throws IOException {
+        assertEquals(6, read(jpeg(6, true, 60000)));
+    }
+
+    @Test
+    public void tiffAndOtherFormats() throws IOException {
+        assertEquals(8, read(tiff(8, true)));
+        assertEquals(0, read(new byte[]{(byte) 0x89, 'P', 'N', 'G', 13, 10, 26, 10}));
+        assertEquals(0, read(new byte[0]));
+        byte[] truncated = Arrays.copyOf(jpeg(6, false, 14), 30);
+        assertEquals(0, read(truncated));
+    }
+
+    @Test
+    public void file_batchAndChannelPosition() throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "exif-test-" + System.nanoTime());
+        assertTrue(dir.mkdirs());
+        try {
+            File a = new File(dir, "a.jpg");
+            File b = new File(dir, "b.jpg");
+            File c = new File(dir, "c.txt");
+            write(a, jpeg(3, false, 20000));
+            write(b, jpeg(6, true, 14));
+            write(c, "hello".getBytes());
+            ExifOrientation parser = new ExifOrientation();
+            assertArrayEquals(new int[]{3, 6, 0, 0},
+                    parser.read(Arrays.asList(a, b, c, new File(dir, "missing.jpg"))));
+
+            RandomAccessFile raf = new RandomAccessFile(a, "r");
+            try {
+                raf.seek(7);
+                assertEquals(3, parser.read(raf.getChannel()));
+                assertEquals(7, raf.getChannel().position());
+            } finally {
+                raf.close();
+            }
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void degrees() {
+        assertEquals(0, ExifOrientation.getDegrees(ExifOrientation.ORIENTATION_NORMAL));
+        assertEquals(0, ExifOrientation.getDegrees(ExifOrientation.ORIENTATION_UNDEFINED));
+        assertEquals(90, ExifOrientation.getDegrees(ExifOrientation.ORIENTATION_ROTATE_90));
+        assertEquals(180, ExifOrientation.getDegrees(ExifOrientation.ORIENTATION_ROTATE_180));
+        assertEquals(270, ExifOrientation.getDegrees(ExifOrientation.ORIENTATION_ROTATE_270));
+        assertTrue(ExifOrientation.isFlipped(ExifOrientation.ORIENTATION_TRANSPOSE));
+        assertFalse(ExifOrientation.isFlipped(ExifOrientation.ORIENTATION_ROTATE_90));
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class GroupedLruPoolTest {
+
+    private static final class RecordingPool extends GroupedLruPool<String> {
+        final List<String> evicted = new ArrayList<>();
+
+        RecordingPool(long maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        void onEvicted(String value) {
+            evicted.add(value);
+        }
+    }
+
+    @Test
+    public void get_smallestKeyInRange() {
+        RecordingPool pool = new RecordingPool(1000);
+        pool.put(100, "a", 100);
+        pool.put(300, "b", 300);
+        assertNull(pool.get(301, 1200));
+        assertNull(pool.get(50, 90));
+        assertEquals("a", pool.get(50, 400));
+        assertEquals("b", pool.get(50, 400));
+        assertNull(pool.get(0, Long.MAX_VALUE));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void get_mostRecentInGroup() {
+        RecordingPool pool = new RecordingPool(1000);
+        pool.put(10, "old", 10);
+        pool.put(10, "new", 10);
+        assertEquals("new", pool.get(10, 10));
+        assertEquals("old", pool.get(10, 10));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyPut() {
+        RecordingPool pool = new RecordingPool(100);
+        pool.put(1, "a", 40);
+        pool.put(2, "b", 40);
+        pool.put(1, "c", 40);
+        assertEquals(Arrays.asList("a"), pool.evicted);
+        assertEquals(80, pool.getSize());
+        // 取出后不会再被淘汰
+        assertEquals("c", pool.get(1, 1));
+        pool.put(3, "d", 50);
+        pool.put(3, "e", 50);
+        assertEquals(Arrays.asList("a", "b"), pool.evicted);
+        assertEquals(2, pool.getEvictionCount());
+        assertEquals(2, pool.getCount());
+
+        assertFalse(pool.put(4, "huge", 101));
+        pool.trimToSize(0);
+        assertEquals(Arrays.asList("a", "b", "d", "e"), pool.evicted);
+        assertEquals(0, pool.getSize());
+    }
+}
@@ -0,0 +1,254 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ImageProbeTest {
+
+    private static void be16(ByteArrayOutputStream out, int v) {
+        out.write(v >> 8);
+        out.write(v);
+    }
+
+    private static void le16(ByteArrayOutputStream out, int v) {
+        out.write(v);
+        out.write(v >> 8);
+    }
+
+    private static void be32(ByteArrayOutputStream out, int v) {
+        be16(out, v >>> 16);
+        be16(out, v);
+    }
+
+    private static void le32(ByteArrayOutputStream out, int v) {
+        le16(out, v);
+        le16(out, v >>> 16);
+    }
+
+    private static void ascii(ByteArrayOutputStream out, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            out.write(s.charAt(i));
+        }
+    }
+
+    private static byte[] jpeg(int width, int height, int orientation, int app0Size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        be16(out, 0xffd8);
+        be16(out, 0xffe0);
+        be16(out, app0Size + 2);
+        out.write(new byte[app0Size], 0, app0Size);
+        // APP1：Exif\0\0 + 大端 TIFF，IFD0 只有方向一项
+        be16(out, 0xffe1);
+        be16(out, 2 + 6 + 8 + 2 + 12 + 4);
+        ascii(out, "Exif");
+        be16(out, 0);
+        ascii(out, "MM");
+        be16(out, 42);
+        be32(out, 8);
+        be16(out, 1);
+        be16(out, 0x0112);
+        be16(out, 3);
+        be32(out, 1);
+        be16(out, orientation);
+        be16(out, 0);
+        be32(out, 0);
+        // DQT，然后 SOF2（渐进式）
+        be16(out, 0xffdb);
+        be16(out, 2 + 3);
+        out.write(new byte[3], 0, 3);
+        be16(out, 0xffc2);
+        be16(out, 2 + 6);
+        out.write(8);
+        be16(out, height);
+        be16(out, width);
+        out.write(3);
+        be16(out, 0xffda);
+        return out.toByteArray();
+    }
+
+    private static byte[] png(int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x89);
+        ascii(out, "PNG\r\n\u001a\n");
+        be32(out, 13);
+        ascii(out, "IHDR");
+        be32(out, width);
+        be32(out, height);
+        out.write(new byte[9], 0, 9);
+        return out.toByteArray();
+    }
+
+    private static byte[] riff(String chunk, byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "RIFF");
+        le32(out, 4 + 8 + data.length);
+        ascii(out, "WEBP");
+        ascii(out, chunk);
+        le32(out, data.length);
+        out.write(data, 0, data.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] webpLossy(int width, int height) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write(new byte[3], 0, 3);
+        data.write(0x9d);
+        data.write(0x01);
+        data.write(0x2a);
+        le16(data, width);
+        le16(data, height);
+        return riff("VP8 ", data.toByteArray());
+    }
+
+    private static byte[] webpLossless(int width, int height) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write(0x2f);
+        le32(data, (width - 1) | ((height - 1) << 14));
+        return riff("VP8L", data.toByteArray());
+    }
+
+    private static byte[] webpExtended(int width, int height, int orientation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "RIFF");
+        le32(out, 0);
+        ascii(out, "WEBP");
+        ascii(out, "VP8X");
+        le32(out, 10);
+        out.write(0x08);
+        out.write(new byte[3], 0, 3);
+        le16(out, width - 1);
+        out.write((width - 1) >> 16);
+        le16(out, height - 1);
+        out.write((height - 1) >> 16);
+        // 一个奇数长度的块，之后是 EXIF 块（小端 TIFF）
+        ascii(out, "ICCP");
+        le32(out, 3);
+        out.write(new byte[4], 0, 4);
+        ascii(out, "EXIF");
+        le32(out, 8 + 2 + 12 + 4);
+        ascii(out, "II");
+        le16(out, 42);
+        le32(out, 8);
+        le16(out, 1);
+        le16(out, 0x0112);
+        le16(out, 3);
+        le32(out, 1);
+        le16(out, orientation);
+        le16(out, 0);
+        le32(out, 0);
+        return out.toByteArray();
+    }
+
+    private static byte[] gif(int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "GIF89a");
+        le16(out, width);
+        le16(out, height);
+        out.write(new byte[8], 0, 8);
+        return out.toByteArray();
+    }
+
+    private static byte[] bmp(int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ascii(out, "BM");
+        out.write(new byte[12], 0, 12);
+        le32(out, 40);
+        le32(out, width);
+        le32(out, height);
+        out.write(new byte[28], 0, 28);
+        return out.toByteArray();
+    }
+
+    private static void assertInfo(byte[] data, int format, int width, int height, int orientation) throws IOException {
+        ImageProbe.Info info = new ImageProbe().probe(new ByteArrayInputStream(data));
+        assertEquals(format, info.format);
+        assertEquals(width, info.width);
+        assertEquals(height, info.height);
+        assertEquals(orientation, info.orientation);
+    }
+
+    @Test
+    public void probe_allFormats() throws IOException {
+        assertInfo(jpeg(4032, 3024, 6, 16), ImageProbe.FORMAT_JPEG, 4032, 3024, 6);
+        assertInfo(jpeg(100, 50, 1, 50000), ImageProbe.FORMAT_JPEG, 100, 50, 1);
+        assertInfo(png(1920, 1080), ImageProbe.FORMAT_PNG, 1920, 1080, 0);
+        assertInfo(webpLossy(640, 480), ImageProbe.FORMAT_WEBP, 640, 480, 0);
+        assertInfo(webpLossless(16383, 2), ImageProbe.FORMAT_WEBP, 16383, 2, 0);
+        assertInfo(webpExtended(70000, 300, 8), ImageProbe.FORMAT_WEBP, 70000, 300, 8);
+        assertInfo(gif(320, 200), ImageProbe.FORMAT_GIF, 320, 200, 0);
+        assertInfo(bmp(800, -600), ImageProbe.FORMAT_BMP, 800, 600, 0);
+    }
+
+    @Test
+    public void probe_unknownOrTruncated() throws IOException {
+        ImageProbe probe = new ImageProbe();
+        assertNull(probe.probe(new ByteArrayInputStream("plain text file".getBytes())));
+        assertNull(probe.probe(new ByteArrayInputStream(new byte[0])));
+        byte[] jpeg = jpeg(10, 10, 1, 16);
+        byte[] truncated = new byte[jpeg.length - 12];
+        System.arraycopy(jpeg, 0, truncated, 0, truncated.length);
+        assertNull(probe.probe(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    public void displaySize_followsOrientation() throws IOException {
+        ImageProbe.Info info = new ImageProbe().probe(new ByteArrayInputStream(jpeg(400, 300, 6, 16)));
+        assertEquals(300, info.getDisplayWidth());
+        assertEquals(400, info.getDisplayHeight());
+    }
+
+    @Test
+    public void scan_directory() throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "probe-test-" + System.nanoTime());
+        File sub = new File(dir, "sub");
+        sub.mkdirs();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int i = 0; i < 40; i++) {
+                write(new File(i % 2 == 0 ? dir : sub, i + ".img"), i % 3 == 0 ? png(i + 1, 7) : gif(i + 1, 9));
+            }
+            write(new File(dir, "notes.txt"), "not an image".getBytes());
+            List<ImageProbe.Info> all = ImageProbe.scan(dir, true, executor);
+            assertEquals(40, all.size());
+            int width = 0;
+            for (ImageProbe.Info info : all) {
+                width += info.width;
+            }
+            assertEquals(40 * 41 / 2, width);
+            assertEquals(20, ImageProbe.scan(dir, false, null).size());
+        } finally {
+            executor.shutdown();
+            delete(dir);
+        }
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
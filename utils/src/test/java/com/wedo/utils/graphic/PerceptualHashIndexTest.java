@@ -0,0 +1,125 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerceptualHashIndexTest {
+
+    /**
+     * 随机翻转 bits 个不同的位
+     */
+    private static long flipBits(long hash, int bits, Random random) {
+        long flipped = 0;
+        while (Long.bitCount(flipped) < bits) {
+            flipped |= 1L << random.nextInt(64);
+        }
+        return hash ^ flipped;
+    }
+
+    private static int[] bruteForce(long[] hashes, int size, long hash, int maxDistance) {
+        List<long[]> found = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            int d = Long.bitCount(hashes[id] ^ hash);
+            if (d <= maxDistance) {
+                found.add(new long[]{d, id});
+            }
+        }
+        long[] keys = new long[found.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (found.get(i)[0] << 32) | found.get(i)[1];
+        }
+        Arrays.sort(keys);
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (int) keys[i];
+        }
+        return ids;
+    }
+
+    @Test
+    public void query_matchesBruteForce() {
+        Random random = new Random(1);
+        int n = 20000;
+        long[] hashes = new long[n];
+        for (int i = 0; i < n; i++) {
+            // 一部分是前面哈希的近似副本
+            hashes[i] = i > 0 && random.nextInt(4) == 0
+                    ? flipBits(hashes[random.nextInt(i)], random.nextInt(12), random)
+                    : random.nextLong();
+        }
+        PerceptualHashIndex index = new PerceptualHashIndex();
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, index.add(hashes[i]));
+            if (i % 997 == 0) {
+                // 边添加边查询，覆盖未索引部分的线性扫描
+                long q = hashes[random.nextInt(i + 1)];
+                assertArrayEquals(bruteForce(hashes, i + 1, q, 10), index.query(q, 10));
+            }
+        }
+        for (int k = 0; k < 200; k++) {
+            long q = flipBits(hashes[random.nextInt(n)], random.nextInt(4), random);
+            int r = random.nextInt(20);
+            assertArrayEquals("r=" + r, bruteForce(hashes, n, q, r), index.query(q, r));
+        }
+        assertEquals(-1, index.findNearest(0x5555555555555555L, -1));
+    }
+
+    @Test
+    public void query_100kImages_matchesBruteForce() {
+        Random random = new Random(2);
+        int n = 100000;
+        long[] hashes = new long[n];
+        for (int i = 0; i < n; i++) {
+            hashes[i] = random.nextLong();
+        }
+        PerceptualHashIndex index = new PerceptualHashIndex(n);
+        index.addAll(hashes);
+        long[] queries = new long[200];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = flipBits(hashes[random.nextInt(n)], 6, random);
+        }
+        for (long q : queries) {
+            int[] result = index.query(q, 10);
+            assertTrue(result.length >= 1);
+            assertArrayEquals(bruteForce(hashes, n, q, 10), result);
+        }
+    }
+
+    @Test
+    public void findGroups_andPersistence() throws IOException {
+        Random random = new Random(3);
+        PerceptualHashIndex index = new PerceptualHashIndex();
+        long a = random.nextLong();
+        long b = random.nextLong();
+        index.add(a);
+        index.add(random.nextLong());
+        index.add(b ^ 0x3);
+        index.add(a ^ 0x7);
+        index.add(b);
+        // 传递关系：5 与 0 相差 6 位，但与 3 只差 3 位
+        index.add(a ^ 0x7 ^ 0x38);
+        List<int[]> groups = index.findGroups(4);
+        assertEquals(2, groups.size());
+        assertArrayEquals(new int[]{0, 3, 5}, groups.get(0));
+        assertArrayEquals(new int[]{2, 4}, groups.get(1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        assertEquals(4 + 8 * 6, out.size());
+        PerceptualHashIndex copy = PerceptualHashIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(6, copy.size());
+        assertEquals(index.getHash(5), copy.getHash(5));
+        assertArrayEquals(new int[]{3, 0, 5}, copy.query(a ^ 0x7, 6));
+    }
+}
@@ -0,0 +1,104 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerceptualHashTest {
+
+    /**
+     * 若干随机色块叠加的平滑图像
+     */
+    private static PixelBuffer createPhoto(int w, int h, long seed) {
+        Random random = new Random(seed);
+        int blobs = 12;
+        double[][] params = new double[blobs][6];
+        for (double[] p : params) {
+            p[0] = random.nextDouble() * w;
+            p[1] = random.nextDouble() * h;
+            p[2] = (0.05 + random.nextDouble() * 0.3) * w;
+            p[3] = random.nextDouble() * 255 - 128;
+            p[4] = random.nextDouble() * 255 - 128;
+            p[5] = random.nextDouble() * 255 - 128;
+        }
+        PixelBuffer buffer = new PixelBuffer(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double r = 128, g = 128, b = 128;
+                for (double[] p : params) {
+                    double dx = x - p[0];
+                    double dy = y - p[1];
+                    double k = Math.exp(-(dx * dx + dy * dy) / (2 * p[2] * p[2]));
+                    r += p[3] * k;
+                    g += p[4] * k;
+                    b += p[5] * k;
+                }
+                buffer.set(x, y, 0xff000000 | clamp(r) << 16 | clamp(g) << 8 | clamp(b));
+            }
+        }
+        return buffer;
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, Math.round(v)));
+    }
+
+    /**
+     * 模拟重新编码：加噪声并整体提亮
+     */
+    private static PixelBuffer distort(PixelBuffer src, int noise, int brightness, long seed) {
+        Random random = new Random(seed);
+        PixelBuffer dst = new PixelBuffer(src.getWidth(), src.getHeight());
+        for (int y = 0; y < src.getHeight(); y++) {
+            for (int x = 0; x < src.getWidth(); x++) {
+                int p = src.get(x, y);
+                int color = 0xff000000;
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int c = ((p >> shift) & 0xff) + brightness + random.nextInt(2 * noise + 1) - noise;
+                    color |= clamp(c) << shift;
+                }
+                dst.set(x, y, color);
+            }
+        }
+        return dst;
+    }
+
+    @Test
+    public void hashes_matchNearDuplicates() {
+        PixelBuffer photo = createPhoto(400, 300, 1);
+        PixelBuffer resized = new PixelBuffer(173, 130);
+        PixelScaler.scaleBilinear(photo, resized);
+        PixelBuffer noisy = distort(photo, 12, 15, 2);
+        long dHash = PerceptualHash.dHash(photo);
+        long pHash = PerceptualHash.pHash(photo);
+        assertTrue(PerceptualHash.distance(dHash, PerceptualHash.dHash(resized)) <= 6);
+        assertTrue(PerceptualHash.distance(dHash, PerceptualHash.dHash(noisy)) <= 6);
+        assertTrue(PerceptualHash.distance(pHash, PerceptualHash.pHash(resized)) <= 6);
+        assertTrue(PerceptualHash.distance(pHash, PerceptualHash.pHash(noisy)) <= 6);
+    }
+
+    @Test
+    public void hashes_separateDifferentImages() {
+        int minD = 64;
+        int minP = 64;
+        for (int seed = 10; seed < 20; seed++) {
+            PixelBuffer a = createPhoto(160, 120, seed);
+            PixelBuffer b = createPhoto(160, 120, seed + 100);
+            minD = Math.min(minD, PerceptualHash.distance(PerceptualHash.dHash(a), PerceptualHash.dHash(b)));
+            minP = Math.min(minP, PerceptualHash.distance(PerceptualHash.pHash(a), PerceptualHash.pHash(b)));
+        }
+        assertTrue("dHash " + minD, minD >= 12);
+        assertTrue("pHash " + minP, minP >= 12);
+    }
+
+    @Test
+    public void pHash_isBalanced() {
+        // 与中位数比较，约一半的位为 1
+        long hash = PerceptualHash.pHash(createPhoto(64, 64, 3));
+        assertEquals(32, Long.bitCount(hash), 1);
+        assertEquals(0, PerceptualHash.distance(hash, hash));
+    }
+}
@@ -0,0 +1,143 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 期望的宽高与依次调用 ImageUtil.clip/rotate/scale（Bitmap.createBitmap 取外接矩形并四舍五入）的结果相同
+ */
+public class PipelineGeometryTest {
+    private static final float DELTA = 1e-3f;
+
+    @Test
+    public void identity() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        assertEquals(100, geometry.getWidth());
+        assertEquals(50, geometry.getHeight());
+        assertArrayEquals(new float[]{1, 0, 0, 0, 1, 0, 0, 0, 1}, geometry.getValues(), 0);
+        assertFalse(geometry.isMasked());
+    }
+
+    @Test
+    public void rotate90_swapsSizeAndTranslatesToOrigin() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        geometry.transform(PipelineGeometry.rotate(90));
+        assertEquals(50, geometry.getWidth());
+        assertEquals(100, geometry.getHeight());
+        // 顺时针旋转后源图左上角在右上角
+        assertArrayEquals(new float[]{50, 0}, geometry.mapPoint(0, 0), DELTA);
+        assertArrayEquals(new float[]{0, 100}, geometry.mapPoint(100, 50), DELTA);
+    }
+
+    @Test
+    public void rotate180_keepsSize() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        geometry.transform(PipelineGeometry.rotate(180));
+        assertEquals(100, geometry.getWidth());
+        assertEquals(50, geometry.getHeight());
+        assertArrayEquals(new float[]{100, 50}, geometry.mapPoint(0, 0), DELTA);
+    }
+
+    @Test
+    public void rotate45_usesRoundedBoundingBox() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        geometry.transform(PipelineGeometry.rotate(45));
+        // (100 + 50) * cos45 = 106.07
+        assertEquals(106, geometry.getWidth());
+        assertEquals(106, geometry.getHeight());
+
+        PipelineGeometry square = new PipelineGeometry(100, 100);
+        square.transform(PipelineGeometry.rotate(45));
+        // 100 * sqrt(2) = 141.42
+        assertEquals(141, square.getWidth());
+        assertEquals(141, square.getHeight());
+    }
+
+    @Test
+    public void clipThenScale() {
+        PipelineGeometry geometry = new PipelineGeometry(200, 100);
+        float[] step = geometry.clip(10, 20, 30, 40);
+        assertArrayEquals(new float[]{1, 0, -10, 0, 1, -20, 0, 0, 1}, step, 0);
+        assertEquals(30, geometry.getWidth());
+        assertEquals(40, geometry.getHeight());
+
+        geometry.transform(PipelineGeometry.scale(2, 0.5f));
+        assertEquals(60, geometry.getWidth());
+        assertEquals(20, geometry.getHeight());
+        // 裁剪区域的左上角和右下角
+        assertArrayEquals(new float[]{0, 0}, geometry.mapPoint(10, 20), DELTA);
+        assertArrayEquals(new float[]{60, 20}, geometry.mapPoint(40, 60), DELTA);
+    }
+
+    @Test
+    public void scale_roundsFractionalSize() {
+        PipelineGeometry geometry = new PipelineGeometry(101, 51);
+        geometry.transform(PipelineGeometry.scale(0.5f, 0.5f));
+        // 50.5 -> 51, 25.5 -> 26
+        assertEquals(51, geometry.getWidth());
+        assertEquals(26, geometry.getHeight());
+    }
+
+    @Test
+    public void scale_sizeIsAtLeastOne() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 100);
+        geometry.transform(PipelineGeometry.scale(0.001f, 0.001f));
+        assertEquals(0, geometry.getRawWidth());
+        assertEquals(1, geometry.getWidth());
+        assertEquals(1, geometry.getHeight());
+    }
+
+    @Test
+    public void negativeScale_translatesBack() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        geometry.transform(PipelineGeometry.scale(-1, 1));
+        assertEquals(100, geometry.getWidth());
+        assertEquals(50, geometry.getHeight());
+        assertArrayEquals(new float[]{100, 0}, geometry.mapPoint(0, 0), DELTA);
+    }
+
+    @Test
+    public void skew_widensBoundingBox() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        geometry.transform(PipelineGeometry.skew(0.5f, 0));
+        // x' = x + 0.5y
+        assertEquals(125, geometry.getWidth());
+        assertEquals(50, geometry.getHeight());
+    }
+
+    @Test
+    public void centeredSquare() {
+        assertArrayEquals(new int[]{20, 0, 60}, new PipelineGeometry(100, 60).getCenteredSquare());
+        assertArrayEquals(new int[]{0, 20, 60}, new PipelineGeometry(60, 101).getCenteredSquare());
+
+        PipelineGeometry rotated = new PipelineGeometry(60, 100);
+        rotated.transform(PipelineGeometry.rotate(90));
+        assertArrayEquals(new int[]{20, 0, 60}, rotated.getCenteredSquare());
+    }
+
+    @Test
+    public void geometricStepAfterMask_throws() {
+        PipelineGeometry geometry = new PipelineGeometry(100, 50);
+        geometry.mask();
+        assertTrue(geometry.isMasked());
+        try {
+            geometry.clip(0, 0, 10, 10);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            geometry.transform(PipelineGeometry.rotate(90));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // 失败的操作不改变状态
+        assertEquals(100, geometry.getWidth());
+        assertEquals(50, geometry.getHeight());
+        assertArrayEquals(new float[]{1, 0, 0, 0, 1, 0, 0, 0, 1}, geometry.getValues(), 0);
+    }
+}
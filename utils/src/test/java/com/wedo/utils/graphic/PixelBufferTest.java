@@ -0,0 +1,131 @@
+package com.wedo.utils.graphic;
+
+import com.google.zxing.common.BitMatrix;
+import com.wedo.utils.graphic.blur.BlurContext;
+import com.wedo.utils.graphic.blur.FastBlur;
+
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PixelBufferTest {
+
+    private static PixelBuffer createImage(int w, int h, long seed) {
+        Random random = new Random(seed);
+        PixelBuffer buffer = new PixelBuffer(w, h);
+        int[] pixels = buffer.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return buffer;
+    }
+
+    /**
+     * 把 buffer 放进一块更大的数组中间，得到非紧凑的区域视图
+     */
+    private static PixelBuffer embed(PixelBuffer buffer) {
+        PixelBuffer outer = createImage(buffer.getWidth() + 7, buffer.getHeight() + 5, 99);
+        PixelBuffer region = outer.region(3, 2, buffer.getWidth(), buffer.getHeight());
+        buffer.copyTo(region);
+        return region;
+    }
+
+    @Test
+    public void region_sharesPixels() {
+        PixelBuffer buffer = createImage(10, 8, 1);
+        PixelBuffer region = buffer.region(2, 3, 4, 5);
+        assertSame(buffer.getPixels(), region.getPixels());
+        assertEquals(buffer.get(2, 3), region.get(0, 0));
+        region.set(3, 4, 0x12345678);
+        assertEquals(0x12345678, buffer.get(5, 7));
+        assertArrayEquals(copyOf(region), copyOf(region.copy()));
+    }
+
+    @Test
+    public void wrap_intBuffer() {
+        int[] pixels = {1, 2, 3, 4, 5, 6, 7};
+        IntBuffer heap = IntBuffer.wrap(pixels);
+        heap.position(1);
+        PixelBuffer shared = PixelBuffer.wrap(heap, 3, 2);
+        assertSame(pixels, shared.getPixels());
+        assertEquals(2, shared.get(0, 0));
+        assertEquals(7, shared.get(2, 1));
+
+        IntBuffer direct = java.nio.ByteBuffer.allocateDirect(24).asIntBuffer();
+        direct.put(pixels, 1, 6).flip();
+        assertArrayEquals(copyOf(shared), copyOf(PixelBuffer.wrap(direct, 3, 2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void region_outOfBounds() {
+        new PixelBuffer(4, 4).region(2, 2, 3, 1);
+    }
+
+    @Test
+    public void scale_regionMatchesCompact() {
+        PixelBuffer src = createImage(37, 23, 2);
+        PixelBuffer expected = new PixelBuffer(50, 11);
+        PixelScaler.scaleBilinear(src, expected);
+        PixelBuffer actual = embed(new PixelBuffer(50, 11));
+        PixelScaler.scaleBilinear(embed(src), actual);
+        assertArrayEquals(copyOf(expected), copyOf(actual));
+
+        PixelBuffer box = new PixelBuffer(PixelScaler.getBoxSize(37, 4), PixelScaler.getBoxSize(23, 4));
+        PixelScaler.downscaleBox(src, 4, box);
+        PixelBuffer boxRegion = embed(new PixelBuffer(box.getWidth(), box.getHeight()));
+        PixelScaler.downscaleBox(embed(src), 4, boxRegion);
+        assertArrayEquals(copyOf(box), copyOf(boxRegion));
+    }
+
+    @Test
+    public void blur_regionMatchesCompact() {
+        PixelBuffer src = createImage(80, 60, 3);
+        PixelBuffer region = embed(src);
+        int[] outside = region.getPixels().clone();
+        BlurContext context = new BlurContext();
+        FastBlur.blur(src, 6, context, null, false);
+        FastBlur.blur(region, 6, context, null, false);
+        assertArrayEquals(copyOf(src), copyOf(region));
+        // 区域外的像素不受影响
+        int[] after = region.getPixels();
+        for (int i = 0; i < after.length; i++) {
+            int x = i % region.getStride() - 3;
+            int y = i / region.getStride() - 2;
+            if (x < 0 || y < 0 || x >= region.getWidth() || y >= region.getHeight()) {
+                assertEquals(outside[i], after[i]);
+            }
+        }
+    }
+
+    @Test
+    public void toGray() {
+        PixelBuffer buffer = PixelBuffer.wrap(new int[]{0xffffffff, 0x80000000, 0xffff0000, 0x4000ff00, 0xff0000ff}, 5, 1);
+        PixelFilters.toGray(buffer, buffer);
+        assertArrayEquals(new int[]{0xffffffff, 0x80000000, 0xff373737, 0x40b6b6b6, 0xff121212}, buffer.getPixels());
+    }
+
+    @Test
+    public void renderQRCode() {
+        BitMatrix matrix = new BitMatrix(5, 2);
+        matrix.set(1, 0);
+        matrix.set(2, 0);
+        matrix.set(4, 1);
+        PixelBuffer buffer = QRCodeRenderer.render(matrix, 1, 0);
+        assertArrayEquals(new int[]{0, 1, 1, 0, 0, 0, 0, 0, 0, 1}, buffer.getPixels());
+
+        PixelBuffer qr = QRCodeRenderer.encode("https://example.com", 120, 120, 2);
+        assertEquals(120, qr.getWidth());
+        assertEquals(QRCodeRenderer.WHITE, qr.get(0, 0));
+    }
+
+    private static int[] copyOf(PixelBuffer buffer) {
+        int[] pixels = new int[buffer.getWidth() * buffer.getHeight()];
+        buffer.copyTo(pixels, 0, buffer.getWidth());
+        return pixels;
+    }
+}
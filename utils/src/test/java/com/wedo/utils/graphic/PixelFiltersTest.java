@@ -0,0 +1,63 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PixelFiltersTest {
+
+    @Test
+    public void premultiply_roundTrip() {
+        PixelBuffer buffer = new PixelBuffer(256, 256);
+        for (int a = 0; a < 256; a++) {
+            for (int c = 0; c < 256; c++) {
+                buffer.set(c, a, (a << 24) | (c << 16) | ((255 - c) << 8) | (c / 2));
+            }
+        }
+        PixelBuffer original = buffer.copy();
+        PixelFilters.premultiply(buffer);
+        assertEquals(0x80404020, buffer.get(128, 128));
+        PixelFilters.unpremultiply(buffer);
+        for (int a = 0; a < 256; a++) {
+            for (int c = 0; c < 256; c++) {
+                int expected = original.get(c, a);
+                int actual = buffer.get(c, a);
+                assertEquals(expected >>> 24, actual >>> 24);
+                if (a == 0) {
+                    assertEquals(0, actual);
+                    continue;
+                }
+                // 预乘后只保留 a + 1 级，还原误差不超过半级
+                int tolerance = (255 + a) / (2 * a) + 1;
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int diff = Math.abs(((expected >> shift) & 0xff) - ((actual >> shift) & 0xff));
+                    assertTrue("a=" + a + " c=" + c + " diff=" + diff, diff <= tolerance);
+                }
+            }
+        }
+        // 不透明像素不变
+        for (int c = 0; c < 256; c++) {
+            assertEquals(original.get(c, 255), buffer.get(c, 255));
+        }
+    }
+
+    @Test
+    public void premultipliedScaling_hasNoDarkFringe() {
+        // 红色不透明像素与完全透明（0, 0, 0, 0）的像素缩小为一个像素
+        PixelBuffer src = PixelBuffer.wrap(new int[]{0xffff0000, 0x00000000}, 2, 1);
+        PixelBuffer straight = new PixelBuffer(1, 1);
+        PixelScaler.scaleArea(src, straight, null);
+        assertTrue(((straight.get(0, 0) >> 16) & 0xff) < 140);
+
+        PixelBuffer premultiplied = src.copy();
+        PixelFilters.premultiply(premultiplied);
+        PixelBuffer dst = new PixelBuffer(1, 1);
+        PixelScaler.scaleArea(premultiplied, dst, null);
+        PixelFilters.unpremultiply(dst);
+        int p = dst.get(0, 0);
+        assertEquals(0xff, (p >> 16) & 0xff);
+        assertEquals(0, p & 0xffff);
+        assertTrue(Math.abs((p >>> 24) - 128) <= 1);
+    }
+}
@@ -0,0 +1,206 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PixelResamplerTest {
+
+    private static final int[] FILTERS = {
+            PixelResampler.FILTER_BILINEAR, PixelResampler.FILTER_BICUBIC, PixelResampler.FILTER_LANCZOS
+    };
+
+    /**
+     * 连续图像：平滑渐变、中等频率的正弦条纹、超过缩略图奈奎斯特频率的细纹（缩小后应平均为灰色，
+     * 只采样少数像素时产生摩尔纹）和一个硬边圆，坐标以图像宽高归一化到 [0, 1)
+     */
+    private static double[] sample(double u, double v) {
+        double stripes = 0.5 + 0.5 * Math.sin(2 * Math.PI * 24 * (u + 0.5 * v));
+        double fine = 0.5 + 0.5 * Math.sin(2 * Math.PI * (700 * u + 300 * v));
+        double du = u - 0.6;
+        double dv = v - 0.45;
+        double disc = du * du + dv * dv < 0.05 ? 1 : 0;
+        return new double[]{
+                255 * (0.2 + 0.3 * u + 0.4 * fine),
+                255 * (0.15 + 0.7 * stripes * (1 - disc) + 0.1 * disc),
+                255 * (0.3 + 0.4 * v + 0.2 * disc)
+        };
+    }
+
+    /**
+     * 按像素面积超采样渲染（supersample x supersample 个采样点取平均），作为参考图像
+     */
+    private static PixelBuffer render(int w, int h, int supersample) {
+        PixelBuffer buffer = new PixelBuffer(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                double[] sum = new double[3];
+                for (int j = 0; j < supersample; j++) {
+                    for (int i = 0; i < supersample; i++) {
+                        double[] c = sample((x + (i + 0.5) / supersample) / w, (y + (j + 0.5) / supersample) / h);
+                        for (int k = 0; k < 3; k++) {
+                            sum[k] += c[k];
+                        }
+                    }
+                }
+                int color = 0xff000000;
+                for (int k = 0; k < 3; k++) {
+                    color |= (int) Math.round(sum[k] / (supersample * supersample)) << (16 - k * 8);
+                }
+                buffer.set(x, y, color);
+            }
+        }
+        return buffer;
+    }
+
+    private static double psnr(PixelBuffer expected, PixelBuffer actual) {
+        double sum = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int p = expected.get(x, y);
+                int q = actual.get(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    double d = ((p >> shift) & 0xff) - ((q >> shift) & 0xff);
+                    sum += d * d;
+                }
+            }
+        }
+        double mse = sum / (3.0 * expected.getWidth() * expected.getHeight());
+        return 10 * Math.log10(255 * 255 / mse);
+    }
+
+    @Test
+    public void weights_sumToOneAndStayInBounds() {
+        int[][] pairs = {{3840, 320}, {1000, 999}, {7, 3}, {3, 7}, {1, 5}, {5, 1}, {64, 64}};
+        for (int filter : FILTERS) {
+            for (int[] pair : pairs) {
+                PixelResampler.Weights weights = PixelResampler.getWeights(pair[0], pair[1], filter);
+                for (int d = 0; d < pair[1]; d++) {
+                    int sum = 0;
+                    for (int k = 0; k < weights.count[d]; k++) {
+                        sum += weights.weights[weights.offset[d] + k];
+                    }
+                    assertEquals(1 << 14, sum);
+                    assertTrue(weights.first[d] >= 0 && weights.first[d] + weights.count[d] <= pair[0]);
+                }
+            }
+        }
+        // 同一对尺寸复用缓存的权重表
+        assertTrue(PixelResampler.getWeights(3840, 320, PixelResampler.FILTER_LANCZOS)
+                == PixelResampler.getWeights(3840, 320, PixelResampler.FILTER_LANCZOS));
+    }
+
+    @Test
+    public void scale_identityAndConstant() {
+        Random random = new Random(1);
+        int[] src = new int[37 * 23];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = random.nextInt();
+        }
+        for (int filter : FILTERS) {
+            int[] same = new int[src.length];
+            PixelResampler.scale(src, 37, 23, same, 37, 23, filter);
+            assertArrayEquals(src, same);
+
+            int[] flat = new int[100 * 80];
+            Arrays.fill(flat, 0x80c04020);
+            int[] out = new int[33 * 111];
+            PixelResampler.scale(flat, 100, 80, out, 33, 111, filter);
+            for (int p : out) {
+                assertEquals(0x80c04020, p);
+            }
+        }
+    }
+
+    @Test
+    public void parallel_matchesSerial() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Random random = new Random(2);
+            PixelBuffer src = new PixelBuffer(700, 500);
+            for (int i = 0; i < src.getPixels().length; i++) {
+                src.getPixels()[i] = random.nextInt();
+            }
+            for (int filter : FILTERS) {
+                PixelBuffer serial = new PixelBuffer(123, 321);
+                PixelBuffer parallel = new PixelBuffer(123, 321);
+                PixelResampler.scale(src, serial, filter, null);
+                PixelResampler.scale(src, parallel, filter, executor);
+                assertArrayEquals(serial.getPixels(), parallel.getPixels());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void scale_premultipliedEdgeKeepsColor() {
+        // 左半不透明红色，右半完全透明（0, 0, 0, 0）
+        PixelBuffer src = new PixelBuffer(64, 8);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 32; x++) {
+                src.set(x, y, 0xffff0000);
+            }
+        }
+        for (int filter : FILTERS) {
+            PixelBuffer in = src.copy();
+            PixelFilters.premultiply(in);
+            PixelBuffer dst = new PixelBuffer(13, 3);
+            PixelResampler.scale(in, dst, filter, null);
+            PixelFilters.unpremultiply(dst);
+            for (int x = 0; x < dst.getWidth(); x++) {
+                int p = dst.get(x, 1);
+                if (p >>> 24 < 8) continue;
+                // 半透明的边缘仍是纯红色，没有混入黑色
+                assertEquals("filter " + filter + " x " + x, 0xff, (p >> 16) & 0xff);
+                assertEquals("filter " + filter + " x " + x, 0, p & 0xffff);
+            }
+        }
+    }
+
+    /**
+     * 4K 缩略图：与超采样渲染的参考图比较 PSNR，双线性插值（PixelScaler.scaleBilinear，
+     * 与 Bitmap.createScaledBitmap / Matrix 缩放的双线性采样相同）作为对照
+     */
+    @Test
+    public void benchmark_4kToThumbnail() {
+        int sw = 3840, sh = 2160, dw = 320, dh = 180;
+        PixelBuffer src = render(sw, sh, 1);
+        PixelBuffer reference = render(dw, dh, 12);
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            PixelBuffer matrix = new PixelBuffer(dw, dh);
+            PixelScaler.scaleBilinear(src, matrix);
+            long start = System.nanoTime();
+            PixelScaler.scaleBilinear(src, matrix);
+            long time = System.nanoTime() - start;
+            double matrixPsnr = psnr(reference, matrix);
+            System.out.printf("4K->%dx%d bilinear sampling (Matrix path): %.1f ms, %.1f dB%n",
+                    dw, dh, time / 1e6, matrixPsnr);
+            String[] names = {"bilinear", "bicubic", "lanczos3"};
+            for (int filter : FILTERS) {
+                PixelBuffer dst = new PixelBuffer(dw, dh);
+                PixelResampler.scale(src, dst, filter, null);
+                start = System.nanoTime();
+                PixelResampler.scale(src, dst, filter, null);
+                long serial = System.nanoTime() - start;
+                start = System.nanoTime();
+                PixelResampler.scale(src, dst, filter, executor);
+                long parallel = System.nanoTime() - start;
+                double quality = psnr(reference, dst);
+                System.out.printf("4K->%dx%d %s: %.1f ms serial, %.1f ms parallel, %.1f dB%n",
+                        dw, dh, names[filter], serial / 1e6, parallel / 1e6, quality);
+                assertTrue(names[filter] + " " + quality, quality > matrixPsnr + 5);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
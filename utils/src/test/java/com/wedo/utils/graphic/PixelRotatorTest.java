@@ -0,0 +1,177 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PixelRotatorTest {
+
+    private static PixelBuffer random(int w, int h, long seed) {
+        Random random = new Random(seed);
+        PixelBuffer buffer = new PixelBuffer(w, h);
+        int[] pixels = buffer.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return buffer;
+    }
+
+    /**
+     * 按 EXIF 方向的定义逐像素变换（先水平翻转再顺时针旋转），作为参考
+     */
+    private static PixelBuffer naive(PixelBuffer src, int orientation) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        boolean swap = PixelRotator.swapsAxes(orientation);
+        PixelBuffer dst = swap ? new PixelBuffer(h, w) : new PixelBuffer(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int fx = ExifOrientation.isFlipped(orientation) ? w - 1 - x : x;
+                int dx, dy;
+                switch (ExifOrientation.getDegrees(orientation)) {
+                    case 90:
+                        dx = h - 1 - y;
+                        dy = fx;
+                        break;
+                    case 180:
+                        dx = w - 1 - fx;
+                        dy = h - 1 - y;
+                        break;
+                    case 270:
+                        dx = y;
+                        dy = w - 1 - fx;
+                        break;
+                    default:
+                        dx = fx;
+                        dy = y;
+                        break;
+                }
+                dst.set(dx, dy, src.get(x, y));
+            }
+        }
+        return dst;
+    }
+
+    @Test
+    public void transform_matchesDefinition() {
+        int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {31, 33}, {64, 64}, {100, 37}, {37, 100}};
+        for (int[] size : sizes) {
+            PixelBuffer src = random(size[0], size[1], size[0] * 1000 + size[1]);
+            for (int orientation = ExifOrientation.ORIENTATION_NORMAL;
+                 orientation <= ExifOrientation.ORIENTATION_ROTATE_270; orientation++) {
+                PixelBuffer expected = naive(src, orientation);
+                PixelBuffer dst = new PixelBuffer(expected.getWidth(), expected.getHeight());
+                PixelRotator.transform(src, dst, orientation, null);
+                assertArrayEquals(size[0] + "x" + size[1] + " orientation " + orientation,
+                        expected.getPixels(), dst.getPixels());
+            }
+        }
+    }
+
+    @Test
+    public void transform_regions() {
+        PixelBuffer whole = random(120, 90, 1);
+        PixelBuffer src = whole.region(13, 7, 70, 45);
+        for (int orientation = ExifOrientation.ORIENTATION_NORMAL;
+             orientation <= ExifOrientation.ORIENTATION_ROTATE_270; orientation++) {
+            PixelBuffer expected = naive(src.copy(), orientation);
+            PixelBuffer canvas = new PixelBuffer(100, 100);
+            PixelBuffer dst = canvas.region(5, 9, expected.getWidth(), expected.getHeight());
+            PixelRotator.transform(src, dst, orientation, null);
+            assertArrayEquals("orientation " + orientation, expected.getPixels(), dst.copy().getPixels());
+            // 区域外不被修改
+            assertEquals(0, canvas.get(4, 9));
+            assertEquals(0, canvas.get(5, 8));
+        }
+    }
+
+    @Test
+    public void rotate_degrees() {
+        PixelBuffer src = random(50, 30, 2);
+        PixelBuffer dst = new PixelBuffer(30, 50);
+        PixelRotator.rotate(src, dst, -270, null);
+        assertArrayEquals(naive(src, ExifOrientation.ORIENTATION_ROTATE_90).getPixels(), dst.getPixels());
+        assertEquals(ExifOrientation.ORIENTATION_NORMAL, PixelRotator.getOrientation(360));
+        assertEquals(ExifOrientation.ORIENTATION_ROTATE_270, PixelRotator.getOrientation(-90));
+        try {
+            PixelRotator.getOrientation(45);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            PixelRotator.rotate(src, new PixelBuffer(50, 30), 90, null);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void transformInPlace() {
+        for (int n : new int[]{1, 2, 31, 32, 33, 100}) {
+            PixelBuffer src = random(n, n, n);
+            for (int orientation = ExifOrientation.ORIENTATION_NORMAL;
+                 orientation <= ExifOrientation.ORIENTATION_ROTATE_270; orientation++) {
+                PixelBuffer buffer = src.copy();
+                PixelRotator.transformInPlace(buffer, orientation);
+                assertArrayEquals(n + " orientation " + orientation,
+                        naive(src, orientation).getPixels(), buffer.getPixels());
+            }
+        }
+        PixelBuffer src = random(45, 20, 3);
+        for (int orientation : new int[]{ExifOrientation.ORIENTATION_FLIP_HORIZONTAL,
+                ExifOrientation.ORIENTATION_FLIP_VERTICAL, ExifOrientation.ORIENTATION_ROTATE_180}) {
+            PixelBuffer buffer = src.copy();
+            PixelRotator.transformInPlace(buffer, orientation);
+            assertArrayEquals("orientation " + orientation, naive(src, orientation).getPixels(), buffer.getPixels());
+        }
+        try {
+            PixelRotator.transformInPlace(src, ExifOrientation.ORIENTATION_ROTATE_90);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void transform_parallelMatchesSerial() {
+        PixelBuffer src = random(1500, 900, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int orientation = ExifOrientation.ORIENTATION_NORMAL;
+                 orientation <= ExifOrientation.ORIENTATION_ROTATE_270; orientation++) {
+                boolean swap = PixelRotator.swapsAxes(orientation);
+                PixelBuffer serial = swap ? new PixelBuffer(900, 1500) : new PixelBuffer(1500, 900);
+                PixelBuffer parallel = swap ? new PixelBuffer(900, 1500) : new PixelBuffer(1500, 900);
+                PixelRotator.transform(src, serial, orientation, null);
+                PixelRotator.transform(src, parallel, orientation, executor);
+                assertArrayEquals("orientation " + orientation, serial.getPixels(), parallel.getPixels());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 旋转 90 度：与逐行读取源图、按列写入目标图的直接实现比较（尺寸不是分块大小的整数倍）
+     */
+    @Test
+    public void rotate90_matchesDirectImplementation() {
+        int w = 333, h = 257;
+        PixelBuffer src = random(w, h, 5);
+        int[] in = src.getPixels();
+        int[] direct = new int[w * h];
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                direct[x * h + h - 1 - y] = in[i++];
+            }
+        }
+        PixelBuffer dst = new PixelBuffer(h, w);
+        PixelRotator.transform(src, dst, ExifOrientation.ORIENTATION_ROTATE_90, null);
+        assertArrayEquals(direct, dst.getPixels());
+    }
+}
@@ -0,0 +1,122 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PixelScalerTest {
+
+    private static int[] createImage(int w, int h, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[w * h];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+
+    /**
+     * 浮点运算的面积平均，作为参考结果
+     */
+    private static int[] referenceArea(int[] src, int sw, int sh, int dw, int dh) {
+        int[] dst = new int[dw * dh];
+        double sx = (double) sw / dw;
+        double sy = (double) sh / dh;
+        for (int dy = 0; dy < dh; dy++) {
+            for (int dx = 0; dx < dw; dx++) {
+                double[] sum = new double[4];
+                double total = 0;
+                for (int y = (int) (dy * sy); y < Math.min(sh, Math.ceil((dy + 1) * sy)); y++) {
+                    double wy = Math.min(y + 1, (dy + 1) * sy) - Math.max(y, dy * sy);
+                    for (int x = (int) (dx * sx); x < Math.min(sw, Math.ceil((dx + 1) * sx)); x++) {
+                        double w = wy * (Math.min(x + 1, (dx + 1) * sx) - Math.max(x, dx * sx));
+                        int p = src[y * sw + x];
+                        for (int c = 0; c < 4; c++) {
+                            sum[c] += ((p >>> (24 - c * 8)) & 0xff) * w;
+                        }
+                        total += w;
+                    }
+                }
+                int p = 0;
+                for (int c = 0; c < 4; c++) {
+                    p |= (int) Math.round(sum[c] / total) << (24 - c * 8);
+                }
+                dst[dy * dw + dx] = p;
+            }
+        }
+        return dst;
+    }
+
+    private static int maxChannelError(int[] expected, int[] actual) {
+        int max = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int d = Math.abs(((expected[i] >>> shift) & 0xff) - ((actual[i] >>> shift) & 0xff));
+                max = Math.max(max, d);
+            }
+        }
+        return max;
+    }
+
+    @Test
+    public void area_matchesReference() {
+        int[][] sizes = {{97, 61, 30, 20}, {100, 100, 33, 47}, {64, 48, 64, 48}, {10, 7, 23, 15}, {257, 3, 16, 1}};
+        for (int[] s : sizes) {
+            int[] src = createImage(s[0], s[1], s[0]);
+            int[] dst = new int[s[2] * s[3]];
+            PixelScaler.scaleArea(src, s[0], s[1], dst, s[2], s[3]);
+            assertTrue(maxChannelError(referenceArea(src, s[0], s[1], s[2], s[3]), dst) <= 1);
+        }
+    }
+
+    @Test
+    public void area_integerFactorMatchesBox() {
+        int[] src = createImage(96, 64, 7);
+        int[] box = new int[24 * 16];
+        int[] area = new int[24 * 16];
+        PixelScaler.downscaleBox(src, 96, 64, 4, box);
+        PixelScaler.scaleArea(src, 96, 64, area, 24, 16);
+        assertTrue(maxChannelError(box, area) <= 1);
+    }
+
+    @Test
+    public void area_weightsSumToOne() {
+        int[][] pairs = {{4000, 160}, {1000, 999}, {7, 3}, {3, 7}, {1, 5}};
+        for (int[] pair : pairs) {
+            PixelScaler.AreaWeights weights = new PixelScaler.AreaWeights(pair[0], pair[1]);
+            for (int d = 0; d < pair[1]; d++) {
+                int sum = 0;
+                for (int k = 0; k < weights.count[d]; k++) {
+                    sum += weights.weights[weights.offset[d] + k];
+                }
+                assertEquals(1 << 14, sum);
+                assertTrue(weights.first[d] + weights.count[d] <= pair[0]);
+            }
+        }
+    }
+
+    @Test
+    public void parallel_matchesSerial() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PixelBuffer src = PixelBuffer.wrap(createImage(700, 500, 3), 700, 500);
+            PixelBuffer serial = new PixelBuffer(123, 321);
+            PixelBuffer parallel = new PixelBuffer(123, 321);
+            PixelScaler.scaleArea(src, serial, null);
+            PixelScaler.scaleArea(src, parallel, executor);
+            assertArrayEquals(serial.getPixels(), parallel.getPixels());
+
+            PixelScaler.scaleBilinear(src, serial);
+            PixelScaler.scaleBilinear(src, parallel, executor);
+            assertArrayEquals(serial.getPixels(), parallel.getPixels());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
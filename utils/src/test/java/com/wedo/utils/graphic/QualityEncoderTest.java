@@ -0,0 +1,137 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QualityEncoderTest {
+
+    /**
+     * 大小随质量单调递增的模拟编码器，曲线形状与先验值不同
+     */
+    private static final class FakeEncoder implements QualityEncoder.Encoder {
+        final long pixels;
+        final double complexity;
+        int passes;
+
+        FakeEncoder(long pixels, double complexity) {
+            this.pixels = pixels;
+            this.complexity = complexity;
+        }
+
+        int sizeOf(int quality) {
+            double bpp = 0.02 * Math.exp(quality * 0.035) * complexity;
+            return (int) (pixels * bpp);
+        }
+
+        @Override
+        public void encode(int quality, OutputStream out) throws IOException {
+            passes++;
+            out.write(new byte[sizeOf(quality)]);
+        }
+    }
+
+    @Test
+    public void encode_fitsTargetWithFewPasses() throws IOException {
+        QualityEncoder encoder = new QualityEncoder(QualityEncoder.DEFAULT_TOLERANCE);
+        long pixels = 1000 * 1000;
+        int totalPasses = 0;
+        int images = 40;
+        for (int i = 0; i < images; i++) {
+            FakeEncoder fake = new FakeEncoder(pixels, 0.5 + (i % 7) * 0.25);
+            long maxBytes = 60000 + (i % 5) * 20000;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int quality = encoder.encode(fake, "JPEG", pixels, maxBytes, out);
+            assertEquals(fake.sizeOf(quality), out.size());
+            assertTrue(out.size() <= maxBytes);
+            // 结果要么在容差内，要么高一级质量就会超出
+            assertTrue(out.size() >= maxBytes * 0.9 || quality == 100 || fake.sizeOf(quality + 1) > maxBytes);
+            assertEquals(fake.passes, encoder.getLastPassCount());
+            totalPasses += fake.passes;
+        }
+        assertTrue("average passes " + (double) totalPasses / images, totalPasses <= images * 3);
+    }
+
+    @Test
+    public void encode_returnsLowestQualityWhenTargetTooSmall() throws IOException {
+        QualityEncoder encoder = new QualityEncoder(QualityEncoder.DEFAULT_TOLERANCE);
+        FakeEncoder fake = new FakeEncoder(1000, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, encoder.encode(fake, "JPEG", 1000, 1, out));
+        assertEquals(fake.sizeOf(0), out.size());
+    }
+
+    @Test
+    public void encode_fallsBackToLowestQualityWhenPassesRunOut() throws IOException {
+        QualityEncoder encoder = new QualityEncoder(QualityEncoder.DEFAULT_TOLERANCE);
+        // 先完成一次正常编码
+        encoder.encode(new FakeEncoder(1000, 1), "JPEG", 1000, 1000000, new ByteArrayOutputStream());
+        // 大小与质量无关且略超出目标，每次预测只下降几级质量，用完编码次数也不会试到 0
+        final long maxBytes = 100000;
+        final int[] passes = new int[1];
+        QualityEncoder.Encoder stubborn = new QualityEncoder.Encoder() {
+            @Override
+            public void encode(int quality, OutputStream out) throws IOException {
+                passes[0]++;
+                byte[] data = new byte[(int) (maxBytes * 1.02)];
+                data[0] = (byte) quality;
+                out.write(data);
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, encoder.encode(stubborn, "JPEG", 1000 * 1000, maxBytes, out));
+        assertEquals((int) (maxBytes * 1.02), out.size());
+        assertEquals(0, out.toByteArray()[0]);
+        assertEquals(passes[0], encoder.getLastPassCount());
+        assertTrue(passes[0] > 1);
+    }
+
+    @Test
+    public void encode_concurrentCallsKeepTheirOwnOutput() throws Exception {
+        final QualityEncoder encoder = new QualityEncoder(QualityEncoder.DEFAULT_TOLERANCE);
+        final long pixels = 500 * 500;
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final double complexity = 0.5 + t * 0.5;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            FakeEncoder fake = new FakeEncoder(pixels, complexity);
+                            long maxBytes = 20000 + i * 500;
+                            ByteArrayOutputStream out = new ByteArrayOutputStream();
+                            int quality = encoder.encode(fake, "JPEG", pixels, maxBytes, out);
+                            if (out.size() != fake.sizeOf(quality) || out.size() > maxBytes && quality > 0) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void encode_returnsFullQualityWhenItFits() throws IOException {
+        QualityEncoder encoder = new QualityEncoder(QualityEncoder.DEFAULT_TOLERANCE);
+        FakeEncoder fake = new FakeEncoder(1000, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100, encoder.encode(fake, "JPEG", 1000, 1000000, out));
+        assertEquals(fake.sizeOf(100), out.size());
+    }
+}
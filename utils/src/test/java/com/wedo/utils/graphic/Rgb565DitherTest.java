@@ -0,0 +1,103 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Rgb565DitherTest {
+
+    /**
+     * 水平方向的缓慢渐变，截断量化时色带最明显
+     */
+    private static PixelBuffer gradient(int w, int h) {
+        PixelBuffer buffer = new PixelBuffer(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int v = 40 + x * 40 / w;
+                buffer.set(x, y, 0xff000000 | v << 16 | (v + 3) << 8 | (v + 5));
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * 8x8 块平均值与原图的最大通道误差
+     */
+    private static double maxBlockError(PixelBuffer expected, PixelBuffer actual) {
+        double max = 0;
+        for (int by = 0; by + 8 <= expected.getHeight(); by += 8) {
+            for (int bx = 0; bx + 8 <= expected.getWidth(); bx += 8) {
+                for (int shift = 0; shift < 24; shift += 8) {
+                    double diff = 0;
+                    for (int y = by; y < by + 8; y++) {
+                        for (int x = bx; x < bx + 8; x++) {
+                            diff += ((actual.get(x, y) >> shift) & 0xff) - ((expected.get(x, y) >> shift) & 0xff);
+                        }
+                    }
+                    max = Math.max(max, Math.abs(diff / 64));
+                }
+            }
+        }
+        return max;
+    }
+
+    private static void assertRepresentable(PixelBuffer buffer) {
+        for (int y = 0; y < buffer.getHeight(); y++) {
+            for (int x = 0; x < buffer.getWidth(); x++) {
+                int p = buffer.get(x, y);
+                int r = (p >> 19) & 0x1f;
+                int g = (p >> 10) & 0x3f;
+                int b = (p >> 3) & 0x1f;
+                int expanded = (p & 0xff000000) | ((r << 3 | r >> 2) << 16) | ((g << 2 | g >> 4) << 8) | (b << 3 | b >> 2);
+                assertEquals(expanded, p);
+            }
+        }
+    }
+
+    @Test
+    public void dither_reducesBanding() {
+        PixelBuffer src = gradient(256, 64);
+        double[] errors = new double[3];
+        int[] modes = {Rgb565Dither.DITHER_NONE, Rgb565Dither.DITHER_ORDERED, Rgb565Dither.DITHER_DIFFUSION};
+        for (int i = 0; i < modes.length; i++) {
+            PixelBuffer dst = src.copy();
+            Rgb565Dither.dither(dst, modes[i]);
+            assertRepresentable(dst);
+            errors[i] = maxBlockError(src, dst);
+        }
+        // 不抖动时块平均误差接近半个量化步长（4），抖动后局部平均接近原图
+        assertTrue("none " + errors[0], errors[0] > 2.5);
+        assertTrue("ordered " + errors[1], errors[1] < 1.5);
+        assertTrue("diffusion " + errors[2], errors[2] < 1.5);
+    }
+
+    @Test
+    public void process_bandsMatchWholeImage() {
+        for (int mode = Rgb565Dither.DITHER_NONE; mode <= Rgb565Dither.DITHER_DIFFUSION; mode++) {
+            PixelBuffer whole = gradient(37, 23);
+            Rgb565Dither.dither(whole, mode);
+            PixelBuffer banded = gradient(37, 23);
+            Rgb565Dither ditherer = new Rgb565Dither(37, mode);
+            for (int y = 0; y < 23; y += 5) {
+                ditherer.process(banded.region(0, y, 37, Math.min(5, 23 - y)));
+            }
+            assertArrayEquals(whole.getPixels(), banded.getPixels());
+        }
+    }
+
+    @Test
+    public void dither_keepsAlphaAndExtremes() {
+        PixelBuffer buffer = new PixelBuffer(4, 1);
+        buffer.set(0, 0, 0xffffffff);
+        buffer.set(1, 0, 0xff000000);
+        buffer.set(2, 0, 0x80ff0000);
+        buffer.set(3, 0, 0x00000000);
+        assertTrue(Rgb565Dither.isOpaque(buffer.region(0, 0, 2, 1)));
+        assertFalse(Rgb565Dither.isOpaque(buffer));
+        Rgb565Dither.dither(buffer, Rgb565Dither.DITHER_ORDERED);
+        assertArrayEquals(new int[]{0xffffffff, 0xff000000, 0x80ff0000, 0x00000000}, buffer.getPixels());
+    }
+}
@@ -0,0 +1,71 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingAreaScalerTest {
+
+    private static int[] createImage(int w, int h, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[w * h];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+
+    private static void assertClose(int[] expected, int[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int d = ((expected[i] >>> shift) & 0xff) - ((actual[i] >>> shift) & 0xff);
+                assertTrue("pixel " + i, Math.abs(d) <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void rows_matchWholeImageScale() {
+        int[][] sizes = {{301, 203, 40, 27}, {64, 64, 64, 64}, {50, 90, 7, 13}, {9, 5, 20, 11}};
+        for (int[] s : sizes) {
+            int[] src = createImage(s[0], s[1], s[1]);
+            int[] expected = new int[s[2] * s[3]];
+            PixelScaler.scaleArea(src, s[0], s[1], expected, s[2], s[3]);
+            PixelBuffer dst = new PixelBuffer(s[2], s[3]);
+            StreamingAreaScaler scaler = new StreamingAreaScaler(s[0], s[1], dst);
+            // 按不等高的块依次传入
+            int y = 0;
+            for (int rows = 1; y < s[1]; rows = rows * 2 + 1) {
+                int n = Math.min(rows, s[1] - y);
+                scaler.pushRows(src, y * s[0], s[0], n);
+                y += n;
+            }
+            assertTrue(scaler.isFinished());
+            assertClose(expected, dst.getPixels());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pushRow_rejectsExtraRows() {
+        StreamingAreaScaler scaler = new StreamingAreaScaler(4, 2, new PixelBuffer(2, 1));
+        int[] row = new int[4];
+        scaler.pushRow(row, 0);
+        assertFalse(scaler.isFinished());
+        scaler.pushRow(row, 0);
+        scaler.pushRow(row, 0);
+    }
+
+    @Test
+    public void tiles_alignToSampleSize() {
+        assertEquals(8, TiledBitmapLoader.getSampleSize(12000, 8000, 1080, 720));
+        assertEquals(1, TiledBitmapLoader.getSampleSize(100, 100, 100, 100));
+        int rows = TiledBitmapLoader.getTileRows(12000, 8, 4 * 1024 * 1024);
+        assertEquals(0, rows % 8);
+        assertTrue((12000 / 8) * (rows / 8) * 4L <= 4 * 1024 * 1024);
+        assertEquals(1, TiledBitmapLoader.getTileRows(100000, 1, 16));
+    }
+}
@@ -0,0 +1,159 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailBatchTest {
+
+    /**
+     * 源文件名中的数字为预估内存（KB），以 bad 开头的文件转码失败
+     */
+    private static final class FakeTranscoder implements ThumbnailBatch.Transcoder {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicLong memory = new AtomicLong();
+        final AtomicLong maxMemory = new AtomicLong();
+
+        @Override
+        public long estimateMemory(File source) {
+            return kb(source) << 10;
+        }
+
+        @Override
+        public String getExtension() {
+            return "thumb";
+        }
+
+        @Override
+        public void transcode(File source, File target) throws IOException {
+            int n = running.incrementAndGet();
+            long m = memory.addAndGet(kb(source) << 10);
+            updateMax(maxRunning, n);
+            synchronized (maxMemory) {
+                maxMemory.set(Math.max(maxMemory.get(), m));
+            }
+            try {
+                FileOutputStream out = new FileOutputStream(target);
+                try {
+                    out.write(new byte[100]);
+                } finally {
+                    out.close();
+                }
+                Thread.sleep(2);
+                if (source.getName().startsWith("bad")) {
+                    throw new IOException("broken " + source.getName());
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                memory.addAndGet(-(kb(source) << 10));
+                running.decrementAndGet();
+            }
+        }
+
+        private static long kb(File source) {
+            String name = source.getName();
+            return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+        }
+
+        private static void updateMax(AtomicInteger max, int value) {
+            int current;
+            while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+                // retry
+            }
+        }
+    }
+
+    @Test
+    public void run_boundsConcurrencyAndMemory() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "thumbnail-test-" + System.nanoTime());
+        List<File> sources = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            // 10 个失败文件，其余预估 100-400KB
+            sources.add(new File(dir, (i % 6 == 5 ? "bad" : "img") + i + "-" + (100 * (1 + i % 4)) + ".jpg"));
+        }
+        // 单个文件超过预算时独占全部额度
+        sources.add(new File(dir, "huge-5000.jpg"));
+        FakeTranscoder transcoder = new FakeTranscoder();
+        final int[] lastCompleted = new int[1];
+        final AtomicInteger errors = new AtomicInteger();
+        File outputDir = new File(dir, "out");
+        try {
+            ThumbnailBatch batch = new ThumbnailBatch(transcoder, 4, 600 << 10);
+            ThumbnailBatch.Result result = batch.run(sources, outputDir, new ThumbnailBatch.Listener() {
+                @Override
+                public void onProgress(int completed, int total, File source, Throwable error) {
+                    assertEquals(lastCompleted[0] + 1, completed);
+                    lastCompleted[0] = completed;
+                    if (error != null) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            assertEquals(61, result.total);
+            assertEquals(51, result.succeeded);
+            assertEquals(10, result.failures.size());
+            assertEquals(10, errors.get());
+            assertEquals(61, lastCompleted[0]);
+            assertEquals(51 * 100, result.bytesWritten);
+            assertFalse(result.interrupted);
+            assertTrue(transcoder.maxRunning.get() <= 4);
+            assertTrue(transcoder.maxRunning.get() >= 2);
+            assertTrue(transcoder.maxMemory.get() <= 5000 << 10);
+            for (File source : sources) {
+                File target = batch.getTarget(outputDir, source);
+                assertEquals(!result.failures.containsKey(source), target.exists());
+            }
+        } finally {
+            File[] outputs = outputDir.listFiles();
+            if (outputs != null) {
+                for (File file : outputs) {
+                    file.delete();
+                }
+            }
+            outputDir.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void run_memoryBudgetLimitsParallelism() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "thumbnail-test-" + System.nanoTime());
+        List<File> sources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sources.add(new File(dir, "img" + i + "-400.jpg"));
+        }
+        FakeTranscoder transcoder = new FakeTranscoder();
+        try {
+            ThumbnailBatch.Result result = new ThumbnailBatch(transcoder, 8, 1000 << 10).run(sources, dir, null);
+            assertEquals(20, result.succeeded);
+            assertTrue(transcoder.maxRunning.get() <= 2);
+            assertTrue(transcoder.maxMemory.get() <= 1000 << 10);
+        } finally {
+            for (File source : sources) {
+                new File(dir, source.getName().replace(".jpg", ".thumb")).delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void getTarget_replacesExtension() {
+        ThumbnailBatch batch = new ThumbnailBatch(new FakeTranscoder(), 1, 1);
+        File out = new File("out");
+        assertEquals(new File(out, "photo.thumb"), batch.getTarget(out, new File("a/photo.jpeg")));
+        assertEquals(new File(out, "a.b.thumb"), batch.getTarget(out, new File("a.b.png")));
+        assertEquals(new File(out, ".hidden.thumb"), batch.getTarget(out, new File(".hidden")));
+    }
+}
@@ -0,0 +1,155 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TieredLruCacheTest {
+
+    /**
+     * 模拟 Bitmap：recycle 后大小变为 0
+     */
+    private static final class Value {
+        long size;
+        final long saved;
+        boolean recycled;
+
+        Value(long size, long saved) {
+            this.size = size;
+            this.saved = saved;
+        }
+
+        void recycle() {
+            recycled = true;
+            size = 0;
+        }
+    }
+
+    private static final class ValueCache extends TieredLruCache<Value> {
+        ValueCache(long maxSize, boolean softTier) {
+            super(maxSize, softTier);
+        }
+
+        @Override
+        long sizeOf(Value value) {
+            return value.recycled ? 0 : value.size;
+        }
+
+        @Override
+        long savedBytesOf(Value value) {
+            return value.recycled ? 0 : value.saved;
+        }
+
+        @Override
+        boolean isValid(Value value) {
+            return !value.recycled;
+        }
+    }
+
+    @Test
+    public void putGet_evictsLeastRecentlyUsed() {
+        ValueCache cache = new ValueCache(300, false);
+        Value a = new Value(100, 10);
+        Value b = new Value(100, 0);
+        Value c = new Value(100, 20);
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.put("c", c);
+        assertEquals(300, cache.getSize());
+        assertEquals(30, cache.getSavedSize());
+        // 访问 a 后 b 最久未使用
+        assertSame(a, cache.get("a"));
+        cache.put("d", new Value(100, 5));
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+        assertSame(c, cache.get("c"));
+        assertEquals(300, cache.getSize());
+        assertEquals(35, cache.getSavedSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertNull(cache.get(null));
+    }
+
+    @Test
+    public void replaceAndRemove_subtractStoredSize() {
+        ValueCache cache = new ValueCache(1000, false);
+        Value first = new Value(200, 50);
+        cache.put("k", first);
+        // 被替换的对象已 recycle，仍按放入时的大小减去
+        first.recycle();
+        cache.put("k", new Value(300, 30));
+        assertEquals(300, cache.getSize());
+        assertEquals(30, cache.getSavedSize());
+        Value other = new Value(100, 10);
+        cache.put("o", other);
+        other.recycle();
+        cache.remove("o");
+        assertEquals(300, cache.getSize());
+        assertEquals(30, cache.getSavedSize());
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getSavedSize());
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    public void get_dropsRecycledEntries() {
+        ValueCache cache = new ValueCache(250, false);
+        Value a = new Value(100, 10);
+        cache.put("a", a);
+        a.recycle();
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getSavedSize());
+        assertEquals(0, cache.getCount());
+        // 失效条目不再占用预算
+        Value b = new Value(100, 0);
+        Value c = new Value(100, 0);
+        cache.put("b", b);
+        cache.put("c", c);
+        assertSame(b, cache.get("b"));
+        assertSame(c, cache.get("c"));
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void softTier_keepsEvictedValues() {
+        ValueCache cache = new ValueCache(200, true);
+        Value a = new Value(100, 0);
+        Value b = new Value(100, 0);
+        Value c = new Value(100, 0);
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.put("c", c);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(200, cache.getSize());
+        // a 仍被强引用，软引用不会被回收；命中后回到强引用层，b 被淘汰
+        assertSame(a, cache.get("a"));
+        assertEquals(1, cache.getSoftHitCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(200, cache.getSize());
+        assertSame(b, cache.get("b"));
+        assertEquals(2, cache.getSoftHitCount());
+        // 软引用层中已 recycle 的对象不会命中
+        c.recycle();
+        assertNull(cache.get("c"));
+        cache.clearSoft();
+        assertEquals(200, cache.getSize());
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    public void softTier_disabled() {
+        ValueCache cache = new ValueCache(100, false);
+        Value a = new Value(100, 0);
+        cache.put("a", a);
+        cache.put("b", new Value(100, 0));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getSoftHitCount());
+    }
+}
@@ -0,0 +1,33 @@
+package com.wedo.utils.graphic;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class WatermarkTemplateTest {
+
+    @Test
+    public void getScaleForWidth_roundsToSteps() {
+        assertEquals(1f, WatermarkTemplate.getScaleForWidth(200, 200), 0);
+        assertEquals(0.5f, WatermarkTemplate.getScaleForWidth(200, 101), 1e-6f);
+        assertEquals(2f, WatermarkTemplate.getScaleForWidth(200, 390), 1e-6f);
+        // 相邻两级相差约 9%，取整后宽度误差不超过约 4.5%
+        for (int target = 10; target < 5000; target += 7) {
+            float width = 200 * WatermarkTemplate.getScaleForWidth(200, target);
+            assertEquals(1f, width / target, 0.045f);
+        }
+    }
+
+    @Test
+    public void getScaleForWidth_limitsDistinctScales() {
+        Set<Float> scales = new HashSet<>();
+        for (int width = 3000; width <= 4000; width++) {
+            scales.add(WatermarkTemplate.getScaleForWidth(240, width * 0.2f));
+        }
+        // 宽度 3000-4000 的图片只产生 4 个缩放比例，少于缓存上限
+        assertEquals(4, scales.size());
+    }
+}
@@ -0,0 +1,60 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BlurContextTest {
+
+    @Test
+    public void reusedContext_isIdenticalToReference() {
+        BlurContext context = new BlurContext();
+        int[][] sizes = {{64, 48}, {17, 5}, {301, 257}, {64, 48}};
+        int[] radii = {3, 25, 3, 8, 1};
+        for (int[] size : sizes) {
+            for (int radius : radii) {
+                int w = size[0];
+                int h = size[1];
+                int[] expected = ReferenceBlur.createImage(w, h, radius);
+                int[] actual = expected.clone();
+                ReferenceBlur.blur(expected, w, h, radius);
+                FastBlur.blur(actual, w, h, radius, context);
+                assertArrayEquals(w + "x" + h + " r=" + radius, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void steadyState_allocatesNothing() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        int w = 360;
+        int h = 640;
+        int radius = 12;
+        int[] source = ReferenceBlur.createImage(w, h, 7);
+        int[] pix = new int[source.length];
+        BlurContext context = new BlurContext();
+        // 预热：分配缓冲区并让 JIT 编译完成
+        for (int i = 0; i < 20; i++) {
+            System.arraycopy(source, 0, pix, 0, pix.length);
+            FastBlur.blur(pix, w, h, radius, context);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20; i++) {
+            System.arraycopy(source, 0, pix, 0, pix.length);
+            FastBlur.blur(pix, w, h, radius, context);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(0, allocated);
+    }
+}
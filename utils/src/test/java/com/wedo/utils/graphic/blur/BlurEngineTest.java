@@ -0,0 +1,67 @@
+package com.wedo.utils.graphic.blur;
+
+import com.wedo.utils.graphic.PixelBuffer;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BlurEngineTest {
+
+    @Test
+    public void selectAlgorithm() {
+        assertEquals(BlurAlgorithm.RENDER_SCRIPT, BlurEngine.selectAlgorithm(10, 1080, 1920, true));
+        assertEquals(BlurAlgorithm.RENDER_SCRIPT, BlurEngine.selectAlgorithm(25, 128, 128, true));
+        // 小图、大半径或 RenderScript 不可用时使用 CPU
+        assertEquals(BlurAlgorithm.STACK, BlurEngine.selectAlgorithm(10, 64, 64, true));
+        assertEquals(BlurAlgorithm.STACK, BlurEngine.selectAlgorithm(26, 1080, 1920, true));
+        assertEquals(BlurAlgorithm.STACK, BlurEngine.selectAlgorithm(10, 1080, 1920, false));
+        assertEquals(BlurAlgorithm.BOX, BlurEngine.selectAlgorithm(BlurEngine.BOX_MIN_RADIUS + 1, 1080, 1920, true));
+    }
+
+    @Test
+    public void cpuBackend_matchesDirectBlur() {
+        BlurEngine engine = new BlurEngine();
+        int w = 120;
+        int h = 90;
+        int[] radii = {3, 25, BlurEngine.BOX_MIN_RADIUS, BlurEngine.BOX_MIN_RADIUS + 20};
+        for (int radius : radii) {
+            int[] expected = ReferenceBlur.createImage(w, h, radius);
+            int[] actual = expected.clone();
+            BlurAlgorithm algorithm = engine.blur(actual, w, h, radius);
+            if (algorithm == BlurAlgorithm.BOX) {
+                BoxBlur.blur(expected, w, h, radius);
+            } else {
+                assertEquals(BlurAlgorithm.STACK, algorithm);
+                ReferenceBlur.blur(expected, w, h, radius);
+            }
+            assertArrayEquals("r=" + radius, expected, actual);
+        }
+        assertNull(engine.blur(new int[4], 2, 2, 0));
+    }
+
+    @Test
+    public void release_thenReuse() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BlurEngine engine = new BlurEngine(null, executor);
+            int w = 400;
+            int h = 300;
+            int[] expected = ReferenceBlur.createImage(w, h, 7);
+            ReferenceBlur.blur(expected, w, h, 7);
+            for (int i = 0; i < 2; i++) {
+                PixelBuffer buffer = PixelBuffer.wrap(ReferenceBlur.createImage(w, h, 7), w, h);
+                engine.blur(buffer, 7);
+                assertArrayEquals(expected, buffer.getPixels());
+                engine.release();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
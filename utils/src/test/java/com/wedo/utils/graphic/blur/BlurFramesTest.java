@@ -0,0 +1,93 @@
+package com.wedo.utils.graphic.blur;
+
+import com.wedo.utils.graphic.PixelBuffer;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BlurFramesTest {
+
+    @Test
+    public void frameIndex_andRadius() {
+        BlurFrames frames = new BlurFrames(new int[4], 2, 2, 25, 20);
+        assertEquals(0, frames.getFrameIndex(-1f));
+        assertEquals(0, frames.getFrameIndex(0f));
+        assertEquals(10, frames.getFrameIndex(0.5f));
+        assertEquals(19, frames.getFrameIndex(1f));
+        assertEquals(0, frames.getRadius(0));
+        assertEquals(25, frames.getRadius(19));
+    }
+
+    @Test
+    public void frames_matchScaledBlur() {
+        int w = 160;
+        int h = 120;
+        int[] src = ReferenceBlur.createImage(w, h, 5);
+        BlurFrames frames = new BlurFrames(src, w, h, 30, 11, 0f);
+        // 误差预算为 0 时不缩小，每帧都与直接模糊逐位一致
+        for (int i = 0; i < frames.getFrameCount(); i++) {
+            float progress = i / 10f;
+            int[] expected = src.clone();
+            ReferenceBlur.blur(expected, w, h, frames.getRadius(i));
+            PixelBuffer actual = new PixelBuffer(w, h);
+            frames.getFrame(progress, actual);
+            assertEquals(1, frames.getScale(progress));
+            assertArrayEquals("frame " + i, expected, actual.getPixels());
+        }
+
+        BlurFrames scaled = new BlurFrames(src, w, h, 30, 11);
+        scaled.prepare();
+        assertTrue(scaled.getScale(1f) > 1);
+        assertSame(scaled.getFrame(0.5f), scaled.getFrame(0.52f));
+    }
+
+    @Test
+    public void prepareAsync() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            BlurFrames frames = new BlurFrames(ReferenceBlur.createImage(64, 64, 1), 64, 64, 20, 5);
+            frames.prepareAsync(executor, new BlurFrames.OnPreparedListener() {
+                @Override
+                public void onPrepared(BlurFrames frames) {
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void benchmark_twentyFramesAgainstFullBlurs() {
+        int w = 1080;
+        int h = 1920;
+        int radius = 25;
+        int[] src = ReferenceBlur.createImage(w, h, 9);
+        BlurContext context = new BlurContext();
+        int[] pix = src.clone();
+        FastBlur.blur(pix, w, h, radius, context);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            System.arraycopy(src, 0, pix, 0, pix.length);
+            FastBlur.blur(pix, w, h, radius, context);
+        }
+        long full = System.nanoTime() - start;
+        start = System.nanoTime();
+        BlurFrames frames = new BlurFrames(src, w, h, radius, 20);
+        frames.prepare();
+        long animation = System.nanoTime() - start;
+        System.out.println("BlurFrames 1080x1920 r=" + radius + ": 5 full blurs " + full / 1000000
+                + " ms, 20 frames " + animation / 1000000 + " ms");
+    }
+}
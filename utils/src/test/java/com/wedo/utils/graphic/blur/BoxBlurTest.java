@@ -0,0 +1,151 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoxBlurTest {
+
+    @Test
+    public void boxRadii_matchStackBlurVariance() {
+        for (int radius = 1; radius <= 200; radius++) {
+            int[] boxes = BoxBlur.getBoxRadii(radius);
+            double variance = 0;
+            for (int box : boxes) {
+                int d = 2 * box + 1;
+                variance += (d * d - 1) / 12.0;
+            }
+            double expected = radius * (radius + 2) / 6.0;
+            assertTrue("radius " + radius, Math.abs(Math.sqrt(variance) - Math.sqrt(expected)) < 1);
+        }
+    }
+
+    @Test
+    public void blur_isIdenticalToNaiveBoxes() {
+        int[][] sizes = {{1, 1}, {5, 3}, {64, 48}, {120, 97}};
+        int[] radii = {1, 4, 25, 100};
+        for (int[] size : sizes) {
+            for (int radius : radii) {
+                int w = size[0];
+                int h = size[1];
+                int[] expected = ReferenceBlur.createImage(w, h, radius);
+                int[] actual = expected.clone();
+                naiveBoxBlur(expected, w, h, radius);
+                BoxBlur.blur(actual, w, h, radius);
+                assertArrayEquals(w + "x" + h + " r=" + radius, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void parallel_isIdenticalToSequential() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int w = 640;
+            int h = 480;
+            for (int radius : new int[]{3, 40}) {
+                int[] expected = ReferenceBlur.createImage(w, h, radius);
+                int[] actual = expected.clone();
+                BoxBlur.blur(expected, w, h, radius);
+                BoxBlur.blur(actual, w, h, radius, new BlurContext(), executor);
+                assertArrayEquals(expected, actual);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void blur_looksLikeStackBlur() {
+        int w = 320;
+        int h = 240;
+        for (int radius : new int[]{5, 25, 60}) {
+            int[] stack = ReferenceBlur.createImage(w, h, 11);
+            int[] box = stack.clone();
+            FastBlur.blur(stack, w, h, radius);
+            BoxBlur.blur(box, w, h, radius);
+            long sum = 0;
+            for (int i = 0; i < stack.length; i++) {
+                assertEquals(stack[i] >>> 24, box[i] >>> 24);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    sum += Math.abs(((stack[i] >> shift) & 0xff) - ((box[i] >> shift) & 0xff));
+                }
+            }
+            double error = sum / (3.0 * stack.length);
+            assertTrue("radius " + radius + " error " + error, error < 2);
+        }
+    }
+
+    @Test
+    public void benchmark_againstFastBlur() {
+        int w = 1080;
+        int h = 1920;
+        int[] source = ReferenceBlur.createImage(w, h, 5);
+        int[] pix = new int[source.length];
+        BlurContext context = new BlurContext();
+        StringBuilder report = new StringBuilder("radius\tFastBlur(ms)\tBoxBlur(ms)\n");
+        for (int radius = 5; radius <= 100; radius += 19) {
+            long stack = Long.MAX_VALUE;
+            long box = Long.MAX_VALUE;
+            for (int i = 0; i < 3; i++) {
+                System.arraycopy(source, 0, pix, 0, pix.length);
+                long start = System.nanoTime();
+                FastBlur.blur(pix, w, h, radius, context);
+                stack = Math.min(stack, System.nanoTime() - start);
+                System.arraycopy(source, 0, pix, 0, pix.length);
+                start = System.nanoTime();
+                BoxBlur.blur(pix, w, h, radius, context, null);
+                box = Math.min(box, System.nanoTime() - start);
+            }
+            report.append(radius).append('\t').append(stack / 1000000).append('\t').append(box / 1000000).append('\n');
+        }
+        System.out.print(report);
+    }
+
+    /**
+     * 逐像素直接求和的三次盒式模糊（横向三次、纵向三次），O(r) 每像素
+     */
+    private static void naiveBoxBlur(int[] pix, int w, int h, int radius) {
+        int[] alpha = new int[pix.length];
+        int[] cur = new int[pix.length];
+        for (int i = 0; i < pix.length; i++) {
+            alpha[i] = pix[i] & 0xff000000;
+            cur[i] = pix[i] & 0x00ffffff;
+        }
+        int[] boxes = BoxBlur.getBoxRadii(radius);
+        for (int box : boxes) {
+            cur = naivePass(cur, w, h, box, true);
+        }
+        for (int box : boxes) {
+            cur = naivePass(cur, w, h, box, false);
+        }
+        for (int i = 0; i < pix.length; i++) {
+            pix[i] = alpha[i] | cur[i];
+        }
+    }
+
+    private static int[] naivePass(int[] src, int w, int h, int box, boolean horizontal) {
+        int[] dst = new int[src.length];
+        int d = 2 * box + 1;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int r = 0, g = 0, b = 0;
+                for (int i = -box; i <= box; i++) {
+                    int sx = horizontal ? Math.min(w - 1, Math.max(0, x + i)) : x;
+                    int sy = horizontal ? y : Math.min(h - 1, Math.max(0, y + i));
+                    int p = src[sy * w + sx];
+                    r += (p >> 16) & 0xff;
+                    g += (p >> 8) & 0xff;
+                    b += p & 0xff;
+                }
+                dst[y * w + x] = ((r + d / 2) / d << 16) | ((g + d / 2) / d << 8) | ((b + d / 2) / d);
+            }
+        }
+        return dst;
+    }
+}
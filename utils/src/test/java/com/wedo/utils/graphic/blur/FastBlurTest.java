@@ -0,0 +1,83 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class FastBlurTest {
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sequential_isIdenticalToReference() {
+        int[][] sizes = {{1, 1}, {3, 2}, {17, 5}, {64, 48}, {301, 257}};
+        int[] radii = {1, 2, 7, 25, 60};
+        for (int[] size : sizes) {
+            for (int radius : radii) {
+                assertBlurEquals(size[0], size[1], radius, false);
+            }
+        }
+    }
+
+    @Test
+    public void parallel_isIdenticalToSequential() {
+        int[][] sizes = {{64, 48}, {301, 257}, {1080, 240}, {130, 1000}};
+        int[] radii = {1, 3, 25, 90};
+        for (int[] size : sizes) {
+            for (int radius : radii) {
+                assertBlurEquals(size[0], size[1], radius, true);
+            }
+        }
+    }
+
+    @Test
+    public void parallel_throughput() {
+        int w = 1080;
+        int h = 2400;
+        int radius = 25;
+        int[] source = ReferenceBlur.createImage(w, h, 1);
+        long sequential = measure(source, w, h, radius, false);
+        long parallel = measure(source, w, h, radius, true);
+        System.out.println(String.format("FastBlur %dx%d r=%d: sequential %.1f Mpx/s, parallel %.1f Mpx/s (%d cores)",
+                w, h, radius, throughput(w, h, sequential), throughput(w, h, parallel),
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static void assertBlurEquals(int w, int h, int radius, boolean parallel) {
+        int[] expected = ReferenceBlur.createImage(w, h, w * 31 + h);
+        int[] actual = expected.clone();
+        ReferenceBlur.blur(expected, w, h, radius);
+        FastBlur.blur(actual, w, h, radius, parallel ? executor : null);
+        assertArrayEquals(w + "x" + h + " r=" + radius, expected, actual);
+    }
+
+    private static long measure(int[] source, int w, int h, int radius, boolean parallel) {
+        int[] pix = new int[source.length];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.arraycopy(source, 0, pix, 0, pix.length);
+            long start = System.nanoTime();
+            FastBlur.blur(pix, w, h, radius, parallel ? executor : null);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static double throughput(int w, int h, long nanos) {
+        return w * (double) h / nanos * 1000;
+    }
+}
@@ -0,0 +1,86 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class PackedFastBlurTest {
+
+    @Test
+    public void blur_isIdenticalToReference() {
+        int[][] sizes = {{1, 1}, {3, 2}, {17, 5}, {64, 48}, {301, 257}};
+        int[] radii = {1, 2, 7, 25, PackedFastBlur.MAX_RADIUS, PackedFastBlur.MAX_RADIUS + 1, 120};
+        BlurContext context = new BlurContext();
+        for (int[] size : sizes) {
+            for (int radius : radii) {
+                int w = size[0];
+                int h = size[1];
+                int[] expected = ReferenceBlur.createImage(w, h, radius);
+                int[] actual = expected.clone();
+                ReferenceBlur.blur(expected, w, h, radius);
+                PackedFastBlur.blur(actual, w, h, radius, context, null);
+                assertArrayEquals(w + "x" + h + " r=" + radius, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void saturatedImage_doesNotOverflowLanes() {
+        int w = 400;
+        int h = 300;
+        int[] expected = new int[w * h];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i % 7 == 0 ? 0xff000000 : 0xffffffff;
+        }
+        int[] actual = expected.clone();
+        ReferenceBlur.blur(expected, w, h, PackedFastBlur.MAX_RADIUS);
+        PackedFastBlur.blur(actual, w, h, PackedFastBlur.MAX_RADIUS);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void parallel_isIdenticalToReference() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int w = 700;
+            int h = 500;
+            for (int radius : new int[]{4, 30}) {
+                int[] expected = ReferenceBlur.createImage(w, h, radius);
+                int[] actual = expected.clone();
+                ReferenceBlur.blur(expected, w, h, radius);
+                PackedFastBlur.blur(actual, w, h, radius, new BlurContext(), executor);
+                assertArrayEquals(expected, actual);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void benchmark_againstFastBlur() {
+        int w = 1080;
+        int h = 1920;
+        int[] source = ReferenceBlur.createImage(w, h, 3);
+        int[] pix = new int[source.length];
+        BlurContext context = new BlurContext();
+        for (int radius : new int[]{8, 25, 60}) {
+            long plain = Long.MAX_VALUE;
+            long packed = Long.MAX_VALUE;
+            for (int i = 0; i < 5; i++) {
+                System.arraycopy(source, 0, pix, 0, pix.length);
+                long start = System.nanoTime();
+                FastBlur.blur(pix, w, h, radius, context);
+                plain = Math.min(plain, System.nanoTime() - start);
+                System.arraycopy(source, 0, pix, 0, pix.length);
+                start = System.nanoTime();
+                PackedFastBlur.blur(pix, w, h, radius, context, null);
+                packed = Math.min(packed, System.nanoTime() - start);
+            }
+            System.out.println("r=" + radius + " FastBlur " + plain / 1000000 + "ms, PackedFastBlur "
+                    + packed / 1000000 + "ms");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PremultipliedBlurTest {
+
+    @Test
+    public void premultiply_roundTrips() {
+        for (int a = 1; a < 256; a++) {
+            for (int c = 0; c < 256; c++) {
+                int p = FastBlur.premultiply(c, a);
+                assertTrue(p <= a);
+                assertEquals(Math.round(c * a / 255f), p);
+            }
+        }
+        for (int c = 0; c < 256; c++) {
+            assertEquals(c, FastBlur.unpremultiply(c, 255));
+        }
+    }
+
+    @Test
+    public void opaqueImage_matchesDefaultMode() {
+        int w = 120;
+        int h = 90;
+        int[] expected = ReferenceBlur.createImage(w, h, 2);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] |= 0xff000000;
+        }
+        int[] actual = expected.clone();
+        ReferenceBlur.blur(expected, w, h, 9);
+        FastBlur.blur(actual, w, h, 9, new BlurContext(), null, true);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void blur_matchesPerChannelReference() {
+        int w = 150;
+        int h = 110;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int radius : new int[]{1, 6, 30}) {
+                int[] source = ReferenceBlur.createImage(w, h, radius);
+                int[] expected = referencePremultipliedBlur(source, w, h, radius);
+                int[] actual = source.clone();
+                FastBlur.blur(actual, w, h, radius, new BlurContext(), null, true);
+                assertArrayEquals("r=" + radius, expected, actual);
+                actual = source.clone();
+                FastBlur.blur(actual, w, h, radius, new BlurContext(), executor, true);
+                assertArrayEquals("parallel r=" + radius, expected, actual);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void transparentNeighbours_doNotDarkenEdges() {
+        int w = 40;
+        int h = 20;
+        int[] pix = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                // 左半边透明黑色，右半边不透明白色
+                pix[y * w + x] = x < w / 2 ? 0x00000000 : 0xffffffff;
+            }
+        }
+        int[] straight = pix.clone();
+        FastBlur.blur(straight, w, h, 5);
+        FastBlur.blur(pix, w, h, 5, new BlurContext(), null, true);
+        int edge = 10 * w + w / 2;
+        // 默认模式下边缘颜色被透明黑色拉暗，预乘模式下仍是白色，只有 alpha 渐变
+        assertTrue((straight[edge] & 0xff) < 200);
+        for (int x = 0; x < w; x++) {
+            int p = pix[10 * w + x];
+            if ((p >>> 24) != 0) {
+                assertEquals(0xffffff, p & 0xffffff);
+            }
+        }
+        assertTrue((pix[edge] >>> 24) > 0 && (pix[edge] >>> 24) < 255);
+    }
+
+    /**
+     * 逐通道调用原始算法：预乘后的 r、g、b 与 alpha 分别模糊，再还原预乘
+     */
+    private static int[] referencePremultipliedBlur(int[] source, int w, int h, int radius) {
+        int[] rgb = new int[source.length];
+        int[] alpha = new int[source.length];
+        for (int i = 0; i < source.length; i++) {
+            int p = source[i];
+            int a = p >>> 24;
+            rgb[i] = (FastBlur.premultiply((p >> 16) & 0xff, a) << 16)
+                    | (FastBlur.premultiply((p >> 8) & 0xff, a) << 8)
+                    | FastBlur.premultiply(p & 0xff, a);
+            alpha[i] = a;
+        }
+        ReferenceBlur.blur(rgb, w, h, radius);
+        ReferenceBlur.blur(alpha, w, h, radius);
+        int[] result = new int[source.length];
+        for (int i = 0; i < source.length; i++) {
+            int a = alpha[i] & 0xff;
+            int p = rgb[i];
+            result[i] = (a << 24) | (FastBlur.unpremultiply((p >> 16) & 0xff, a) << 16)
+                    | (FastBlur.unpremultiply((p >> 8) & 0xff, a) << 8)
+                    | FastBlur.unpremultiply(p & 0xff, a);
+        }
+        return result;
+    }
+}
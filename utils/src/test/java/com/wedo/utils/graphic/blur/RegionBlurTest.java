@@ -0,0 +1,54 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RegionBlurTest {
+
+    @Test
+    public void region_isIdenticalToFullBlur() {
+        int w = 200;
+        int h = 150;
+        // 区域在内部、贴边、超出图片、半径大于区域
+        int[][] regions = {{40, 30, 120, 70}, {0, 0, 200, 24}, {150, 100, 260, 190}, {90, 60, 95, 64}};
+        int[] radii = {1, 7, 25, 60};
+        BlurContext context = new BlurContext();
+        for (int radius : radii) {
+            int[] src = ReferenceBlur.createImage(w, h, radius);
+            int[] full = src.clone();
+            ReferenceBlur.blur(full, w, h, radius);
+            for (int[] r : regions) {
+                int[] copy = src.clone();
+                int[] dst = new int[w * h];
+                RegionBlur.blur(src, w, h, r[0], r[1], r[2], r[3], radius, dst, r[1] * w + r[0], w, context);
+                for (int y = 0; y < h; y++) {
+                    for (int x = 0; x < w; x++) {
+                        int i = y * w + x;
+                        boolean inside = x >= r[0] && x < r[2] && y >= r[1] && y < r[3];
+                        assertEquals("r=" + radius + " (" + x + "," + y + ")", inside ? full[i] : 0, dst[i]);
+                        assertEquals(copy[i], src[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void region_writesToOffsetAndStride() {
+        int w = 64;
+        int h = 48;
+        int radius = 5;
+        int[] src = ReferenceBlur.createImage(w, h, 3);
+        int[] full = src.clone();
+        ReferenceBlur.blur(full, w, h, radius);
+        int stride = 20;
+        int[] dst = new int[3 + stride * 10];
+        RegionBlur.blur(src, w, h, 10, 20, 26, 30, radius, dst, 3, stride, new BlurContext());
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 16; x++) {
+                assertEquals(full[(20 + y) * w + 10 + x], dst[3 + y * stride + x]);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.wedo.utils.graphic.blur;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScaledBlurTest {
+    private static final int W = 480;
+    private static final int H = 320;
+
+    @Test
+    public void pickScaleFactor_growsWithRadius() {
+        assertEquals(1, ScaledBlur.pickScaleFactor(25, 0));
+        assertEquals(1, ScaledBlur.pickScaleFactor(2, ScaledBlur.DEFAULT_ERROR_BUDGET));
+        int previous = 1;
+        for (int radius = 1; radius <= 200; radius++) {
+            int factor = ScaledBlur.pickScaleFactor(radius, 3f);
+            assertTrue("radius " + radius, factor >= 1 && factor <= 8);
+            assertTrue(ScaledBlur.estimateError(radius, factor) <= 3f);
+            previous = Math.max(previous, factor);
+        }
+        assertEquals(8, previous);
+        assertTrue(ScaledBlur.pickScaleFactor(100, ScaledBlur.DEFAULT_ERROR_BUDGET) >= 4);
+    }
+
+    @Test
+    public void error_staysWithinBudget() {
+        float[] budgets = {1f, ScaledBlur.DEFAULT_ERROR_BUDGET, 3f};
+        int[] radii = {5, 12, 25, 40, 60, 100};
+        int[][] images = {ReferenceBlur.createImage(W, H, 3), createBlocks(W, H, 5)};
+        BlurContext context = new BlurContext();
+        for (int[] image : images) {
+            for (float budget : budgets) {
+                for (int radius : radii) {
+                    int[] expected = image.clone();
+                    FastBlur.blur(expected, W, H, radius, context);
+                    int[] actual = image.clone();
+                    ScaledBlur.blur(actual, W, H, radius, budget, context);
+                    double error = meanAbsoluteError(expected, actual);
+                    assertTrue("r=" + radius + " budget=" + budget + " error=" + error, error <= budget);
+                    for (int i = 0; i < image.length; i++) {
+                        assertEquals(image[i] >>> 24, actual[i] >>> 24);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void zeroBudget_isExact() {
+        int[] expected = ReferenceBlur.createImage(W, H, 9);
+        int[] actual = expected.clone();
+        ReferenceBlur.blur(expected, W, H, 30);
+        ScaledBlur.blur(actual, W, H, 30, 0, new BlurContext());
+        assertEquals(0, meanAbsoluteError(expected, actual), 0);
+    }
+
+    /**
+     * 大块纯色，边缘锐利，是缩小模糊误差最大的情况之一
+     */
+    private static int[] createBlocks(int w, int h, long seed) {
+        Random random = new Random(seed);
+        int[] colors = new int[64];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        int[] pix = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                pix[y * w + x] = colors[(x / 37 + y / 41 * 7) & 63];
+            }
+        }
+        return pix;
+    }
+
+    private static double meanAbsoluteError(int[] expected, int[] actual) {
+        long sum = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 24; shift += 8) {
+                sum += Math.abs(((expected[i] >> shift) & 0xff) - ((actual[i] >> shift) & 0xff));
+            }
+        }
+        return sum / (3.0 * expected.length);
+    }
+}